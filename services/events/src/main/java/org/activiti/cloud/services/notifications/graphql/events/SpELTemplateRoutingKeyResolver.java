@@ -16,34 +16,51 @@
 package org.activiti.cloud.services.notifications.graphql.events;
 
 import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
 import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
+/**
+ * Resolves routing keys from the {@link SpELTemplateRoutingKey} template declared on the object class.
+ *
+ * The template is parsed once per class and cached. Expressions are created in SpEL mixed compiler mode,
+ * so they are compiled to bytecode after a few interpreted invocations and revert to interpreted
+ * evaluation if the compiled form cannot handle a given object.
+ */
 public class SpELTemplateRoutingKeyResolver implements RoutingKeyResolver {
 
-	private ExpressionParser parser = new SpelExpressionParser();
+	private final ExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED,
+	                                                                                                 getClass().getClassLoader()));
 
-	private ParserContext parserContext = new TemplateParserContext();
+	private final ParserContext parserContext = new TemplateParserContext();
 
+	private final Map<Class<?>, Expression> expressions = new ConcurrentHashMap<>();
 
 	@Override
 	public String resolveRoutingKey(Object object) {
 
-		Annotation annotation = AnnotationUtils.findAnnotation(object.getClass(), SpELTemplateRoutingKey.class);
+		Expression expression = expressions.computeIfAbsent(object.getClass(), this::parseExpression);
+
+		return expression.getValue(object).toString();
+    }
+
+	protected Expression parseExpression(Class<?> type) {
+		Annotation annotation = AnnotationUtils.findAnnotation(type, SpELTemplateRoutingKey.class);
 
 		if(annotation == null)
-			throw new RuntimeException("Cannot resolve routing key for class: "+object.getClass());
+			throw new RuntimeException("Cannot resolve routing key for class: "+type);
 
 		String value = AnnotationUtils.getValue(annotation).toString();
 
-		Expression expression = parser.parseExpression(value, parserContext);
-
-		return expression.getValue(object).toString();
-    }
+		return parser.parseExpression(value, parserContext);
+	}
 
 }
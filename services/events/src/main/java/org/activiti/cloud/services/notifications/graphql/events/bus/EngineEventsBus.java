@@ -0,0 +1,619 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.bus;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+import com.codahale.metrics.annotation.Gauge;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.FluxProcessor;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Scheduler.Worker;
+
+/**
+ * Bounded in-memory bus between engine events consumer and its subscribers.
+ *
+ * Each subscriber is drained on a worker of the configured {@link Scheduler}, so that subscribers do not
+ * require a dedicated thread each. Published events are buffered in bounded queues and the configured
+ * {@link OverflowStrategy} is applied when a queue is full.
+ *
+ * References to published events can be tracked with {@link Builder#references(Consumer, Consumer)}: the bus
+ * retains the event for every delivery queued for a subscriber and releases it once the subscriber has received it,
+ * or once the delivery has been dropped. The reference of the publisher is released once the event is published.
+ *
+ * @param <T> the type of published events
+ */
+public abstract class EngineEventsBus<T> extends FluxProcessor<T, T> {
+
+    private static Logger logger = LoggerFactory.getLogger(EngineEventsBus.class);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public enum Type {
+        /* Every subscriber receives every event, each subscriber has its own buffer */
+        MULTICAST,
+        /* Every event is received by exactly one subscriber, subscribers share a single buffer */
+        WORK_QUEUE,
+        /* Every event is received by one subscriber selected by the event partition key */
+        PARTITIONED
+    }
+
+    public enum OverflowStrategy {
+        /* Block publisher until there is space in the buffer */
+        BLOCK,
+        /* Drop the oldest buffered event to make space for the new one */
+        DROP_OLDEST,
+        /* Drop the new event */
+        DROP_LATEST,
+        /* Drop the new event and report the overflow as an error, subscribers are not terminated */
+        ERROR
+    }
+
+    protected final int bufferSize;
+
+    protected final OverflowStrategy overflowStrategy;
+
+    protected final Scheduler scheduler;
+
+    protected final CopyOnWriteArrayList<BusSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Stats stats = new Stats();
+
+    private volatile boolean done;
+
+    private volatile Throwable error;
+
+    private Consumer<? super T> retain;
+
+    private Consumer<? super T> release;
+
+    protected EngineEventsBus(int bufferSize, OverflowStrategy overflowStrategy, Scheduler scheduler) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.overflowStrategy = Objects.requireNonNull(overflowStrategy, "overflowStrategy");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Buffers event for subscribers, applying overflow strategy if needed.
+     *
+     * @param event published event
+     */
+    protected abstract void publish(T event);
+
+    /**
+     * Creates buffer for a new subscriber.
+     *
+     * @return bounded queue
+     */
+    protected abstract BoundedQueue<T> createQueue();
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (done) {
+            subscription.cancel();
+        } else {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(T event) {
+        if (done) {
+            Operators.onNextDropped(event, currentContext());
+            released(event);
+            return;
+        }
+        stats.published.incrementAndGet();
+
+        try {
+            publish(event);
+        } finally {
+            released(event);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            Operators.onErrorDropped(throwable, currentContext());
+            return;
+        }
+        error = throwable;
+        done = true;
+
+        subscriptions.forEach(BusSubscription::signal);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+
+        subscriptions.forEach(BusSubscription::signal);
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super T> actual) {
+        BusSubscription subscription = new BusSubscription(actual, createQueue(), scheduler.createWorker());
+
+        subscriptions.add(subscription);
+
+        actual.onSubscribe(subscription);
+
+        if (done) {
+            subscription.signal();
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public long downstreamCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return done;
+    }
+
+    @Override
+    public Throwable getError() {
+        return error;
+    }
+
+    public OverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * Offers event into the queue applying overflow strategy if the queue is full.
+     *
+     * @param queue target queue
+     * @param event published event
+     * @param cancelled tells if blocked publisher should give up waiting
+     */
+    protected void offer(BoundedQueue<T> queue, T event, BooleanSupplier cancelled) {
+        retained(event);
+
+        for (;;) {
+            if (queue.offer(event)) {
+                return;
+            }
+
+            switch (overflowStrategy) {
+                case DROP_LATEST:
+                    dropped(event);
+                    return;
+                case DROP_OLDEST:
+                    T oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped(oldest);
+                    }
+                    break;
+                case ERROR:
+                    logger.error("Engine events bus buffer of {} events is full, dropped event {}", bufferSize, event);
+                    dropped(event);
+                    return;
+                case BLOCK:
+                default:
+                    if (done || cancelled.getAsBoolean()) {
+                        dropped(event);
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Accounts event that will not be delivered to a subscriber and releases its delivery.
+     *
+     * @param event dropped event
+     */
+    protected void dropped(T event) {
+        stats.dropped.incrementAndGet();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Dropped event {}", event);
+        }
+        released(event);
+    }
+
+    protected void retained(T event) {
+        if (retain != null) {
+            retain.accept(event);
+        }
+    }
+
+    protected void released(T event) {
+        if (release != null) {
+            release.accept(event);
+        }
+    }
+
+    /**
+     * Bounded multi-consumer queue. Publishing is serialized by the bus, while queue may be polled by
+     * several subscriber workers concurrently.
+     */
+    protected static final class BoundedQueue<T> {
+
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final int capacity;
+
+        public BoundedQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public boolean offer(T value) {
+            for (;;) {
+                int current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (size.compareAndSet(current, current + 1)) {
+                    break;
+                }
+            }
+            queue.offer(value);
+
+            return true;
+        }
+
+        public T poll() {
+            T value = queue.poll();
+            if (value != null) {
+                size.decrementAndGet();
+            }
+            return value;
+        }
+
+        public int size() {
+            return size.get();
+        }
+
+        public boolean isEmpty() {
+            return size.get() == 0;
+        }
+    }
+
+    /**
+     * Subscription of a single subscriber draining its queue on a scheduler worker.
+     */
+    protected final class BusSubscription implements Subscription, Runnable {
+
+        private final CoreSubscriber<? super T> actual;
+
+        private final BoundedQueue<T> queue;
+
+        private final Worker worker;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        BusSubscription(CoreSubscriber<? super T> actual, BoundedQueue<T> queue, Worker worker) {
+            this.actual = actual;
+            this.queue = queue;
+            this.worker = worker;
+        }
+
+        public BoundedQueue<T> getQueue() {
+            return queue;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void request(long n) {
+            if (Operators.validate(n)) {
+                requested.accumulateAndGet(n, Operators::addCap);
+                signal();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                signal();
+            }
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    worker.schedule(this);
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Engine events bus scheduler rejected subscriber drain", e);
+                    release();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+
+            for (;;) {
+                if (cancelled) {
+                    release();
+                    return;
+                }
+
+                long r = requested.get();
+                long e = 0L;
+
+                while (e != r && !cancelled) {
+                    T event = queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    try {
+                        actual.onNext(event);
+                    } finally {
+                        released(event);
+                    }
+                    e++;
+                }
+
+                if (e != 0L && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-e);
+                }
+
+                if (done && queue.isEmpty() && !cancelled) {
+                    release();
+                    if (error != null) {
+                        actual.onError(error);
+                    } else {
+                        actual.onComplete();
+                    }
+                    return;
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        private void release() {
+            cancelled = true;
+            subscriptions.remove(this);
+            worker.dispose();
+            onRelease(this);
+        }
+    }
+
+    /**
+     * Invoked when a subscription is cancelled or terminated.
+     *
+     * @param subscription released subscription
+     */
+    protected void onRelease(BusSubscription subscription) {
+        T event;
+        while ((event = subscription.getQueue().poll()) != null) {
+            released(event);
+        }
+    }
+
+    /**
+     * Event bus metrics
+     */
+    public class Stats {
+
+        private final AtomicLong published = new AtomicLong();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        @Gauge
+        public Long publishedCount() {
+            return published.get();
+        }
+
+        @Gauge
+        public Long droppedCount() {
+            return dropped.get();
+        }
+
+        @Gauge
+        public Integer subscriberCount() {
+            return subscriptions.size();
+        }
+
+        /* Total number of buffered events */
+        @Gauge
+        public Integer bufferFill() {
+            return subscriptions.stream()
+                                .map(BusSubscription::getQueue)
+                                .distinct()
+                                .mapToInt(BoundedQueue::size)
+                                .sum();
+        }
+
+        /* Maximum number of events buffered for a single subscriber */
+        @Gauge
+        public Integer subscriberLag() {
+            return subscriptions.stream()
+                                .map(BusSubscription::getQueue)
+                                .mapToInt(BoundedQueue::size)
+                                .max()
+                                .orElse(0);
+        }
+
+        @Override
+        public String toString() {
+            return "published(" + publishedCount() + ")"
+                    + "-dropped(" + droppedCount() + ")"
+                    + "-subscribers(" + subscriberCount() + ")"
+                    + "-buffered(" + bufferFill() + ")"
+                    + "-lag(" + subscriberLag() + ")";
+        }
+    }
+
+    /**
+     * Splits published events between partitions of {@link Type#PARTITIONED} bus.
+     */
+    @FunctionalInterface
+    public interface Partitioner<T> {
+
+        /**
+         * Passes every part of the event with the index of its partition to the target.
+         *
+         * @param event published event
+         * @param partitions number of partitions
+         * @param target receives parts with partition index
+         */
+        void partition(T event, int partitions, ObjIntConsumer<T> target);
+
+        /**
+         * Creates partitioner delivering whole events by partition key hash.
+         *
+         * @param partitionKey key function
+         * @return partitioner
+         */
+        static <T> Partitioner<T> byKey(Function<? super T, ?> partitionKey) {
+            Objects.requireNonNull(partitionKey, "partitionKey");
+
+            return (event, partitions, target) -> target.accept(event,
+                                                                Math.floorMod(Objects.hashCode(partitionKey.apply(event)),
+                                                                              partitions));
+        }
+    }
+
+    /**
+     * Builder to build {@link EngineEventsBus}.
+     */
+    public static final class Builder<T> {
+
+        private Type type = Type.MULTICAST;
+        private int bufferSize = 1024;
+        private OverflowStrategy overflowStrategy = OverflowStrategy.BLOCK;
+        private Scheduler scheduler;
+        private Partitioner<T> partitioner;
+        private Consumer<? super T> retain;
+        private Consumer<? super T> release;
+
+        private Builder() {
+        }
+
+        public Builder<T> type(Type type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder<T> bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder<T> overflowStrategy(OverflowStrategy overflowStrategy) {
+            this.overflowStrategy = overflowStrategy;
+            return this;
+        }
+
+        public Builder<T> scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public Builder<T> partitionKey(Function<? super T, ?> partitionKey) {
+            this.partitioner = Partitioner.byKey(partitionKey);
+            return this;
+        }
+
+        public Builder<T> partitioner(Partitioner<T> partitioner) {
+            this.partitioner = partitioner;
+            return this;
+        }
+
+        /**
+         * Tracks references to published events, i.e. to acknowledge events once no subscriber needs them.
+         *
+         * @param retain invoked for every delivery queued for a subscriber
+         * @param release invoked for every delivery received by a subscriber or dropped, and for every published event
+         */
+        public Builder<T> references(Consumer<? super T> retain, Consumer<? super T> release) {
+            this.retain = retain;
+            this.release = release;
+            return this;
+        }
+
+        public EngineEventsBus<T> build() {
+            Objects.requireNonNull(scheduler, "scheduler");
+
+            EngineEventsBus<T> bus;
+
+            switch (type) {
+                case WORK_QUEUE:
+                    bus = new WorkQueueEngineEventsBus<>(bufferSize, overflowStrategy, scheduler);
+                    break;
+                case PARTITIONED:
+                    bus = new PartitionedEngineEventsBus<>(bufferSize, overflowStrategy, scheduler,
+                                                           Objects.requireNonNull(partitioner, "partitioner"));
+                    break;
+                case MULTICAST:
+                    bus = new MulticastEngineEventsBus<>(bufferSize, overflowStrategy, scheduler);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported bus type " + type + ", expected one of "
+                            + Arrays.toString(Type.values()));
+            }
+            bus.retain = retain;
+            bus.release = release;
+
+            return bus;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.bus;
+
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Delivers every published event to every subscriber, buffering up to bufferSize events per subscriber.
+ */
+public class MulticastEngineEventsBus<T> extends EngineEventsBus<T> {
+
+    public MulticastEngineEventsBus(int bufferSize, OverflowStrategy overflowStrategy, Scheduler scheduler) {
+        super(bufferSize, overflowStrategy, scheduler);
+    }
+
+    @Override
+    protected void publish(T event) {
+        for (BusSubscription subscription : subscriptions) {
+            offer(subscription.getQueue(), event, subscription::isCancelled);
+            subscription.signal();
+        }
+    }
+
+    @Override
+    protected BoundedQueue<T> createQueue() {
+        return new BoundedQueue<>(bufferSize);
+    }
+
+}
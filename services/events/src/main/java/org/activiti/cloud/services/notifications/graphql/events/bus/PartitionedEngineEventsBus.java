@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.bus;
+
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Delivers every part of a published event to one subscriber selected by the {@link Partitioner}, so that parts
+ * with the same partition key are received in order by the same subscriber as long as the subscribers do not change.
+ * Each subscriber buffers up to bufferSize events.
+ */
+public class PartitionedEngineEventsBus<T> extends EngineEventsBus<T> {
+
+    private final Partitioner<T> partitioner;
+
+    public PartitionedEngineEventsBus(int bufferSize,
+                                      OverflowStrategy overflowStrategy,
+                                      Scheduler scheduler,
+                                      Partitioner<T> partitioner) {
+        super(bufferSize, overflowStrategy, scheduler);
+
+        this.partitioner = partitioner;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void publish(T event) {
+        Object[] partitions = subscriptions.toArray();
+
+        if (partitions.length == 0) {
+            // accounted as a dropped delivery
+            retained(event);
+            dropped(event);
+            return;
+        }
+
+        partitioner.partition(event, partitions.length, (part, partition) -> {
+            BusSubscription subscription = (BusSubscription) partitions[partition];
+
+            offer(subscription.getQueue(), part, subscription::isCancelled);
+            subscription.signal();
+        });
+    }
+
+    @Override
+    protected BoundedQueue<T> createQueue() {
+        return new BoundedQueue<>(bufferSize);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Pending acknowledgment of a received message, shared by all bus messages created from it.
+ *
+ * Each bus message carries its own part of the acknowledgment in the {@link #HEADER} header. The received
+ * message is acknowledged once the handler has attached all parts and every part has been released
+ * by all subscribers it has been delivered to, see {@link #retain(Message)}.
+ */
+public class EngineEventsAcknowledgment {
+
+    public static final String HEADER = "engineEventsAcknowledgment";
+
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private final Runnable callback;
+
+    public EngineEventsAcknowledgment(Runnable callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Returns copy of the message carrying a new part of this acknowledgment.
+     */
+    public <T> Message<T> attach(Message<T> message) {
+        pending.incrementAndGet();
+
+        return MessageBuilder.fromMessage(message)
+                             .setHeader(HEADER, new Part())
+                             .build();
+    }
+
+    /**
+     * Signals that no more parts will be attached.
+     */
+    public void complete() {
+        release();
+    }
+
+    private void release() {
+        if (pending.decrementAndGet() == 0) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Returns acknowledgment of received message, or null if message is not acknowledged manually.
+     */
+    public static EngineEventsAcknowledgment get(Message<?> message) {
+        Object acknowledgment = message.getHeaders().get(HEADER);
+
+        return acknowledgment instanceof EngineEventsAcknowledgment ? (EngineEventsAcknowledgment) acknowledgment
+                                                                    : null;
+    }
+
+    /**
+     * Retains acknowledgment part carried by the bus message, if any, i.e. for every subscriber it is delivered to.
+     */
+    public static void retain(Message<?> message) {
+        Object part = message.getHeaders().get(HEADER);
+
+        if (part instanceof EngineEventsAcknowledgment.Part) {
+            ((EngineEventsAcknowledgment.Part) part).retain();
+        }
+    }
+
+    /**
+     * Releases acknowledgment part carried by the bus message, if any. The part is released once
+     * it has been released as many times as it has been retained, plus one for the handler which attached it.
+     */
+    public static void release(Message<?> message) {
+        Object part = message.getHeaders().get(HEADER);
+
+        if (part instanceof EngineEventsAcknowledgment.Part) {
+            ((EngineEventsAcknowledgment.Part) part).release();
+        }
+    }
+
+    private final class Part {
+
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                EngineEventsAcknowledgment.this.release();
+            }
+        }
+    }
+}
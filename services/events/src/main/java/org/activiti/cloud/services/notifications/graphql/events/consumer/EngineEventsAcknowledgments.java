@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.annotation.Gauge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Tracks manually acknowledged messages, limiting the number of received messages in flight.
+ *
+ * Acquiring acknowledgment blocks the binder thread while the window is full, so that the broker stops
+ * delivering messages once the consumer prefetch is exhausted.
+ */
+public class EngineEventsAcknowledgments {
+
+    private final EngineEventsAcknowledger acknowledger;
+
+    private final int window;
+
+    private final Semaphore permits;
+
+    private final AtomicLong acknowledged = new AtomicLong();
+
+    public EngineEventsAcknowledgments(EngineEventsAcknowledger acknowledger, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.acknowledger = acknowledger;
+        this.window = window;
+        this.permits = new Semaphore(window);
+    }
+
+    /**
+     * Waits for space in the window and returns copy of the message carrying its acknowledgment.
+     */
+    public <T> Message<T> acquire(Message<T> message) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException(message, "Interrupted waiting for engine events acknowledgment window", e);
+        }
+
+        EngineEventsAcknowledgment acknowledgment = new EngineEventsAcknowledgment(() -> acknowledge(message));
+
+        return MessageBuilder.fromMessage(message)
+                             .setHeader(EngineEventsAcknowledgment.HEADER, acknowledgment)
+                             .build();
+    }
+
+    private void acknowledge(Message<?> message) {
+        try {
+            acknowledger.acknowledge(message);
+        } finally {
+            acknowledged.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    @Gauge(name = "engineEventsInFlightCount", absolute = true)
+    public int inFlightCount() {
+        return window - permits.availablePermits();
+    }
+
+    @Gauge(name = "engineEventsAcknowledgedCount", absolute = true)
+    public long acknowledgedCount() {
+        return acknowledged.get();
+    }
+}
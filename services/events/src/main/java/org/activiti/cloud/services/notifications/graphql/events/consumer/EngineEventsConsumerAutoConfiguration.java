@@ -18,14 +18,22 @@ package org.activiti.cloud.services.notifications.graphql.events.consumer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
 import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus;
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsJsonReader;
 import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsTransformer;
 import org.activiti.cloud.services.notifications.graphql.events.transformer.Transformer;
 import org.reactivestreams.Subscriber;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -36,10 +44,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.annotation.PropertySources;
 import org.springframework.messaging.Message;
+import org.springframework.util.StringUtils;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
-import reactor.core.publisher.TopicProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Notification Gateway configuration that enables messaging channel bindings
@@ -57,13 +67,19 @@ import reactor.core.publisher.TopicProcessor;
 public class EngineEventsConsumerAutoConfiguration {
 
     @Configuration
-    public static class DefaultEngineEventsConsumerConfiguration {
+    public static class DefaultEngineEventsConsumerConfiguration implements DisposableBean {
 
         private final EngineEventsConsumerProperties properties;
 
+        private final Scheduler ingestionScheduler;
+
         @Autowired
         public DefaultEngineEventsConsumerConfiguration(EngineEventsConsumerProperties properties) {
+            int rails = properties.getIngestion().getRails();
+
             this.properties = properties;
+            this.ingestionScheduler = rails > 1 ? Schedulers.newParallel("engine-events-ingestion", rails, true)
+                                                : Schedulers.immediate();
         }
 
         @Bean
@@ -82,26 +98,102 @@ public class EngineEventsConsumerAutoConfiguration {
 
         @Bean
         @ConditionalOnMissingBean
+        @ConditionalOnClass(name = "com.rabbitmq.client.Channel")
+        @ConditionalOnProperty(name = "spring.activiti.cloud.services.notifications.graphql.events.acknowledgment.mode", havingValue = "MANUAL")
+        public EngineEventsAcknowledger engineEventsAcknowledger() {
+            return new RabbitEngineEventsAcknowledger();
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(name = "spring.activiti.cloud.services.notifications.graphql.events.acknowledgment.mode", havingValue = "MANUAL")
+        public EngineEventsAcknowledgments engineEventsAcknowledgments(ObjectProvider<EngineEventsAcknowledger> engineEventsAcknowledger) {
+            // the binder does not acknowledge messages in manual mode, so they would never be acknowledged at all
+            EngineEventsAcknowledger acknowledger = engineEventsAcknowledger.getIfAvailable(() -> {
+                throw new IllegalStateException("Manual engine events acknowledgment requires an EngineEventsAcknowledger bean, "
+                        + "i.e. RabbitMQ client on the classpath");
+            });
+
+            return new EngineEventsAcknowledgments(acknowledger,
+                                                   properties.getAcknowledgment().getWindow());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(name = "spring.activiti.cloud.services.notifications.graphql.events.streaming.enabled", havingValue = "false", matchIfMissing = true)
         public EngineEventsConsumerMessageHandler engineEventsMessageHandler(Transformer engineEventsTransformer,
-                                                                             FluxSink<Message<List<EngineEvent>>> engineEventsSink) {
-            return new EngineEventsConsumerMessageHandler(engineEventsTransformer, engineEventsSink);
+                                                                             FluxSink<Message<List<EngineEvent>>> engineEventsSink,
+                                                                             RoutingKeyResolver routingKeyResolver,
+                                                                             ObjectProvider<EngineEventsAcknowledgments> engineEventsAcknowledgments) {
+            return new EngineEventsConsumerMessageHandler(engineEventsTransformer,
+                                                          engineEventsSink,
+                                                          routingKeyResolver,
+                                                          properties.getIngestion().getRails(),
+                                                          ingestionScheduler)
+                    .setAcknowledgments(engineEventsAcknowledgments.getIfAvailable());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(name = "spring.activiti.cloud.services.notifications.graphql.events.streaming.enabled")
+        public EngineEventsStreamingConsumerMessageHandler engineEventsStreamingMessageHandler(ObjectProvider<ObjectMapper> objectMapper,
+                                                                                               FluxSink<Message<List<EngineEvent>>> engineEventsSink,
+                                                                                               RoutingKeyResolver routingKeyResolver,
+                                                                                               ObjectProvider<EngineEventsAcknowledgments> engineEventsAcknowledgments) {
+            EngineEventsJsonReader reader = new EngineEventsJsonReader(objectMapper.getIfAvailable(ObjectMapper::new),
+                                                                       Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                               .split(",")),
+                                                                       properties.getProcessEngineEventTypeKey(),
+                                                                       Arrays.asList(StringUtils.commaDelimitedListToStringArray(properties.getStreaming()
+                                                                                                                                           .getRawAttributeKeys())));
+
+            return new EngineEventsStreamingConsumerMessageHandler(reader,
+                                                                   engineEventsSink,
+                                                                   routingKeyResolver,
+                                                                   properties.getStreaming().getChunkSize())
+                    .setAcknowledgments(engineEventsAcknowledgments.getIfAvailable());
+        }
+
+        @Override
+        public void destroy() {
+            ingestionScheduler.dispose();
         }
 
     }
     
     @Configuration
-    public static class EngineEventsFluxProcessorConfiguration implements SmartLifecycle {
+    public static class EngineEventsFluxProcessorConfiguration implements SmartLifecycle, DisposableBean {
 
         private final List<Subscriber<Message<List<EngineEvent>>>> subscribers = new ArrayList<>();
+        private final boolean manualAcknowledgment;
+        private final int partitions;
         private boolean running;
 
-        private TopicProcessor<Message<List<EngineEvent>>> engineEventsProcessor = TopicProcessor.<Message<List<EngineEvent>>>builder()
-                                                                                                 .autoCancel(false)
-                                                                                                 .share(true)
-                                                                                                 .bufferSize(1024)
-                                                                                                 .build();
+        private final Scheduler engineEventsScheduler;
+
+        private final EngineEventsBus<Message<List<EngineEvent>>> engineEventsProcessor;
+
         @Autowired
-        public EngineEventsFluxProcessorConfiguration() {
+        public EngineEventsFluxProcessorConfiguration(EngineEventsConsumerProperties properties) {
+            EngineEventsConsumerProperties.Bus bus = properties.getBus();
+
+            this.manualAcknowledgment = properties.getAcknowledgment()
+                                                  .getMode() == EngineEventsConsumerProperties.AcknowledgeMode.MANUAL;
+
+            this.partitions = bus.getType() == EngineEventsBus.Type.PARTITIONED ? bus.getParallelism() : 1;
+
+            this.engineEventsScheduler = Schedulers.newParallel("engine-events-bus", bus.getParallelism(), true);
+            EngineEventsBus.Builder<Message<List<EngineEvent>>> builder = EngineEventsBus.<Message<List<EngineEvent>>> builder()
+                                                                                         .type(bus.getType())
+                                                                                         .bufferSize(bus.getBufferSize())
+                                                                                         .overflowStrategy(bus.getOverflowStrategy())
+                                                                                         .scheduler(engineEventsScheduler)
+                                                                                         .partitioner(new EngineEventsMessagePartitioner());
+            if (manualAcknowledgment) {
+                // acknowledge messages once handed to every subscriber, or dropped by the bus
+                builder.references(EngineEventsAcknowledgment::retain, EngineEventsAcknowledgment::release);
+            }
+            this.engineEventsProcessor = builder.build();
         }
 
         @Autowired(required = false)
@@ -109,11 +201,18 @@ public class EngineEventsConsumerAutoConfiguration {
             this.subscribers.addAll(subscribers);
         }
 
+        /*
+         * All subscribers of the flux share a single bus subscription, connected while there are subscribers.
+         * The flux is only available with the MULTICAST bus type, with WORK_QUEUE and PARTITIONED bus types
+         * its connection would compete for messages with subscriber beans and silently see part of the events,
+         * so that beans depending on it fail on startup instead.
+         */
         @Bean
         @ConditionalOnMissingBean
+        @ConditionalOnProperty(name = "spring.activiti.cloud.services.notifications.graphql.events.bus.type", havingValue = "MULTICAST", matchIfMissing = true)
         public Flux<Message<List<EngineEvent>>> engineEventsFlux() {
             return engineEventsProcessor.publish()
-                                        .autoConnect(0);
+                                        .refCount();
         }
 
         @Bean
@@ -122,12 +221,36 @@ public class EngineEventsConsumerAutoConfiguration {
             return engineEventsProcessor.sink();
         }
 
+        @Bean
+        @ConditionalOnMissingBean
+        public EngineEventsBus<Message<List<EngineEvent>>>.Stats engineEventsBusStats() {
+            return engineEventsProcessor.getStats();
+        }
+
         @Override
         public void start() {
-            subscribers.forEach(s -> engineEventsProcessor.subscribe(s));
+            subscribers.stream()
+                       .flatMap(this::partitions)
+                       .forEach(s -> engineEventsProcessor.subscribe(s));
+
+            if (manualAcknowledgment && subscribers.isEmpty()) {
+                // drain the bus, so that messages are acknowledged as soon as they are published
+                engineEventsProcessor.subscribe();
+            }
             running = true;
         }
 
+        // subscribes partitioned subscribers once for every partition of the bus
+        private Stream<Subscriber<Message<List<EngineEvent>>>> partitions(Subscriber<Message<List<EngineEvent>>> subscriber) {
+            if (partitions > 1 && subscriber instanceof EngineEventsPartitionedSubscriber) {
+                EngineEventsPartitionedSubscriber partitioned = (EngineEventsPartitionedSubscriber) subscriber;
+
+                return IntStream.range(0, partitions)
+                                .mapToObj(partition -> partitioned.partition());
+            }
+            return Stream.of(subscriber);
+        }
+
         @Override
         public void stop() {
             try {
@@ -141,6 +264,11 @@ public class EngineEventsConsumerAutoConfiguration {
         public boolean isRunning() {
             return running;
         }
+
+        @Override
+        public void destroy() {
+            engineEventsScheduler.dispose();
+        }
     }
     
 }
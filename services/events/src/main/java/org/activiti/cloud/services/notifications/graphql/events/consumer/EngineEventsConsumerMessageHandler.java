@@ -13,12 +13,16 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.activiti.cloud.services.notifications.graphql.events.consumer;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
 import org.activiti.cloud.services.notifications.graphql.events.transformer.Transformer;
 import org.slf4j.Logger;
@@ -26,22 +30,68 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cloud.stream.annotation.Input;
 import org.springframework.cloud.stream.annotation.StreamListener;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 public class EngineEventsConsumerMessageHandler {
 
     private static Logger logger = LoggerFactory.getLogger(EngineEventsConsumerMessageHandler.class);
 
+    private static final String PROCESS_INSTANCE_ID = "processInstanceId";
+
     private final FluxSink<Message<List<EngineEvent>>> processorSink;
     private final Transformer transformer;
+    private final RoutingKeyResolver routingKeyResolver;
+    private final int rails;
+    private final Scheduler scheduler;
+    private EngineEventsAcknowledgments acknowledgments;
     
     public EngineEventsConsumerMessageHandler(Transformer transformer,
                                       FluxSink<Message<List<EngineEvent>>> engineEventsSink)
     {
+        this(transformer, engineEventsSink, new SpELTemplateRoutingKeyResolver());
+    }
+
+    public EngineEventsConsumerMessageHandler(Transformer transformer,
+                                              FluxSink<Message<List<EngineEvent>>> engineEventsSink,
+                                              RoutingKeyResolver routingKeyResolver)
+    {
+        this(transformer, engineEventsSink, routingKeyResolver, 1, Schedulers.immediate());
+    }
+
+    /**
+     * Creates handler processing events on the given number of rails, partitioned by processInstanceId,
+     * so that events of the same process instance are published to the bus in order.
+     * Rails are merged before publishing, so that the sink is fed by one rail at a time.
+     */
+    public EngineEventsConsumerMessageHandler(Transformer transformer,
+                                              FluxSink<Message<List<EngineEvent>>> engineEventsSink,
+                                              RoutingKeyResolver routingKeyResolver,
+                                              int rails,
+                                              Scheduler scheduler)
+    {
+        if (rails < 1) {
+            throw new IllegalArgumentException("rails must be positive: " + rails);
+        }
         this.processorSink = engineEventsSink;
         this.transformer = transformer;
+        this.routingKeyResolver = routingKeyResolver;
+        this.rails = rails;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Enables manual acknowledgment of received messages once their events have been handed to subscribers.
+     *
+     * <p>By default this property is not set and messages are acknowledged by the binder.
+     */
+    public EngineEventsConsumerMessageHandler setAcknowledgments(EngineEventsAcknowledgments acknowledgments) {
+        this.acknowledgments = acknowledgments;
+        return this;
     }
 
     @StreamListener
@@ -49,20 +99,130 @@ public class EngineEventsConsumerMessageHandler {
                             Flux<Message<List<Map<String,Object>>>> input) {
         
         // Let's process and transform message from input stream
-        input.flatMapSequential(message -> {
-            List<Map<String, Object>> events = message.getPayload();
-            String routingKey = (String) message.getHeaders().get("routingKey");
-
-            logger.info("Recieved source message with routingKey: {}", routingKey);
-
-            return Flux.fromIterable(transformer.transform(events))
-                       .collectList()
-                       .map(list -> MessageBuilder.<List<EngineEvent>> createMessage(list,
-                                                                                     message.getHeaders()));
-        })
-        .doOnNext(processorSink::next)
-        .doOnError(error -> logger.error("Error handling message ", error))
-        .retry()
-        .subscribe();
+        Flux<Message<List<EngineEvent>>> messages = input.map(this::transform);
+
+        if (rails > 1) {
+            // routing keys are resolved on the rails, flatMap then emits one rail at a time into the sink,
+            // so that a blocking bus holds back the rails through their bounded flatMap queues
+            messages = messages.concatMapIterable(this::partition)
+                               .groupBy(this::rail)
+                               .flatMap(rail -> rail.publishOn(scheduler)
+                                                    .doOnNext(this::resolveRoutingKeys),
+                                        rails);
+        } else {
+            messages = messages.map(this::attachAcknowledgment)
+                               .doOnNext(this::resolveRoutingKeys);
+        }
+
+        messages.doOnNext(processorSink::next)
+                .doOnError(error -> logger.error("Error handling message ", error))
+                .retry()
+                .subscribe();
+    }
+
+    private Message<List<EngineEvent>> transform(Message<List<Map<String, Object>>> message) {
+        String routingKey = (String) message.getHeaders().get("routingKey");
+
+        logger.info("Recieved source message with routingKey: {}", routingKey);
+
+        if (acknowledgments != null) {
+            message = acknowledgments.acquire(message);
+        }
+
+        try {
+            return MessageBuilder.<List<EngineEvent>> createMessage(transformer.transform(message.getPayload()),
+                                                                    message.getHeaders());
+        } catch (RuntimeException e) {
+            completeAcknowledgment(message);
+            throw e;
+        }
+    }
+
+    private Message<List<EngineEvent>> attachAcknowledgment(Message<List<EngineEvent>> message) {
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+        if (acknowledgment == null) {
+            return message;
+        }
+
+        Message<List<EngineEvent>> part = acknowledgment.attach(message);
+        acknowledgment.complete();
+
+        return part;
+    }
+
+    private void completeAcknowledgment(Message<?> message) {
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+        if (acknowledgment != null) {
+            acknowledgment.complete();
+        }
+    }
+
+
+    // split message events by rail keeping their order within each rail
+    private List<Message<List<EngineEvent>>> partition(Message<List<EngineEvent>> message) {
+        List<EngineEvent> events = message.getPayload();
+
+        if (events.isEmpty()) {
+            completeAcknowledgment(message);
+            return Collections.emptyList();
+        }
+
+        List<List<EngineEvent>> partitions = new ArrayList<>(Collections.nCopies(rails, null));
+
+        for (EngineEvent event : events) {
+            int rail = rail(event);
+            List<EngineEvent> partition = partitions.get(rail);
+
+            if (partition == null) {
+                partition = new ArrayList<>();
+                partitions.set(rail, partition);
+            }
+            partition.add(event);
+        }
+
+        MessageHeaders headers = message.getHeaders();
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+        List<Message<List<EngineEvent>>> result = new ArrayList<>(rails);
+
+        for (List<EngineEvent> partition : partitions) {
+            if (partition != null) {
+                Message<List<EngineEvent>> part = MessageBuilder.createMessage(partition, headers);
+
+                result.add(acknowledgment != null ? acknowledgment.attach(part) : part);
+            }
+        }
+
+        if (acknowledgment != null) {
+            acknowledgment.complete();
+        }
+
+        return result;
+    }
+
+    private int rail(Message<List<EngineEvent>> message) {
+        return rail(message.getPayload().get(0));
+    }
+
+    private int rail(EngineEvent event) {
+        return Math.floorMod(Objects.hashCode(event.get(PROCESS_INSTANCE_ID)), rails);
+    }
+
+    private void resolveRoutingKeys(Message<List<EngineEvent>> message) {
+        try {
+            for (EngineEvent event : message.getPayload()) {
+                resolveRoutingKey(event);
+            }
+        } catch (RuntimeException e) {
+            // failed message is not redelivered, same as with binder acknowledgment
+            EngineEventsAcknowledgment.release(message);
+            throw e;
+        }
+    }
+
+    // resolve routing key once per event to share it between all subscriptions
+    private void resolveRoutingKey(EngineEvent event) {
+        event.setRoutingKey(routingKeyResolver.resolveRoutingKey(event));
     }
 }
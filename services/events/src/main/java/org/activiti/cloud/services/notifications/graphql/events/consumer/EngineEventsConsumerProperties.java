@@ -15,7 +15,12 @@
  */
 package org.activiti.cloud.services.notifications.graphql.events.consumer;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
@@ -41,6 +46,30 @@ public class EngineEventsConsumerProperties {
     @NotBlank
     private String processEngineEventTypeKey = "eventType";
 
+    /**
+     * Configures in-memory engine events bus between consumer and subscribers
+     */
+    @Valid
+    private Bus bus = new Bus();
+
+    /**
+     * Configures incremental decoding of engine events from raw message payload
+     */
+    @Valid
+    private Streaming streaming = new Streaming();
+
+    /**
+     * Configures processing of received engine events messages
+     */
+    @Valid
+    private Ingestion ingestion = new Ingestion();
+
+    /**
+     * Configures acknowledgment of received engine events messages
+     */
+    @Valid
+    private Acknowledgment acknowledgment = new Acknowledgment();
+
 
     public EngineEventsConsumerProperties() {
         // default constructor
@@ -69,4 +98,193 @@ public class EngineEventsConsumerProperties {
     public void setProcessEngineEventTypeKey(String processEngineEventTypeKey) {
         this.processEngineEventTypeKey = processEngineEventTypeKey;
     }
+
+    public Bus getBus() {
+        return bus;
+    }
+
+    public void setBus(Bus bus) {
+        this.bus = bus;
+    }
+
+    public Streaming getStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(Streaming streaming) {
+        this.streaming = streaming;
+    }
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public void setIngestion(Ingestion ingestion) {
+        this.ingestion = ingestion;
+    }
+
+    public Acknowledgment getAcknowledgment() {
+        return acknowledgment;
+    }
+
+    public void setAcknowledgment(Acknowledgment acknowledgment) {
+        this.acknowledgment = acknowledgment;
+    }
+
+    public static class Bus {
+
+        /**
+         * Bus type: MULTICAST, WORK_QUEUE or PARTITIONED, the shared engine events Flux bean requires MULTICAST
+         */
+        @NotNull
+        private EngineEventsBus.Type type = EngineEventsBus.Type.MULTICAST;
+
+        /**
+         * Maximum number of buffered messages per subscriber, or shared by all subscribers for WORK_QUEUE
+         */
+        @Min(1)
+        private int bufferSize = 1024;
+
+        /**
+         * Overflow strategy when buffer is full: BLOCK, DROP_OLDEST, DROP_LATEST or ERROR
+         */
+        @NotNull
+        private EngineEventsBus.OverflowStrategy overflowStrategy = EngineEventsBus.OverflowStrategy.BLOCK;
+
+        /**
+         * Number of threads used to deliver messages to subscribers
+         */
+        @Min(1)
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public EngineEventsBus.Type getType() {
+            return type;
+        }
+
+        public void setType(EngineEventsBus.Type type) {
+            this.type = type;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public EngineEventsBus.OverflowStrategy getOverflowStrategy() {
+            return overflowStrategy;
+        }
+
+        public void setOverflowStrategy(EngineEventsBus.OverflowStrategy overflowStrategy) {
+            this.overflowStrategy = overflowStrategy;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    public enum AcknowledgeMode {
+        /* Binder acknowledges message as soon as it is received */
+        AUTO,
+        /* Message is acknowledged once its events have been handed to all subscribers or dropped by the bus, requires RabbitMQ client */
+        MANUAL
+    }
+
+    public static class Acknowledgment {
+
+        /**
+         * Acknowledge mode: AUTO or MANUAL, also applied to the Rabbit binder consumer
+         */
+        @NotNull
+        private AcknowledgeMode mode = AcknowledgeMode.AUTO;
+
+        /**
+         * Maximum number of received messages waiting for acknowledgment in MANUAL mode
+         */
+        @Min(1)
+        private int window = 100;
+
+        public AcknowledgeMode getMode() {
+            return mode;
+        }
+
+        public void setMode(AcknowledgeMode mode) {
+            this.mode = mode;
+        }
+
+        public int getWindow() {
+            return window;
+        }
+
+        public void setWindow(int window) {
+            this.window = window;
+        }
+    }
+
+    public static class Ingestion {
+
+        /**
+         * Number of rails transforming received events in parallel, partitioned by processInstanceId
+         */
+        @Min(1)
+        private int rails = 1;
+
+        public int getRails() {
+            return rails;
+        }
+
+        public void setRails(int rails) {
+            this.rails = rails;
+        }
+    }
+
+    public static class Streaming {
+
+        /**
+         * Decode engine events one by one from raw message payload instead of converting whole message first
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of decoded events published to the bus as one message
+         */
+        @Min(1)
+        private int chunkSize = 100;
+
+        /**
+         * Event attributes kept as raw JSON and written through verbatim using comma separator
+         */
+        private String rawAttributeKeys = "entity";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public String getRawAttributeKeys() {
+            return rawAttributeKeys;
+        }
+
+        public void setRawAttributeKeys(String rawAttributeKeys) {
+            this.rawAttributeKeys = rawAttributeKeys;
+        }
+    }
 }
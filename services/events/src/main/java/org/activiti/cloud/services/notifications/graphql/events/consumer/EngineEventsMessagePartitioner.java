@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ObjIntConsumer;
+
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Splits engine events messages between bus partitions by processInstanceId of every event, so that all events
+ * of a process instance are delivered in order to the same partition.
+ *
+ * Messages with events of a single partition are delivered as is, other messages are split into one message
+ * per partition carrying the same headers.
+ */
+public class EngineEventsMessagePartitioner implements EngineEventsBus.Partitioner<Message<List<EngineEvent>>> {
+
+    private static final String PROCESS_INSTANCE_ID_KEY = "processInstanceId";
+
+    @Override
+    public void partition(Message<List<EngineEvent>> message,
+                          int partitions,
+                          ObjIntConsumer<Message<List<EngineEvent>>> target) {
+        List<List<EngineEvent>> parts = new ArrayList<>(Collections.nCopies(partitions, null));
+        int count = 0;
+        int last = 0;
+
+        for (EngineEvent event : message.getPayload()) {
+            last = partition(event, partitions);
+
+            List<EngineEvent> part = parts.get(last);
+
+            if (part == null) {
+                part = new ArrayList<>();
+                parts.set(last, part);
+                count++;
+            }
+            part.add(event);
+        }
+
+        if (count <= 1) {
+            target.accept(message, last);
+            return;
+        }
+
+        for (int partition = 0; partition < partitions; partition++) {
+            List<EngineEvent> part = parts.get(partition);
+
+            if (part != null) {
+                target.accept(MessageBuilder.createMessage(part, message.getHeaders()), partition);
+            }
+        }
+    }
+
+    protected int partition(EngineEvent event, int partitions) {
+        return Math.floorMod(Objects.hashCode(event.get(PROCESS_INSTANCE_ID_KEY)), partitions);
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.util.List;
+
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.reactivestreams.Subscriber;
+import org.springframework.messaging.Message;
+
+/**
+ * Subscriber able to consume several partitions of a {@link EngineEventsBus.Type#PARTITIONED} bus concurrently.
+ *
+ * Each partition is subscribed with its own subscriber, so that messages of different partitions are handled
+ * in parallel, while messages of the same partition are received in order.
+ */
+public interface EngineEventsPartitionedSubscriber {
+
+    /**
+     * Creates subscriber for one partition of the bus.
+     *
+     * @return partition subscriber
+     */
+    Subscriber<Message<List<EngineEvent>>> partition();
+
+}
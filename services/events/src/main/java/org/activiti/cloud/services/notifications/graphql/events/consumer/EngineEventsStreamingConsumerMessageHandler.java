@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.util.List;
+
+import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsJsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Consumes raw engine events message payloads and publishes decoded events in chunks
+ * while the rest of the message is still being parsed.
+ */
+public class EngineEventsStreamingConsumerMessageHandler {
+
+    private static Logger logger = LoggerFactory.getLogger(EngineEventsStreamingConsumerMessageHandler.class);
+
+    private final FluxSink<Message<List<EngineEvent>>> processorSink;
+    private final EngineEventsJsonReader reader;
+    private final RoutingKeyResolver routingKeyResolver;
+    private final int chunkSize;
+    private EngineEventsAcknowledgments acknowledgments;
+
+    public EngineEventsStreamingConsumerMessageHandler(EngineEventsJsonReader reader,
+                                                       FluxSink<Message<List<EngineEvent>>> engineEventsSink,
+                                                       RoutingKeyResolver routingKeyResolver,
+                                                       int chunkSize)
+    {
+        this.processorSink = engineEventsSink;
+        this.reader = reader;
+        this.routingKeyResolver = routingKeyResolver;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Enables manual acknowledgment of received messages once their events have been handed to subscribers.
+     *
+     * <p>By default this property is not set and messages are acknowledged by the binder.
+     */
+    public EngineEventsStreamingConsumerMessageHandler setAcknowledgments(EngineEventsAcknowledgments acknowledgments) {
+        this.acknowledgments = acknowledgments;
+        return this;
+    }
+
+    @StreamListener
+    public void receive(@Input(EngineEventsConsumerChannels.SOURCE) 
+                            Flux<Message<byte[]>> input) {
+
+        // acquire acknowledgment on the binder thread before messages are queued for decoding
+        input.map(message -> acknowledgments != null ? acknowledgments.acquire(message) : message)
+             .concatMap(this::read)
+             .doOnNext(processorSink::next)
+             .doOnError(error -> logger.error("Error handling message ", error))
+             .retry()
+             .subscribe();
+    }
+
+    private Flux<Message<List<EngineEvent>>> read(Message<byte[]> message) {
+        String routingKey = (String) message.getHeaders().get("routingKey");
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+        logger.info("Recieved source message with routingKey: {}", routingKey);
+
+        Flux<Message<List<EngineEvent>>> chunks = reader.read(message.getPayload())
+                                                        .doOnNext(this::resolveRoutingKey)
+                                                        .buffer(chunkSize)
+                                                        .map(events -> MessageBuilder.<List<EngineEvent>> createMessage(events,
+                                                                                                                        message.getHeaders()));
+
+        return acknowledgment == null ? chunks
+                                      : chunks.map(acknowledgment::attach)
+                                              .doFinally(signal -> acknowledgment.complete());
+    }
+
+    // resolve routing key once per event to share it between all subscriptions
+    private void resolveRoutingKey(EngineEvent event) {
+        event.setRoutingKey(routingKeyResolver.resolveRoutingKey(event));
+    }
+}
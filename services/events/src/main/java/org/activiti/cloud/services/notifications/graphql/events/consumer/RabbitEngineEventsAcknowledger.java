@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import java.io.IOException;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * Acknowledges message delivery tag on the Rabbit channel it was received from.
+ */
+public class RabbitEngineEventsAcknowledger implements EngineEventsAcknowledger {
+
+    private static Logger logger = LoggerFactory.getLogger(RabbitEngineEventsAcknowledger.class);
+
+    @Override
+    public void acknowledge(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        Channel channel = headers.get(AmqpHeaders.CHANNEL, Channel.class);
+        Long deliveryTag = headers.get(AmqpHeaders.DELIVERY_TAG, Long.class);
+
+        if (channel == null || deliveryTag == null) {
+            logger.warn("Cannot acknowledge message without channel and delivery tag headers: {}", headers);
+            return;
+        }
+
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException e) {
+            logger.error("Error acknowledging message with delivery tag " + deliveryTag, e);
+        }
+    }
+
+}
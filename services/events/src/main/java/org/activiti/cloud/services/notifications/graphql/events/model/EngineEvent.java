@@ -15,29 +15,146 @@
  */
 package org.activiti.cloud.services.notifications.graphql.events.model;
 
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKey;
+import org.springframework.util.StringUtils;
 
 @SpELTemplateRoutingKey("engineEvents.#{['serviceName']?:'_'}.#{['appName']?:'_'}.#{['eventType']?:'_'}.#{['processDefinitionKey']?:'_'}.#{['processInstanceId']?:'_'}.#{['businessKey']?:'_'}")
-public class EngineEvent extends LinkedHashMap<String, Object>{
+public class EngineEvent extends AbstractMap<String, Object> implements Serializable {
 
     /**
      * serialVersionUID
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Event attributes, either owned by this event or the decoded message map it was wrapped around
+     */
+    private final Map<String, Object> attributes;
+
+    /**
+     * Routing key resolved once at ingestion, shared by all subscription predicates
+     */
+    private transient volatile String routingKey;
+
+    private transient volatile String[] routingKeySegments;
+
     public EngineEvent() {
-        super();
+        this(LinkedHashMap::new);
     }
 
     public EngineEvent(Map<? extends String, ? extends Object> m) {
-        super(m);
+        this(() -> new LinkedHashMap<>(m));
     }
-    
+
+    private EngineEvent(Supplier<Map<String, Object>> attributes) {
+        this.attributes = attributes.get();
+    }
+
+    /**
+     * Returns event backed by the given map without copying its entries, so that changes
+     * to either of them are visible in both. The map is returned as is if it is already an event.
+     */
+    public static EngineEvent wrap(Map<String, Object> attributes) {
+        if (attributes instanceof EngineEvent) {
+            return (EngineEvent) attributes;
+        }
+
+        return new EngineEvent(() -> attributes);
+    }
+
     public String getEventType() {
         return get("eventType").toString();
     }
 
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public void setRoutingKey(String routingKey) {
+        this.routingKeySegments = null;
+        this.routingKey = routingKey;
+    }
+
+    /**
+     * Returns routing key split into '.' delimited segments, or null if routing key has not been resolved.
+     */
+    public String[] getRoutingKeySegments() {
+        String[] segments = routingKeySegments;
+
+        if (segments == null && routingKey != null) {
+            segments = StringUtils.tokenizeToStringArray(routingKey, ".", false, true);
+            routingKeySegments = segments;
+        }
+
+        return segments;
+    }
+
+    @Override
+    public int size() {
+        return attributes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return attributes.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return attributes.containsValue(value);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return attributes.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return attributes.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return attributes.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        attributes.putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        attributes.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return attributes.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return attributes.values();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return attributes.entrySet();
+    }
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.transformer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.model.RawJsonValue;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * Reads JSON array of engine events from raw message payload one event at a time, so that events
+ * start flowing before the whole batch is parsed. Events without eventType value are skipped,
+ * and known attribute keys are shared between all decoded events.
+ * 
+ * Object and array values of raw attributes, i.e. entity, are not decoded but sliced from the payload
+ * as {@link RawJsonValue}, so that they can be written through verbatim if selected by subscriptions.
+ */
+public class EngineEventsJsonReader {
+
+    private final ObjectMapper objectMapper;
+    private final String eventTypeKey;
+    private final Map<String, String> knownKeys = new HashMap<>();
+    private final Set<String> rawAttributeKeys;
+
+    public EngineEventsJsonReader(ObjectMapper objectMapper, List<String> attributeList, String eventTypeKey) {
+        this(objectMapper, attributeList, eventTypeKey, Collections.emptyList());
+    }
+
+    public EngineEventsJsonReader(ObjectMapper objectMapper,
+                                  List<String> attributeList,
+                                  String eventTypeKey,
+                                  List<String> rawAttributeList) {
+        this.objectMapper = objectMapper;
+        this.eventTypeKey = eventTypeKey;
+        this.rawAttributeKeys = new HashSet<>(rawAttributeList);
+
+        attributeList.forEach(key -> knownKeys.put(key, key));
+        knownKeys.put(eventTypeKey, eventTypeKey);
+        rawAttributeList.forEach(key -> knownKeys.put(key, key));
+    }
+
+    public Flux<EngineEvent> read(byte[] payload) {
+        return Flux.generate(() -> open(payload),
+                             (parser, sink) -> next(parser, payload, sink),
+                             this::close);
+    }
+
+    private JsonParser open(byte[] payload) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(payload);
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new JsonParseException(parser, "Expected array of engine events");
+        }
+
+        return parser;
+    }
+
+    private JsonParser next(JsonParser parser, byte[] payload, SynchronousSink<EngineEvent> sink) {
+        try {
+            JsonToken token;
+
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                EngineEvent event = readEvent(parser, payload);
+
+                if (event != null) {
+                    sink.next(event);
+                    return parser;
+                }
+            }
+
+            if (token != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "Expected engine event object, but was " + token);
+            }
+
+            sink.complete();
+        } catch (IOException e) {
+            sink.error(e);
+        }
+
+        return parser;
+    }
+
+    private EngineEvent readEvent(JsonParser parser, byte[] payload) throws IOException {
+        EngineEvent event = new EngineEvent();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = knownKeys.getOrDefault(parser.getCurrentName(), parser.getCurrentName());
+
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.VALUE_NULL && eventTypeKey.equals(key)) {
+                // invalid event, skip remaining attributes without decoding them
+                skipEvent(parser);
+                return null;
+            }
+
+            if (token.isStructStart() && rawAttributeKeys.contains(key)) {
+                event.put(key, readRawValue(parser, payload));
+            } else {
+                event.put(key, objectMapper.readValue(parser, Object.class));
+            }
+        }
+
+        return event.get(eventTypeKey) != null ? event : null;
+    }
+
+    private RawJsonValue readRawValue(JsonParser parser, byte[] payload) throws IOException {
+        int start = (int) parser.getTokenLocation().getByteOffset();
+
+        parser.skipChildren();
+
+        int end = (int) parser.getTokenLocation().getByteOffset() + 1;
+
+        return new RawJsonValue(Arrays.copyOfRange(payload, start, end));
+    }
+
+    private void skipEvent(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private void close(JsonParser parser) {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // nothing to release for byte array input
+        }
+    }
+}
@@ -15,9 +15,9 @@
  */
 package org.activiti.cloud.services.notifications.graphql.events.transformer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
 
@@ -36,10 +36,16 @@ public class EngineEventsTransformer implements Transformer {
 
     @Override
     public List<EngineEvent> transform(List<Map<String,Object>> events) {
-        return events.stream()
-                .filter(this::isValid)
-                .map(it -> new EngineEvent(it))
-                .collect(Collectors.toList());
+        List<EngineEvent> result = new ArrayList<>(events.size());
+
+        // wrap decoded maps in place instead of copying their entries
+        for (Map<String, Object> event : events) {
+            if (isValid(event)) {
+                result.add(EngineEvent.wrap(event));
+            }
+        }
+
+        return result;
     }
 
     private boolean isValid(Map<String, Object> event) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.activiti.cloud.services.notifications.graphql.events.consumer.EngineEventsConsumerProperties;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.model.RawJsonValue;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsJsonReader;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+
+public class EngineEventsJsonReaderTest {
+
+    private EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+
+    private List<String> attributeKeys = Arrays.asList(properties.getProcessEngineEventAttributeKeys().split(","));
+
+    private EngineEventsJsonReader subject;
+
+    @Before
+    public void setUp() {
+        subject = new EngineEventsJsonReader(new ObjectMapper(),
+                                             attributeKeys,
+                                             properties.getProcessEngineEventTypeKey());
+    }
+
+    @Test
+    public void readSkipsEventsWithoutEventType() {
+        // given
+        String json = "["
+                + "{\"eventType\":\"PROCESS_STARTED\",\"processInstanceId\":\"p1\",\"timestamp\":1545701139583,"
+                + "\"entity\":{\"id\":\"p1\",\"processDefinitionVersion\":1}},"
+                + "{\"eventType\":null,\"processInstanceId\":\"p2\",\"entity\":{\"id\":\"p2\"}},"
+                + "{\"processInstanceId\":\"p3\"},"
+                + "{\"processInstanceId\":\"p4\",\"eventType\":\"TASK_CREATED\",\"entity\":[1,2]}"
+                + "]";
+
+        // when
+        List<EngineEvent> events = subject.read(json.getBytes(StandardCharsets.UTF_8))
+                                          .collectList()
+                                          .block();
+
+        // then
+        assertThat(events).extracting(EngineEvent::getEventType)
+                          .containsExactly("PROCESS_STARTED", "TASK_CREATED");
+        assertThat(events.get(0)).containsEntry("timestamp", 1545701139583L);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> entity = (Map<String, Object>) events.get(0).get("entity");
+
+        assertThat(entity).containsEntry("id", "p1")
+                          .containsEntry("processDefinitionVersion", 1);
+        assertThat(events.get(1).get("entity")).isEqualTo(Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void readSharesKnownAttributeKeys() {
+        // given
+        String json = "[{\"eventType\":\"PROCESS_STARTED\",\"processInstanceId\":\"p1\"}]";
+
+        // when
+        EngineEvent event = subject.read(json.getBytes(StandardCharsets.UTF_8))
+                                   .blockFirst();
+
+        // then
+        String processInstanceIdKey = attributeKeys.get(attributeKeys.indexOf("processInstanceId"));
+
+        assertThat(event.keySet()).anySatisfy(key -> assertThat(key).isSameAs(processInstanceIdKey));
+    }
+
+    @Test
+    public void readKeepsRawAttributesUndecoded() throws JsonProcessingException {
+        // given
+        subject = new EngineEventsJsonReader(new ObjectMapper(),
+                                             attributeKeys,
+                                             properties.getProcessEngineEventTypeKey(),
+                                             Collections.singletonList("entity"));
+
+        String entity = "{\"id\" : \"t1\", \"variables\":[{\"name\":\"age\",\"value\":25}]}";
+        String json = "[{\"eventType\":\"TASK_CREATED\",\"entity\":" + entity + ",\"entityId\":\"t1\"},"
+                + "{\"eventType\":\"TASK_ASSIGNED\",\"entity\":\"t2\"}]";
+
+        // when
+        List<EngineEvent> events = subject.read(json.getBytes(StandardCharsets.UTF_8))
+                                          .collectList()
+                                          .block();
+
+        // then
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).get("entity")).isInstanceOf(RawJsonValue.class)
+                                               .hasToString(entity);
+        assertThat(events.get(0)).containsEntry("entityId", "t1");
+        assertThat(events.get(1)).containsEntry("entity", "t2");
+
+        assertThat(new ObjectMapper().writeValueAsString(events.get(0))).isEqualTo("{\"eventType\":\"TASK_CREATED\",\"entity\":" 
+                + entity + ",\"entityId\":\"t1\"}");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> decoded = (Map<String, Object>) ((RawJsonValue) events.get(0).get("entity")).getValue();
+
+        assertThat(decoded).containsEntry("id", "t1")
+                           .containsKey("variables");
+    }
+
+    @Test
+    public void readEmitsEventsBeforeWholePayloadIsParsed() {
+        // given
+        String json = "[{\"eventType\":\"PROCESS_STARTED\",\"processInstanceId\":\"p1\"},{\"eventType\":";
+
+        // when
+        List<EngineEvent> events = subject.read(json.getBytes(StandardCharsets.UTF_8))
+                                          .onErrorResume(error -> Flux.empty())
+                                          .collectList()
+                                          .block();
+
+        // then
+        assertThat(events).extracting(EngineEvent::getEventType)
+                          .containsExactly("PROCESS_STARTED");
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.activiti.cloud.services.notifications.graphql.events.consumer.EngineEventsConsumerProperties;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares copying each decoded event map into {@link EngineEvent} with wrapping it in place
+ * by {@link EngineEventsTransformer}. Bytes allocated per batch are reported by the GC profiler
+ * as <code>gc.alloc.rate.norm</code>.
+ * 
+ * Run with main method from IDE or test classpath, i.e.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.activiti.cloud.services.notifications.graphql.events.EngineEventsTransformerBenchmark 
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineEventsTransformerBenchmark {
+
+    @Param({"1000"})
+    private int batchSize;
+
+    private List<Map<String, Object>> events;
+
+    private EngineEventsTransformer transformer;
+
+    private String eventTypeKey;
+
+    @Setup
+    public void setUp() {
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+
+        eventTypeKey = properties.getProcessEngineEventTypeKey();
+        transformer = new EngineEventsTransformer(Arrays.asList(properties.getProcessEngineEventAttributeKeys().split(",")),
+                                                  eventTypeKey);
+
+        events = IntStream.range(0, batchSize)
+                          .mapToObj(this::event)
+                          .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<EngineEvent> copyingTransform() {
+        // previous transformer implementation
+        return events.stream()
+                     .filter(it -> it.get(eventTypeKey) != null)
+                     .map(it -> new EngineEvent(it))
+                     .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<EngineEvent> wrappingTransform() {
+        return transformer.transform(events);
+    }
+
+    private Map<String, Object> event(int i) {
+        Map<String, Object> event = new LinkedHashMap<>();
+
+        event.put("serviceName", "rb");
+        event.put("appName", "app");
+        event.put("eventType", i % 2 == 0 ? "PROCESS_STARTED" : "TASK_CREATED");
+        event.put("processDefinitionKey", "pd1");
+        event.put("processInstanceId", "p" + i);
+        event.put("businessKey", "bk" + i);
+        event.put("entityId", "e" + i);
+        event.put("timestamp", System.currentTimeMillis());
+
+        return event;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EngineEventsTransformerBenchmark.class.getSimpleName())
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
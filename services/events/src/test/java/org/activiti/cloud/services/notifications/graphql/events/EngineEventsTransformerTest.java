@@ -20,6 +20,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -274,6 +275,27 @@ public class EngineEventsTransformerTest {
         
     }
     
+    @Test
+    public void transformWrapsDecodedEventsWithoutCopying() {
+        // given
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        decoded.put("eventType", "type1");
+        decoded.put("entityId", "e1");
+
+        EngineEvent engineEvent = new EngineEvent();
+        engineEvent.put("eventType", "type2");
+
+        // when
+        List<EngineEvent> notifications = subject.transform(Arrays.asList(decoded, engineEvent));
+        decoded.put("serviceName", "rb");
+
+        // then
+        assertThat(notifications).hasSize(2);
+        assertThat(notifications.get(0)).isEqualTo(decoded)
+                                        .containsEntry("serviceName", "rb");
+        assertThat(notifications.get(1)).isSameAs(engineEvent);
+    }
+
     @Test
     public void testJson() throws JsonParseException, JsonMappingException, IOException {
     	// given
@@ -16,6 +16,7 @@
 package org.activiti.cloud.services.notifications.graphql.events;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
 import org.junit.Test;
@@ -42,4 +43,35 @@ public class SpELRoutingKeyTest {
 
     }
 
+    @Test
+    public void testRoutingKeyRepeatedResolution() {
+        RoutingKeyResolver routingKeyResolver = new SpELTemplateRoutingKeyResolver();
+
+        // resolve past SpEL compilation threshold to exercise compiled expression
+        for (int i = 0; i < 500; i++) {
+            EngineEvent notification = new EngineEvent();
+
+            notification.put("serviceName", "my-rb");
+            notification.put("appName","app");
+            notification.put("eventType", "PROCESS_STARTED");
+            notification.put("processDefinitionKey", "Simple");
+            notification.put("processInstanceId", i % 2 == 0 ? i : String.valueOf(i));
+
+            String routingKey = routingKeyResolver.resolveRoutingKey(notification);
+
+            assertThat(routingKey).isEqualTo("engineEvents.my-rb.app.PROCESS_STARTED.Simple." + i + "._");
+        }
+
+        assertThat(routingKeyResolver.resolveRoutingKey(new EngineEvent())).isEqualTo("engineEvents._._._._._._");
+    }
+
+    @Test
+    public void testRoutingKeyUnsupportedClass() {
+        RoutingKeyResolver routingKeyResolver = new SpELTemplateRoutingKeyResolver();
+
+        assertThatThrownBy(() -> routingKeyResolver.resolveRoutingKey(new Object()))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("Cannot resolve routing key");
+    }
+
 }
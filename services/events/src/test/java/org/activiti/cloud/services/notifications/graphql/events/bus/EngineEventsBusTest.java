@@ -0,0 +1,357 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.bus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus.OverflowStrategy;
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus.Type;
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class EngineEventsBusTest {
+
+    private final Scheduler scheduler = Schedulers.newParallel("engine-events-bus-test", 2, true);
+
+    @After
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void testMulticastDeliversAllEventsToAllSubscribers() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.MULTICAST, 16, OverflowStrategy.BLOCK);
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(first);
+        bus.subscribe(second);
+
+        // when
+        FluxSink<Integer> sink = bus.sink();
+        for (int i = 0; i < 1000; i++) {
+            sink.next(i);
+        }
+        sink.complete();
+
+        // then
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+        assertThat(first.values).hasSize(1000).isSorted();
+        assertThat(second.values).containsExactlyElementsOf(first.values);
+        assertThat(bus.getStats().droppedCount()).isEqualTo(0);
+        assertThat(bus.getStats().publishedCount()).isEqualTo(1000);
+        assertThat(bus.getStats().subscriberCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDropLatestKeepsBufferedEvents() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.MULTICAST, 4, OverflowStrategy.DROP_LATEST);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        bus.subscribe(subscriber);
+
+        // when
+        publish(bus, 10);
+
+        // then
+        assertThat(bus.getStats().droppedCount()).isEqualTo(6);
+        assertThat(bus.getStats().bufferFill()).isEqualTo(4);
+        assertThat(bus.getStats().subscriberLag()).isEqualTo(4);
+
+        // when
+        subscriber.request(Long.MAX_VALUE);
+        bus.onComplete();
+
+        // then
+        assertThat(subscriber.await()).isTrue();
+        assertThat(subscriber.values).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void testDropOldestKeepsLatestEvents() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.MULTICAST, 4, OverflowStrategy.DROP_OLDEST);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        bus.subscribe(subscriber);
+
+        // when
+        publish(bus, 10);
+        subscriber.request(Long.MAX_VALUE);
+        bus.onComplete();
+
+        // then
+        assertThat(subscriber.await()).isTrue();
+        assertThat(subscriber.values).containsExactly(6, 7, 8, 9);
+        assertThat(bus.getStats().droppedCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void testErrorDropsOverflowWithoutTerminatingSlowSubscriber() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.MULTICAST, 4, OverflowStrategy.ERROR);
+        TestSubscriber slow = new TestSubscriber(0);
+        TestSubscriber fast = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(slow);
+        bus.subscribe(fast);
+
+        // when
+        publish(bus, 4);
+        while (fast.values.size() < 4) {
+            Thread.sleep(10);
+        }
+        bus.onNext(4);
+
+        // then
+        assertThat(bus.getStats().droppedCount()).isEqualTo(1);
+        assertThat(bus.getStats().subscriberCount()).isEqualTo(2);
+
+        // when
+        slow.request(Long.MAX_VALUE);
+        bus.onComplete();
+
+        // then
+        assertThat(slow.await()).isTrue();
+        assertThat(slow.error.get()).isNull();
+        assertThat(slow.values).containsExactly(0, 1, 2, 3);
+        assertThat(fast.await()).isTrue();
+        assertThat(fast.error.get()).isNull();
+        assertThat(fast.values).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void testDropLatestReleasesReferencesOfDroppedEvents() throws InterruptedException {
+        // given
+        Map<Integer, AtomicInteger> references = new ConcurrentHashMap<>();
+        EngineEventsBus<Integer> bus = EngineEventsBus.<Integer> builder()
+                                                      .bufferSize(4)
+                                                      .overflowStrategy(OverflowStrategy.DROP_LATEST)
+                                                      .scheduler(scheduler)
+                                                      .references(event -> references.get(event).incrementAndGet(),
+                                                                  event -> references.get(event).decrementAndGet())
+                                                      .build();
+        TestSubscriber slow = new TestSubscriber(0);
+        TestSubscriber fast = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(slow);
+        bus.subscribe(fast);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            references.put(i, new AtomicInteger(1));
+            bus.onNext(i);
+
+            while (!fast.values.contains(i)) {
+                Thread.sleep(1);
+            }
+        }
+        // fast subscriber releases its deliveries in order
+        while (references.get(9).get() > 0) {
+            Thread.sleep(10);
+        }
+
+        // then
+        assertThat(bus.getStats().droppedCount()).isEqualTo(6);
+        for (int i = 0; i < 10; i++) {
+            assertThat(references.get(i)).as("references of %s", i).hasValue(i < 4 ? 1 : 0);
+        }
+
+        // when
+        slow.cancel();
+        while (references.values().stream().anyMatch(count -> count.get() > 0)) {
+            Thread.sleep(10);
+        }
+
+        // then
+        assertThat(slow.values).isEmpty();
+        assertThat(references.values()).allSatisfy(count -> assertThat(count).hasValue(0));
+    }
+
+    @Test
+    public void testBlockWaitsForSlowSubscriber() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.MULTICAST, 2, OverflowStrategy.BLOCK);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        bus.subscribe(subscriber);
+
+        Thread publisher = new Thread(() -> {
+            publish(bus, 10);
+            bus.onComplete();
+        });
+
+        // when
+        publisher.start();
+        publisher.join(200);
+
+        // then
+        assertThat(publisher.isAlive()).isTrue();
+        assertThat(bus.getStats().subscriberLag()).isEqualTo(2);
+
+        // when
+        subscriber.request(Long.MAX_VALUE);
+
+        // then
+        assertThat(subscriber.await()).isTrue();
+        assertThat(subscriber.values).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(bus.getStats().droppedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testWorkQueueDeliversEachEventOnce() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = bus(Type.WORK_QUEUE, 16, OverflowStrategy.BLOCK);
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(first);
+        bus.subscribe(second);
+
+        // when
+        publish(bus, 1000);
+        bus.onComplete();
+
+        // then
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+
+        List<Integer> all = new CopyOnWriteArrayList<>(first.values);
+        all.addAll(second.values);
+
+        assertThat(all).hasSize(1000).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void testPartitionedDeliversSameKeyToSameSubscriberInOrder() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = EngineEventsBus.<Integer> builder()
+                                                      .type(Type.PARTITIONED)
+                                                      .bufferSize(16)
+                                                      .scheduler(scheduler)
+                                                      .partitionKey(value -> value % 2)
+                                                      .build();
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(first);
+        bus.subscribe(second);
+
+        // when
+        publish(bus, 100);
+        bus.onComplete();
+
+        // then
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+
+        assertThat(first.values).hasSize(50).isSorted().allMatch(value -> value % 2 == first.values.get(0) % 2);
+        assertThat(second.values).hasSize(50).isSorted().allMatch(value -> value % 2 != first.values.get(0) % 2);
+    }
+
+    @Test
+    public void testPartitionedDeliversEveryPartOfSplitEvent() throws InterruptedException {
+        // given
+        EngineEventsBus<Integer> bus = EngineEventsBus.<Integer> builder()
+                                                      .type(Type.PARTITIONED)
+                                                      .bufferSize(16)
+                                                      .scheduler(scheduler)
+                                                      .partitioner((value, partitions, target) -> {
+                                                          for (int partition = 0; partition < partitions; partition++) {
+                                                              target.accept(value * 10 + partition, partition);
+                                                          }
+                                                      })
+                                                      .build();
+        TestSubscriber first = new TestSubscriber(Long.MAX_VALUE);
+        TestSubscriber second = new TestSubscriber(Long.MAX_VALUE);
+        bus.subscribe(first);
+        bus.subscribe(second);
+
+        // when
+        publish(bus, 3);
+        bus.onComplete();
+
+        // then
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+
+        assertThat(first.values).containsExactly(0, 10, 20);
+        assertThat(second.values).containsExactly(1, 11, 21);
+    }
+
+    private EngineEventsBus<Integer> bus(Type type, int bufferSize, OverflowStrategy overflowStrategy) {
+        return EngineEventsBus.<Integer> builder()
+                              .type(type)
+                              .bufferSize(bufferSize)
+                              .overflowStrategy(overflowStrategy)
+                              .scheduler(scheduler)
+                              .build();
+    }
+
+    private void publish(EngineEventsBus<Integer> bus, int count) {
+        for (int i = 0; i < count; i++) {
+            bus.onNext(i);
+        }
+    }
+
+    static class TestSubscriber extends BaseSubscriber<Integer> {
+
+        final List<Integer> values = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final long initialRequest;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        protected void hookOnNext(Integer value) {
+            values.add(value);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        protected void hookFinally(SignalType type) {
+            terminated.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return terminated.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
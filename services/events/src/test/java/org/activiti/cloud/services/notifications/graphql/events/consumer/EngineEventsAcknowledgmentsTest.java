@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus;
+import org.activiti.cloud.services.notifications.graphql.events.bus.EngineEventsBus.OverflowStrategy;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsTransformer;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ReplayProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class EngineEventsAcknowledgmentsTest {
+
+    private List<Object> acknowledged = new CopyOnWriteArrayList<>();
+
+    private EngineEventsAcknowledgments subject = new EngineEventsAcknowledgments(message -> acknowledged.add(message.getPayload()),
+                                                                                 1);
+
+    @Test
+    public void testAcknowledgeOnceAllPartsAreReleased() {
+        // given
+        Message<String> message = subject.acquire(MessageBuilder.withPayload("m1").build());
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+        Message<String> part1 = acknowledgment.attach(message);
+        Message<String> part2 = acknowledgment.attach(message);
+        acknowledgment.complete();
+
+        // when
+        EngineEventsAcknowledgment.release(part1);
+
+        // then
+        assertThat(acknowledged).isEmpty();
+        assertThat(subject.inFlightCount()).isEqualTo(1);
+
+        // when
+        EngineEventsAcknowledgment.release(part2);
+
+        // then
+        assertThat(acknowledged).containsExactly("m1");
+        assertThat(subject.inFlightCount()).isEqualTo(0);
+        assertThat(subject.acknowledgedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAcknowledgeOnceRetainedPartIsReleasedByAllSubscribers() {
+        // given
+        Message<String> message = subject.acquire(MessageBuilder.withPayload("m1").build());
+        EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+        Message<String> part = acknowledgment.attach(message);
+        acknowledgment.complete();
+
+        // when
+        EngineEventsAcknowledgment.retain(part);
+        EngineEventsAcknowledgment.retain(part);
+        EngineEventsAcknowledgment.release(part);
+        EngineEventsAcknowledgment.release(part);
+
+        // then
+        assertThat(acknowledged).isEmpty();
+
+        // when
+        EngineEventsAcknowledgment.release(part);
+
+        // then
+        assertThat(acknowledged).containsExactly("m1");
+    }
+
+    @Test
+    public void testBusAcknowledgesDroppedMessages() throws Exception {
+        // given
+        EngineEventsAcknowledgments acknowledgments = new EngineEventsAcknowledgments(message -> acknowledged.add(message.getPayload()),
+                                                                                      3);
+        Scheduler scheduler = Schedulers.newParallel("test-bus", 2);
+        EngineEventsBus<Message<String>> bus = EngineEventsBus.<Message<String>> builder()
+                                                              .bufferSize(1)
+                                                              .overflowStrategy(OverflowStrategy.DROP_LATEST)
+                                                              .scheduler(scheduler)
+                                                              .references(EngineEventsAcknowledgment::retain,
+                                                                          EngineEventsAcknowledgment::release)
+                                                              .build();
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Subscription> slow = new AtomicReference<>();
+        bus.subscribe(message -> received.add(message.getPayload()));
+        bus.subscribe(null, null, null, slow::set);
+
+        try {
+            // when
+            for (String payload : Arrays.asList("m1", "m2", "m3")) {
+                Message<String> message = acknowledgments.acquire(MessageBuilder.withPayload(payload).build());
+                EngineEventsAcknowledgment acknowledgment = EngineEventsAcknowledgment.get(message);
+
+                Message<String> part = acknowledgment.attach(message);
+                acknowledgment.complete();
+                bus.onNext(part);
+
+                while (!received.contains(payload)) {
+                    Thread.sleep(10);
+                }
+            }
+
+            // then
+            assertThat(acknowledged).containsExactly("m2", "m3");
+            assertThat(acknowledgments.inFlightCount()).isEqualTo(1);
+
+            // when
+            slow.get().cancel();
+            while (acknowledgments.inFlightCount() > 0) {
+                Thread.sleep(10);
+            }
+
+            // then
+            assertThat(acknowledged).containsExactly("m2", "m3", "m1");
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    public void testAcquireWaitsForWindow() throws Exception {
+        // given
+        Message<String> first = subject.acquire(MessageBuilder.withPayload("m1").build());
+
+        // when
+        CompletableFuture<Message<String>> second = CompletableFuture.supplyAsync(() -> subject.acquire(MessageBuilder.withPayload("m2")
+                                                                                                                     .build()));
+        // then
+        try {
+            second.get(100, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // expected
+        }
+        assertThat(second).isNotDone();
+
+        // when
+        EngineEventsAcknowledgment.get(first).complete();
+
+        // then
+        assertThat(second.get(1, TimeUnit.SECONDS).getPayload()).isEqualTo("m2");
+        assertThat(acknowledged).containsExactly("m1");
+    }
+
+    @Test
+    public void testHandlerAcknowledgesAfterSubscriberReceivedAllRails() {
+        // given
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+        Scheduler scheduler = Schedulers.newParallel("test-ingestion", 2);
+        ReplayProcessor<Message<List<EngineEvent>>> processor = ReplayProcessor.create();
+
+        EngineEventsConsumerMessageHandler handler = new EngineEventsConsumerMessageHandler(new EngineEventsTransformer(Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                                                                                .split(",")),
+                                                                                                                        properties.getProcessEngineEventTypeKey()),
+                                                                                            processor.sink(),
+                                                                                            new SpELTemplateRoutingKeyResolver(),
+                                                                                            2,
+                                                                                            scheduler)
+                .setAcknowledgments(subject);
+
+        Message<List<Map<String, Object>>> message = MessageBuilder.withPayload(Arrays.asList(event("p1"), event("p2"), event("p3")))
+                                                                   .build();
+        try {
+            // when
+            handler.receive(Flux.just(message));
+
+            List<Message<List<EngineEvent>>> parts = processor.take(2)
+                                                              .collectList()
+                                                              .block(Duration.ofSeconds(1));
+            // then
+            assertThat(acknowledged).isEmpty();
+
+            // when
+            parts.forEach(EngineEventsAcknowledgment::release);
+
+            // then
+            assertThat(acknowledged).containsExactly(message.getPayload());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private Map<String, Object> event(String processInstanceId) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", "PROCESS_STARTED");
+        event.put("processInstanceId", processInstanceId);
+
+        return event;
+    }
+}
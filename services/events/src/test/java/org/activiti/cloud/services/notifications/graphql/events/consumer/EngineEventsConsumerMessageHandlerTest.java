@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsTransformer;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.ReplayProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class EngineEventsConsumerMessageHandlerTest {
+
+    private ReplayProcessor<Message<List<EngineEvent>>> processor = ReplayProcessor.create();
+
+    private EngineEventsConsumerMessageHandler subject;
+
+    @Before
+    public void setUp() {
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+
+        subject = new EngineEventsConsumerMessageHandler(new EngineEventsTransformer(Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                                             .split(",")),
+                                                                                     properties.getProcessEngineEventTypeKey()),
+                                                         processor.sink(),
+                                                         new SpELTemplateRoutingKeyResolver());
+    }
+
+    @Test
+    public void testReceiveResolvesRoutingKeyOnce() {
+        // given
+        Map<String, Object> event = new HashMap<>();
+        event.put("serviceName", "rb");
+        event.put("appName", "app");
+        event.put("eventType", "PROCESS_STARTED");
+        event.put("processDefinitionKey", "pd1");
+        event.put("processInstanceId", "p1");
+
+        Message<List<Map<String, Object>>> message = MessageBuilder.withPayload(Collections.singletonList(event))
+                                                                   .build();
+        // when
+        subject.receive(Flux.just(message));
+
+        // then
+        EngineEvent engineEvent = processor.blockFirst(Duration.ofSeconds(1))
+                                           .getPayload()
+                                           .get(0);
+
+        assertThat(engineEvent.getRoutingKey()).isEqualTo("engineEvents.rb.app.PROCESS_STARTED.pd1.p1._");
+        assertThat(engineEvent.getRoutingKeySegments()).containsExactly("engineEvents",
+                                                                        "rb",
+                                                                        "app",
+                                                                        "PROCESS_STARTED",
+                                                                        "pd1",
+                                                                        "p1",
+                                                                        "_");
+    }
+
+    @Test
+    public void testReceivePreservesOrderPerProcessInstanceOnRails() {
+        // given
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+        Scheduler scheduler = Schedulers.newParallel("test-ingestion", 4);
+        ReplayProcessor<Message<List<EngineEvent>>> processor = ReplayProcessor.create();
+
+        subject = new EngineEventsConsumerMessageHandler(new EngineEventsTransformer(Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                                             .split(",")),
+                                                                                     properties.getProcessEngineEventTypeKey()),
+                                                         processor.sink(),
+                                                         new SpELTemplateRoutingKeyResolver(),
+                                                         4,
+                                                         scheduler);
+
+        List<Message<List<Map<String, Object>>>> messages = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            List<Map<String, Object>> events = new ArrayList<>();
+
+            for (int p = 0; p < 10; p++) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("eventType", "VARIABLE_UPDATED");
+                event.put("processInstanceId", "p" + p);
+                event.put("sequence", i);
+                events.add(event);
+            }
+            messages.add(MessageBuilder.withPayload(events).build());
+        }
+
+        try {
+            // when
+            subject.receive(Flux.fromIterable(messages));
+
+            // then
+            Map<Object, Collection<Object>> sequences = processor.flatMapIterable(Message::getPayload)
+                                                                 .take(1000)
+                                                                 .collectMultimap(event -> event.get("processInstanceId"),
+                                                                                  event -> event.get("sequence"))
+                                                                 .block(Duration.ofSeconds(5));
+
+            assertThat(sequences).hasSize(10);
+            assertThat(sequences.values()).allSatisfy(values -> assertThat(new ArrayList<>(values)).isSorted()
+                                                                                                   .hasSize(100));
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReceivePublishesOneRailAtATime() {
+        // given
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+        Scheduler scheduler = Schedulers.newParallel("test-ingestion", 4);
+        FluxSink<Message<List<EngineEvent>>> sink = mock(FluxSink.class);
+        AtomicInteger publishing = new AtomicInteger();
+        AtomicInteger maxPublishing = new AtomicInteger();
+        CountDownLatch published = new CountDownLatch(40);
+
+        doAnswer(invocation -> {
+            maxPublishing.accumulateAndGet(publishing.incrementAndGet(), Math::max);
+            // a slow bus, i.e. blocked by a full buffer
+            Thread.sleep(1);
+            publishing.decrementAndGet();
+            published.countDown();
+            return sink;
+        }).when(sink).next(any());
+
+        subject = new EngineEventsConsumerMessageHandler(new EngineEventsTransformer(Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                                             .split(",")),
+                                                                                     properties.getProcessEngineEventTypeKey()),
+                                                         sink,
+                                                         new SpELTemplateRoutingKeyResolver(),
+                                                         4,
+                                                         scheduler);
+
+        List<Message<List<Map<String, Object>>>> messages = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            List<Map<String, Object>> events = new ArrayList<>();
+
+            for (int p = 0; p < 4; p++) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("eventType", "VARIABLE_UPDATED");
+                event.put("processInstanceId", "p" + p);
+                events.add(event);
+            }
+            messages.add(MessageBuilder.withPayload(events).build());
+        }
+
+        try {
+            // when
+            subject.receive(Flux.fromIterable(messages));
+
+            // then
+            assertThat(published.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(maxPublishing).hasValue(1);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+public class EngineEventsMessagePartitionerTest {
+
+    private EngineEventsMessagePartitioner subject = new EngineEventsMessagePartitioner();
+
+    @Test
+    public void testPartitionSplitsEventsByProcessInstance() {
+        // given
+        Message<List<EngineEvent>> message = MessageBuilder.withPayload(Arrays.asList(event("e1", "0"),
+                                                                                      event("e2", "1"),
+                                                                                      event("e3", "0"),
+                                                                                      event("e4", "1")))
+                                                           .setHeader("key", "value")
+                                                           .build();
+        Map<Integer, List<Message<List<EngineEvent>>>> partitions = new TreeMap<>();
+
+        // when
+        subject.partition(message, 2, (part, partition) -> partitions.computeIfAbsent(partition, key -> new ArrayList<>())
+                                                                     .add(part));
+
+        // then
+        assertThat(partitions).hasSize(2);
+        assertThat(partitions.values()).allSatisfy(parts -> {
+            assertThat(parts).hasSize(1);
+            assertThat(parts.get(0).getHeaders()).containsEntry("key", "value");
+        });
+
+        List<EngineEvent> first = partitions.get(Math.floorMod("0".hashCode(), 2)).get(0).getPayload();
+        List<EngineEvent> second = partitions.get(Math.floorMod("1".hashCode(), 2)).get(0).getPayload();
+
+        assertThat(first).extracting(event -> event.get("id")).containsExactly("e1", "e3");
+        assertThat(second).extracting(event -> event.get("id")).containsExactly("e2", "e4");
+    }
+
+    @Test
+    public void testPartitionKeepsMessageOfSinglePartition() {
+        // given
+        Message<List<EngineEvent>> message = MessageBuilder.withPayload(Arrays.asList(event("e1", "0"),
+                                                                                      event("e2", "0")))
+                                                           .build();
+        List<Message<List<EngineEvent>>> parts = new ArrayList<>();
+
+        // when
+        subject.partition(message, 4, (part, partition) -> parts.add(part));
+
+        // then
+        assertThat(parts).containsExactly(message);
+    }
+
+    @Test
+    public void testPartitionKeepsEmptyMessage() {
+        // given
+        Message<List<EngineEvent>> message = MessageBuilder.withPayload(Collections.<EngineEvent> emptyList())
+                                                           .build();
+        List<Message<List<EngineEvent>>> parts = new ArrayList<>();
+
+        // when
+        subject.partition(message, 4, (part, partition) -> parts.add(part));
+
+        // then
+        assertThat(parts).containsExactly(message);
+    }
+
+    private static EngineEvent event(String id, String processInstanceId) {
+        EngineEvent event = new EngineEvent();
+        event.put("id", id);
+        event.put("processInstanceId", processInstanceId);
+
+        return event;
+    }
+}
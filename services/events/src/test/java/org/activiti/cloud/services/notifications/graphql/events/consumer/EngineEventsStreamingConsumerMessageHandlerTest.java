@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.events.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.events.transformer.EngineEventsJsonReader;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ReplayProcessor;
+
+public class EngineEventsStreamingConsumerMessageHandlerTest {
+
+    private ReplayProcessor<Message<List<EngineEvent>>> processor = ReplayProcessor.create();
+
+    private EngineEventsStreamingConsumerMessageHandler subject;
+
+    @Before
+    public void setUp() {
+        EngineEventsConsumerProperties properties = new EngineEventsConsumerProperties();
+
+        subject = new EngineEventsStreamingConsumerMessageHandler(new EngineEventsJsonReader(new ObjectMapper(),
+                                                                                             Arrays.asList(properties.getProcessEngineEventAttributeKeys()
+                                                                                                                     .split(",")),
+                                                                                             properties.getProcessEngineEventTypeKey()),
+                                                                  processor.sink(),
+                                                                  new SpELTemplateRoutingKeyResolver(),
+                                                                  2);
+    }
+
+    @Test
+    public void testReceivePublishesChunksWithRoutingKeys() {
+        // given
+        String json = "["
+                + "{\"serviceName\":\"rb\",\"appName\":\"app\",\"eventType\":\"PROCESS_STARTED\",\"processDefinitionKey\":\"pd1\",\"processInstanceId\":\"p1\"},"
+                + "{\"serviceName\":\"rb\",\"appName\":\"app\",\"eventType\":\"TASK_CREATED\",\"processDefinitionKey\":\"pd1\",\"processInstanceId\":\"p1\"},"
+                + "{\"serviceName\":\"rb\",\"appName\":\"app\",\"eventType\":\"TASK_ASSIGNED\",\"processDefinitionKey\":\"pd1\",\"processInstanceId\":\"p1\"}"
+                + "]";
+
+        Message<byte[]> message = MessageBuilder.withPayload(json.getBytes(StandardCharsets.UTF_8))
+                                                .setHeader("routingKey", "rb")
+                                                .build();
+        // when
+        subject.receive(Flux.just(message));
+
+        // then
+        List<Message<List<EngineEvent>>> chunks = processor.take(2)
+                                                           .collectList()
+                                                           .block(Duration.ofSeconds(1));
+
+        assertThat(chunks).extracting(chunk -> chunk.getPayload().size())
+                          .containsExactly(2, 1);
+        assertThat(chunks).extracting(chunk -> chunk.getHeaders().get("routingKey"))
+                          .containsOnly("rb");
+        assertThat(chunks.get(1).getPayload().get(0).getRoutingKey()).isEqualTo("engineEvents.rb.app.TASK_ASSIGNED.pd1.p1._");
+    }
+
+}
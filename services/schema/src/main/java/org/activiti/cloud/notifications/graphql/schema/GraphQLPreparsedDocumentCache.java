@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.codahale.metrics.annotation.Gauge;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+
+/**
+ * Bounded LRU cache of parsed and validated GraphQL documents keyed by query text.
+ *
+ * Documents with parse or validation errors are not cached.
+ */
+public class GraphQLPreparsedDocumentCache implements PreparsedDocumentProvider {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final int maximumSize;
+
+    private final Map<String, PreparsedDocumentEntry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GraphQLPreparsedDocumentCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public GraphQLPreparsedDocumentCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.cache = new LinkedHashMap<String, PreparsedDocumentEntry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+                boolean evict = size() > GraphQLPreparsedDocumentCache.this.maximumSize;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> computeFunction) {
+        String query = executionInput.getQuery();
+        PreparsedDocumentEntry entry;
+
+        synchronized (cache) {
+            entry = cache.get(query);
+        }
+
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+
+        // parse and validate outside of the lock, concurrent misses for the same query may compute it twice
+        entry = computeFunction.apply(executionInput);
+
+        if (!entry.hasErrors() && maximumSize > 0) {
+            synchronized (cache) {
+                cache.put(query, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Gauge(name = "preparsedDocumentCacheSize", absolute = true)
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Gauge(name = "preparsedDocumentCacheHitCount", absolute = true)
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Gauge(name = "preparsedDocumentCacheMissCount", absolute = true)
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Gauge(name = "preparsedDocumentCacheEvictionCount", absolute = true)
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+/**
+ * Estimated cost of a GraphQL operation computed by {@link GraphQLQueryCostAnalyzer}
+ */
+public class GraphQLQueryCost {
+
+    private final int depth;
+
+    private final int joins;
+
+    private final long cardinality;
+
+    public GraphQLQueryCost(int depth, int joins, long cardinality) {
+        this.depth = depth;
+        this.joins = joins;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * @return maximum nesting depth of selected fields
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return estimated number of JPA joins
+     */
+    public int getJoins() {
+        return joins;
+    }
+
+    /**
+     * @return number of value combinations of list arguments, i.e. subscription destinations
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphQLQueryCost [depth=" + depth + ", joins=" + joins + ", cardinality=" + cardinality + "]";
+    }
+}
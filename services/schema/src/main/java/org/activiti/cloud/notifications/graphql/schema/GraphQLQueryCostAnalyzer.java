@@ -0,0 +1,329 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import graphql.execution.AbortExecutionException;
+import graphql.language.Argument;
+import graphql.language.ArrayValue;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.VariableReference;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+/**
+ * Static cost analyzer of GraphQL operations used to reject expensive queries and subscriptions before execution.
+ *
+ * The cost of an operation accounts for:
+ * <ul>
+ * <li>depth: the maximum nesting level of selected fields</li>
+ * <li>joins: the number of object selections below the second level, i.e. entity associations selected
+ * within a JPA query {@code Entities { select { association { ... } } }}</li>
+ * <li>cardinality: the number of value combinations of list arguments summed over fields, i.e. the number
+ * of destinations of an {@code engineEvents(...)} subscription</li>
+ * </ul>
+ * Introspection fields are not counted.
+ *
+ * The document is analyzed once and the result is kept for as long as the document instance is reachable,
+ * i.e. cached by a preparsed document provider. Only list arguments bound to variables are resolved for each
+ * execution.
+ */
+public class GraphQLQueryCostAnalyzer {
+
+    private final int maxDepth;
+
+    private final int maxJoins;
+
+    private final long maxCardinality;
+
+    private final Map<Document, Map<String, OperationCost>> documentCosts = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Creates instance with cost limits, 0 disables a limit.
+     *
+     * @param maxDepth maximum depth
+     * @param maxJoins maximum estimated joins
+     * @param maxCardinality maximum list arguments cardinality
+     */
+    public GraphQLQueryCostAnalyzer(int maxDepth, int maxJoins, long maxCardinality) {
+        this.maxDepth = maxDepth;
+        this.maxJoins = maxJoins;
+        this.maxCardinality = maxCardinality;
+    }
+
+    /**
+     * Estimates the cost of an operation.
+     *
+     * @param graphQLSchema schema instance
+     * @param document parsed document
+     * @param operationName name of the operation to analyze, can be null if the document has a single operation
+     * @param variables operation variables
+     * @return operation cost or null if the operation is not found
+     */
+    public GraphQLQueryCost analyze(GraphQLSchema graphQLSchema,
+                                    Document document,
+                                    String operationName,
+                                    Map<String, Object> variables) {
+        Map<String, OperationCost> operations = documentCosts.computeIfAbsent(document,
+                                                                              key -> analyze(graphQLSchema, key));
+
+        OperationCost operation = operationName == null && operations.size() == 1
+                ? operations.values().iterator().next()
+                : operations.get(operationName == null ? "" : operationName);
+
+        if (operation == null) {
+            return null;
+        }
+
+        return new GraphQLQueryCost(operation.depth,
+                                    operation.joins,
+                                    operation.cardinality(variables != null ? variables : Collections.emptyMap()));
+    }
+
+    /**
+     * Checks the cost of an operation against the configured limits.
+     *
+     * @throws AbortExecutionException if a limit is exceeded
+     */
+    public void check(GraphQLSchema graphQLSchema,
+                      Document document,
+                      String operationName,
+                      Map<String, Object> variables) throws AbortExecutionException {
+        GraphQLQueryCost cost = analyze(graphQLSchema, document, operationName, variables);
+
+        if (cost == null) {
+            return;
+        }
+
+        if (maxDepth > 0 && cost.getDepth() > maxDepth) {
+            throw new AbortExecutionException("Query depth " + cost.getDepth()
+                    + " exceeds maximum allowed depth " + maxDepth);
+        }
+        if (maxJoins > 0 && cost.getJoins() > maxJoins) {
+            throw new AbortExecutionException("Query joins " + cost.getJoins()
+                    + " exceed maximum allowed joins " + maxJoins);
+        }
+        if (maxCardinality > 0 && cost.getCardinality() > maxCardinality) {
+            throw new AbortExecutionException("Query arguments cardinality " + cost.getCardinality()
+                    + " exceeds maximum allowed cardinality " + maxCardinality);
+        }
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxJoins() {
+        return maxJoins;
+    }
+
+    public long getMaxCardinality() {
+        return maxCardinality;
+    }
+
+    private Map<String, OperationCost> analyze(GraphQLSchema graphQLSchema, Document document) {
+        Map<String, FragmentDefinition> fragments = new HashMap<>();
+        document.getDefinitionsOfType(FragmentDefinition.class)
+                .forEach(fragment -> fragments.put(fragment.getName(), fragment));
+
+        Map<String, OperationCost> operations = new HashMap<>();
+
+        for (OperationDefinition operation : document.getDefinitionsOfType(OperationDefinition.class)) {
+            OperationCost cost = new OperationCost();
+
+            analyze(graphQLSchema,
+                    operation.getSelectionSet(),
+                    rootType(graphQLSchema, operation),
+                    1,
+                    fragments,
+                    new ArrayDeque<>(),
+                    cost);
+
+            operations.put(operation.getName() == null ? "" : operation.getName(), cost);
+        }
+
+        return operations;
+    }
+
+    private void analyze(GraphQLSchema graphQLSchema,
+                         SelectionSet selectionSet,
+                         GraphQLType parentType,
+                         int depth,
+                         Map<String, FragmentDefinition> fragments,
+                         Deque<String> fragmentPath,
+                         OperationCost cost) {
+        if (selectionSet == null) {
+            return;
+        }
+
+        for (Selection<?> selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+
+                if (field.getName().startsWith("__")) {
+                    continue;
+                }
+
+                GraphQLFieldDefinition fieldDefinition = parentType instanceof GraphQLFieldsContainer
+                        ? ((GraphQLFieldsContainer) parentType).getFieldDefinition(field.getName())
+                        : null;
+
+                cost.depth = Math.max(cost.depth, depth);
+                cost.addCardinality(field, fieldDefinition);
+
+                if (field.getSelectionSet() != null) {
+                    if (depth > 2) {
+                        cost.joins++;
+                    }
+                    analyze(graphQLSchema,
+                            field.getSelectionSet(),
+                            fieldDefinition != null ? GraphQLTypeUtil.unwrapAll(fieldDefinition.getType()) : null,
+                            depth + 1,
+                            fragments,
+                            fragmentPath,
+                            cost);
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment fragment = (InlineFragment) selection;
+
+                analyze(graphQLSchema,
+                        fragment.getSelectionSet(),
+                        fragment.getTypeCondition() != null
+                                ? graphQLSchema.getType(fragment.getTypeCondition().getName())
+                                : parentType,
+                        depth,
+                        fragments,
+                        fragmentPath,
+                        cost);
+            } else if (selection instanceof FragmentSpread) {
+                FragmentDefinition fragment = fragments.get(((FragmentSpread) selection).getName());
+
+                if (fragment != null && !fragmentPath.contains(fragment.getName())) {
+                    fragmentPath.push(fragment.getName());
+
+                    analyze(graphQLSchema,
+                            fragment.getSelectionSet(),
+                            graphQLSchema.getType(fragment.getTypeCondition().getName()),
+                            depth,
+                            fragments,
+                            fragmentPath,
+                            cost);
+
+                    fragmentPath.pop();
+                }
+            }
+        }
+    }
+
+    private static GraphQLType rootType(GraphQLSchema graphQLSchema, OperationDefinition operation) {
+        switch (operation.getOperation()) {
+            case MUTATION:
+                return graphQLSchema.getMutationType();
+            case SUBSCRIPTION:
+                return graphQLSchema.getSubscriptionType();
+            default:
+                return graphQLSchema.getQueryType();
+        }
+    }
+
+    private static class OperationCost {
+
+        private int depth;
+
+        private int joins;
+
+        private final List<FieldCardinality> fields = new ArrayList<>();
+
+        void addCardinality(Field field, GraphQLFieldDefinition fieldDefinition) {
+            FieldCardinality cardinality = new FieldCardinality();
+
+            for (Argument argument : field.getArguments()) {
+                if (argument.getValue() instanceof ArrayValue) {
+                    cardinality.literal *= Math.max(1, ((ArrayValue) argument.getValue()).getValues().size());
+                    cardinality.lists++;
+                } else if (argument.getValue() instanceof VariableReference && isList(fieldDefinition, argument)) {
+                    cardinality.variables.add(((VariableReference) argument.getValue()).getName());
+                    cardinality.lists++;
+                }
+            }
+
+            if (cardinality.lists > 0) {
+                fields.add(cardinality);
+            }
+        }
+
+        long cardinality(Map<String, Object> variables) {
+            long total = 0;
+
+            for (FieldCardinality field : fields) {
+                total += field.cardinality(variables);
+            }
+
+            return total;
+        }
+
+        private static boolean isList(GraphQLFieldDefinition fieldDefinition, Argument argument) {
+            GraphQLArgument argumentDefinition = fieldDefinition != null
+                    ? fieldDefinition.getArgument(argument.getName())
+                    : null;
+
+            return argumentDefinition != null
+                    && GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(argumentDefinition.getType()));
+        }
+    }
+
+    private static class FieldCardinality {
+
+        private long literal = 1;
+
+        private int lists;
+
+        private final List<String> variables = new ArrayList<>();
+
+        long cardinality(Map<String, Object> values) {
+            long cardinality = literal;
+
+            for (String variable : variables) {
+                Object value = values.get(variable);
+
+                if (value instanceof List) {
+                    cardinality *= Math.max(1, ((List<?>) value).size());
+                }
+            }
+
+            return cardinality;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+import graphql.ExecutionResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+
+/**
+ * Instrumentation which aborts operations exceeding the {@link GraphQLQueryCostAnalyzer} limits
+ * with a GraphQL error before any field is executed.
+ */
+public class GraphQLQueryCostInstrumentation extends SimpleInstrumentation {
+
+    private final GraphQLQueryCostAnalyzer queryCostAnalyzer;
+
+    public GraphQLQueryCostInstrumentation(GraphQLQueryCostAnalyzer queryCostAnalyzer) {
+        this.queryCostAnalyzer = queryCostAnalyzer;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        ExecutionContext executionContext = parameters.getExecutionContext();
+
+        queryCostAnalyzer.check(executionContext.getGraphQLSchema(),
+                                executionContext.getDocument(),
+                                executionContext.getOperationDefinition().getName(),
+                                executionContext.getVariables());
+
+        return super.beginExecuteOperation(parameters);
+    }
+
+    public GraphQLQueryCostAnalyzer getQueryCostAnalyzer() {
+        return queryCostAnalyzer;
+    }
+}
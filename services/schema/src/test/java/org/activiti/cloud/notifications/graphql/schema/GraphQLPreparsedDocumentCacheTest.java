@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.Scalars;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphQLPreparsedDocumentCacheTest {
+
+    private GraphQLPreparsedDocumentCache cache;
+
+    private GraphQL graphQL;
+
+    @Before
+    public void setUp() {
+        GraphQLObjectType query = GraphQLObjectType.newObject()
+                                                   .name("query")
+                                                   .field(GraphQLFieldDefinition.newFieldDefinition()
+                                                                                .name("hello")
+                                                                                .type(Scalars.GraphQLString)
+                                                                                .dataFetcher(environment -> "world"))
+                                                   .build();
+
+        cache = new GraphQLPreparsedDocumentCache(2);
+        graphQL = GraphQL.newGraphQL(GraphQLSchema.newSchema().query(query).build())
+                         .preparsedDocumentProvider(cache)
+                         .build();
+    }
+
+    @Test
+    public void testCachesDocumentsByQuery() {
+        // when
+        ExecutionResult first = graphQL.execute("{hello}");
+        ExecutionResult second = graphQL.execute("{hello}");
+
+        // then
+        assertThat(first.<Object> getData().toString()).isEqualTo("{hello=world}");
+        assertThat(second.<Object> getData().toString()).isEqualTo("{hello=world}");
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedDocuments() {
+        // when
+        graphQL.execute("{hello}");
+        graphQL.execute("{ hello }");
+        graphQL.execute("{hello}");
+        graphQL.execute("{  hello  }");
+        graphQL.execute("{hello}");
+
+        // then
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testDoesNotCacheInvalidDocuments() {
+        // when
+        ExecutionResult result = graphQL.execute("{unknown}");
+        graphQL.execute("{unknown}");
+
+        // then
+        assertThat(result.getErrors()).isNotEmpty();
+        assertThat(cache.getSize()).isZero();
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+}
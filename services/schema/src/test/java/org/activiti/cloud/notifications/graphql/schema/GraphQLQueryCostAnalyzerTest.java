@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.notifications.graphql.schema;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphQLQueryCostAnalyzerTest {
+
+    private static final String SCHEMA = "schema { query: Query subscription: Subscription }\n"
+            + "type Query { ProcessInstances: ProcessInstances }\n"
+            + "type ProcessInstances { select: [ProcessInstance] }\n"
+            + "type ProcessInstance { id: String tasks: [Task] }\n"
+            + "type Task { id: String variables: [Variable] }\n"
+            + "type Variable { name: String }\n"
+            + "type Subscription { engineEvents(serviceName: [String!], eventType: [String!], businessKey: String): [EngineEvent] }\n"
+            + "type EngineEvent { id: String }\n";
+
+    private GraphQLSchema graphQLSchema;
+
+    private AtomicInteger fetches = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                                            .type("Query", type -> type.dataFetcher("ProcessInstances", environment -> {
+                                                fetches.incrementAndGet();
+                                                return Collections.emptyMap();
+                                            }))
+                                            .build();
+
+        graphQLSchema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SCHEMA), wiring);
+    }
+
+    @Test
+    public void testAnalyzesDepthJoinsAndCardinality() {
+        // given
+        GraphQLQueryCostAnalyzer analyzer = new GraphQLQueryCostAnalyzer(0, 0, 0);
+        Document query = new Parser().parseDocument("query { ProcessInstances { select { id tasks { ...task } } } __schema { types { name } } }"
+                + " fragment task on Task { id variables { name } }");
+        Document subscription = new Parser().parseDocument("subscription($names: [String!]) {"
+                + " engineEvents(serviceName: $names, eventType: [\"A\", \"B\", \"C\"], businessKey: \"key\") { id } }");
+
+        // when
+        GraphQLQueryCost queryCost = analyzer.analyze(graphQLSchema, query, null, null);
+        GraphQLQueryCost subscriptionCost = analyzer.analyze(graphQLSchema,
+                                                             subscription,
+                                                             null,
+                                                             Collections.singletonMap("names", Arrays.asList("a", "b")));
+
+        // then
+        assertThat(queryCost.getDepth()).isEqualTo(5);
+        assertThat(queryCost.getJoins()).isEqualTo(2);
+        assertThat(queryCost.getCardinality()).isZero();
+        assertThat(subscriptionCost.getDepth()).isEqualTo(2);
+        assertThat(subscriptionCost.getJoins()).isZero();
+        assertThat(subscriptionCost.getCardinality()).isEqualTo(6);
+    }
+
+    @Test
+    public void testResolvesVariablesForEachAnalysis() {
+        // given
+        GraphQLQueryCostAnalyzer analyzer = new GraphQLQueryCostAnalyzer(0, 0, 0);
+        Document subscription = new Parser().parseDocument("subscription($names: [String!]) { engineEvents(serviceName: $names) { id } }");
+
+        // when
+        GraphQLQueryCost first = analyzer.analyze(graphQLSchema,
+                                                  subscription,
+                                                  null,
+                                                  Collections.singletonMap("names", Arrays.asList("a", "b", "c")));
+        GraphQLQueryCost second = analyzer.analyze(graphQLSchema, subscription, null, Collections.emptyMap());
+
+        // then
+        assertThat(first.getCardinality()).isEqualTo(3);
+        assertThat(second.getCardinality()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectsExpensiveOperationsBeforeExecution() {
+        // given
+        GraphQL graphQL = GraphQL.newGraphQL(graphQLSchema)
+                                 .instrumentation(new GraphQLQueryCostInstrumentation(new GraphQLQueryCostAnalyzer(4, 10, 100)))
+                                 .build();
+
+        // when
+        ExecutionResult allowed = graphQL.execute("{ ProcessInstances { select { tasks { id } } } }");
+        ExecutionResult rejected = graphQL.execute(ExecutionInput.newExecutionInput("{ ProcessInstances { select { tasks { variables { name } } } } }")
+                                                                 .build());
+
+        // then
+        assertThat(allowed.getErrors()).isEmpty();
+        assertThat(rejected.getErrors()).hasSize(1);
+        assertThat(rejected.getErrors().get(0).getMessage()).isEqualTo("Query depth 5 exceeds maximum allowed depth 4");
+        assertThat(rejected.<Object> getData()).isNull();
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+}
@@ -21,8 +21,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.annotation.Gauge;
 import graphql.schema.DataFetcher;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
@@ -30,16 +31,30 @@ import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.schema.idl.TypeRuntimeWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.DefaultResourceLoader;
 
+/**
+ * Builds the executable subscription schema from a .graphqls file.
+ *
+ * Type wirings must be registered before the first call to {@link #getGraphQLSchema()},
+ * which generates the schema once and returns the same instance afterwards.
+ */
 public class GraphQLSubscriptionSchemaBuilder {
 
-    private GraphQLSchema graphQLSchema = null;
+    private static final Logger log = LoggerFactory.getLogger(GraphQLSubscriptionSchemaBuilder.class);
+
+    private volatile GraphQLSchema graphQLSchema = null;
 
     private final TypeDefinitionRegistry typeRegistry;
     private final  RuntimeWiring.Builder wiring;
 
+    private final long parseTimeMs;
+    private volatile long generationTimeMs;
+
     public GraphQLSubscriptionSchemaBuilder(String schemaFileName) {
+        long start = System.nanoTime();
         //
         // reads a file that provides the schema types
         //
@@ -53,13 +68,27 @@ public class GraphQLSubscriptionSchemaBuilder {
         
         this.wiring = RuntimeWiring.newRuntimeWiring()
                                    .scalar(new ObjectScalar());
+
+        this.parseTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("Parsed GraphQL subscription schema {} in {} ms", schemaFileName, parseTimeMs);
    }
 
     private GraphQLSchema buildSchema() {
-        return new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring.build());
+        long start = System.nanoTime();
+
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(typeRegistry, wiring.build());
+
+        this.generationTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("Generated GraphQL subscription schema in {} ms", generationTimeMs);
+
+        return schema;
     }
 
     public TypeRuntimeWiring.Builder withTypeWiring(String typeName) {
+        assertNotBuilt();
+
     	TypeRuntimeWiring.Builder builder = newTypeWiring(typeName);
 
     	wiring.type(builder);
@@ -68,6 +97,8 @@ public class GraphQLSubscriptionSchemaBuilder {
     }
 
     public TypeRuntimeWiring.Builder withSubscription(String fieldName, DataFetcher<?> dataFetcher) {
+        assertNotBuilt();
+
     	TypeRuntimeWiring.Builder builder = newTypeWiring("Subscription");
 
     	wiring.type(builder.dataFetcher(fieldName, dataFetcher));
@@ -77,8 +108,28 @@ public class GraphQLSubscriptionSchemaBuilder {
 
 
     public GraphQLSchema getGraphQLSchema() {
-        return Optional.ofNullable(graphQLSchema)
-        		.orElseGet(this::buildSchema);
+        GraphQLSchema result = graphQLSchema;
+
+        if (result == null) {
+            synchronized (this) {
+                result = graphQLSchema;
+                if (result == null) {
+                    graphQLSchema = result = buildSchema();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Gauge(name = "subscriptionSchemaParseTimeMs", absolute = true)
+    public long getParseTimeMs() {
+        return parseTimeMs;
+    }
+
+    @Gauge(name = "subscriptionSchemaGenerationTimeMs", absolute = true)
+    public long getGenerationTimeMs() {
+        return generationTimeMs;
     }
 
     protected Reader loadSchemaFile(String name) throws IOException {
@@ -88,4 +139,10 @@ public class GraphQLSubscriptionSchemaBuilder {
         return new InputStreamReader(stream);
     }
 
+    private void assertNotBuilt() {
+        if (graphQLSchema != null) {
+            throw new IllegalStateException("GraphQL subscription schema has already been built");
+        }
+    }
+
 }
@@ -15,6 +15,9 @@
  */
 package org.activiti.cloud.services.notifications.graphql.subscriptions;
 
+import java.time.Duration;
+
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -59,6 +62,19 @@ public class GraphQLSubscriptionSchemaProperties {
     @NotBlank
     private String clientPasscode;
 
+    /**
+     * Time window to conflate engine events for subscriptions with conflate argument. Defaults to 1s
+     */
+    @NotNull
+    private Duration conflationWindow;
+
+    /**
+     * Maximum number of event batches buffered for a lagging subscription, the oldest are dropped. Defaults to 256
+     */
+    @NotNull
+    @Min(1)
+    private Integer subscriptionBufferSize;
+
     @Configuration
     @PropertySource("classpath:META-INF/graphql-subscriptions.properties")
     @PropertySource(value = "classpath:graphql-subscriptions.properties", ignoreResourceNotFound = true)
@@ -122,6 +138,22 @@ public class GraphQLSubscriptionSchemaProperties {
     public void setClientPasscode(String relayPasscode) {
         this.clientPasscode = relayPasscode;
     }
+
+    public Duration getConflationWindow() {
+        return conflationWindow;
+    }
+
+    public void setConflationWindow(Duration conflationWindow) {
+        this.conflationWindow = conflationWindow;
+    }
+
+    public Integer getSubscriptionBufferSize() {
+        return subscriptionBufferSize;
+    }
+
+    public void setSubscriptionBufferSize(Integer subscriptionBufferSize) {
+        this.subscriptionBufferSize = subscriptionBufferSize;
+    }
     
 
 }
@@ -15,30 +15,27 @@
  */
 package org.activiti.cloud.services.notifications.graphql.subscriptions.config;
 
-import java.util.List;
-
 import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
-import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.GraphQLSubscriptionSchemaBuilder;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.GraphQLSubscriptionSchemaProperties;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsConflator;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestinationsPredicateFactory;
-import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsFluxPublisherFactory;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDispatcherPublisherFactory;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsPredicateFactory;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsPublisherDataFetcher;
 import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsPublisherFactory;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher.EngineEventsDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
 
 import com.introproventures.graphql.jpa.query.autoconfigure.GraphQLSchemaConfigurer;
 import com.introproventures.graphql.jpa.query.autoconfigure.GraphQLShemaRegistration;
 import graphql.GraphQL;
-import reactor.core.publisher.Flux;
 
 @Configuration
 @ConditionalOnClass({GraphQL.class, ReactorNettyTcpStompClient.class})
@@ -57,17 +54,31 @@ public class GraphQLSubscriptionsAutoConfiguration {
             return new EngineEventsDestinationsPredicateFactory(routingKeyResolver);
         }
         
+        @Bean
+        @ConditionalOnMissingBean
+        public EngineEventsDispatcher engineEventsDispatcher(RoutingKeyResolver routingKeyResolver) {
+            return new EngineEventsDispatcher(routingKeyResolver,
+                                              subscriptionProperties.getSubscriptionBufferSize());
+        }
+
         @Bean
         @ConditionalOnMissingBean
         public EngineEventsPublisherFactory engineEventPublisherFactory(EngineEventsPredicateFactory engineEventsPredicateFactory,
-                                                                        Flux<Message<List<EngineEvent>>> engineEventsFlux) {
-            return new EngineEventsFluxPublisherFactory(engineEventsFlux, engineEventsPredicateFactory);
+                                                                        EngineEventsDispatcher engineEventsDispatcher) {
+            return new EngineEventsDispatcherPublisherFactory(engineEventsDispatcher, engineEventsPredicateFactory);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EngineEventsConflator engineEventsConflator() {
+            return new EngineEventsConflator(subscriptionProperties.getConflationWindow());
         }
 
         @Bean
         @ConditionalOnMissingBean
-        public EngineEventsPublisherDataFetcher engineEventPublisherDataFetcher(EngineEventsPublisherFactory engineEventPublisherFactory) {
-            return new EngineEventsPublisherDataFetcher(engineEventPublisherFactory);
+        public EngineEventsPublisherDataFetcher engineEventPublisherDataFetcher(EngineEventsPublisherFactory engineEventPublisherFactory,
+                                                                                EngineEventsConflator engineEventsConflator) {
+            return new EngineEventsPublisherDataFetcher(engineEventPublisherFactory, engineEventsConflator);
         }
         
         @Bean
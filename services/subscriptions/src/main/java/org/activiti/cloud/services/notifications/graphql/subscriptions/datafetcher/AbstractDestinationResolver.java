@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -26,7 +27,7 @@ import java.util.stream.StreamSupport;
 
 import graphql.schema.DataFetchingEnvironment;
 
-public abstract class AbstractDestinationResolver implements DataFetcherDestinationResolver {
+public abstract class AbstractDestinationResolver implements DataFetcherDestinationResolver, EngineEventsDestinationResolver {
 
     public AbstractDestinationResolver() {
     }
@@ -63,6 +64,32 @@ public abstract class AbstractDestinationResolver implements DataFetcherDestinat
         return destinations;
     }
     
+    @Override
+    public EngineEventsDestination resolveDestination(DataFetchingEnvironment environment) {
+        String fieldName = resolveFieldName(environment);
+
+        if(environment.getArguments().isEmpty()) {
+            return EngineEventsDestination.any(fieldName);
+        }
+
+        List<Set<String>> segments = new ArrayList<>();
+
+        for (String name : resolveArgumentNames(environment)) {
+            List<String> values = resolveArgument(environment, name);
+
+            if (values.contains(wildcard())) {
+                segments.add(null);
+            } else if (values.stream().allMatch(EngineEventsDestination::isLiteral)) {
+                segments.add(EngineEventsDestination.valueSet(values));
+            } else {
+                // argument values with wildcard characters require pattern matching
+                return null;
+            }
+        }
+
+        return new EngineEventsDestination(fieldName, segments, false);
+    }
+
     protected String resolveFieldName(DataFetchingEnvironment environment) {
         return environment.getFields().iterator().next().getName();
         
@@ -74,6 +101,8 @@ public abstract class AbstractDestinationResolver implements DataFetcherDestinat
                 .getArguments()
                 .stream()
                 .map(arg -> arg.getName())
+                // delivery options are not part of the destination
+                .filter(name -> !EngineEventsPublisherDataFetcher.CONFLATE_ARGUMENT.equals(name))
                 .toArray(String[]::new);
     }
     
@@ -84,7 +113,7 @@ public abstract class AbstractDestinationResolver implements DataFetcherDestinat
         Object argument = environment.getArgument(argumentName);
         
         if(argument instanceof List) {
-            value.addAll(environment.getArgument(argumentName));
+            ((List<?>) argument).forEach(it -> value.add(String.valueOf(it)));
         } else if(argument != null ) {
             value.add(argument.toString());
         } else {
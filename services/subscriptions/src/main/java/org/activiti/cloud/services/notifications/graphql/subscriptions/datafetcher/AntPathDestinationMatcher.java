@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Destination matcher that delegates to {@link AntPathMatcher} on every match.
+ */
+public class AntPathDestinationMatcher implements DestinationMatcher {
+
+    private final AntPathMatcher pathMatcher;
+
+    public AntPathDestinationMatcher(AntPathMatcher pathMatcher) {
+        this.pathMatcher = pathMatcher;
+    }
+
+    @Override
+    public DestinationPattern compile(String pattern) {
+        return new DestinationPattern() {
+
+            @Override
+            public String getPattern() {
+                return pattern;
+            }
+
+            @Override
+            public boolean matches(String routingKey, String[] routingKeySegments) {
+                return pathMatcher.match(pattern, routingKey);
+            }
+
+            @Override
+            public String toString() {
+                return pattern;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+/**
+ * Matches engine event routing keys against subscription destination patterns.
+ * 
+ * Patterns are compiled once at subscribe time, so that matching routing keys does not need to 
+ * parse patterns for every event.
+ */
+public interface DestinationMatcher {
+
+    DestinationPattern compile(String pattern);
+
+    interface DestinationPattern {
+
+        String getPattern();
+
+        /**
+         * @param routingKey the routing key
+         * @param routingKeySegments the routing key split by path separator
+         */
+        boolean matches(String routingKey, String[] routingKeySegments);
+    }
+
+}
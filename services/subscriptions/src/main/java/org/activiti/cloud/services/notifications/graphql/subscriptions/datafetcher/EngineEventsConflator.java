@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Conflates engine events published to a subscription within a time window, so that only 
+ * the last event for each eventType and entityId pair is delivered at the end of the window.
+ * 
+ * Events without entityId are never conflated. Conflated events are emitted in the order of their last update. 
+ * 
+ * Events keep being merged while the subscriber does not request more, the pending events are then emitted 
+ * as soon as it requests again.
+ */
+public class EngineEventsConflator {
+
+    private static final String EVENT_TYPE_KEY = "eventType";
+    private static final String ENTITY_ID_KEY = "entityId";
+
+    private final Duration window;
+
+    public EngineEventsConflator(Duration window) {
+        this.window = window;
+    }
+
+    public Flux<List<EngineEvent>> conflate(Flux<List<EngineEvent>> events) {
+        return Flux.create(sink -> events.subscribe(new Conflation(sink)));
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    protected Map<Object, EngineEvent> merge(Map<Object, EngineEvent> conflated, List<EngineEvent> events) {
+        for (EngineEvent event : events) {
+            Object key = key(event);
+
+            // move the last event for the key to the end to keep the delivery order
+            conflated.remove(key);
+            conflated.put(key, event);
+        }
+
+        return conflated;
+    }
+
+    protected Object key(EngineEvent event) {
+        Object entityId = event.get(ENTITY_ID_KEY);
+
+        if (entityId == null) {
+            return new Object();
+        }
+
+        return Arrays.asList(event.get(EVENT_TYPE_KEY), entityId);
+    }
+
+    private class Conflation extends BaseSubscriber<List<EngineEvent>> {
+
+        private final FluxSink<List<EngineEvent>> sink;
+
+        private Map<Object, EngineEvent> pending = new LinkedHashMap<>();
+
+        private boolean due;
+
+        private boolean done;
+
+        private Disposable timer;
+
+        Conflation(FluxSink<List<EngineEvent>> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            timer = Schedulers.parallel().schedulePeriodically(this::due,
+                                                               window.toMillis(),
+                                                               window.toMillis(),
+                                                               TimeUnit.MILLISECONDS);
+            sink.onRequest(n -> emit());
+            sink.onDispose(() -> {
+                timer.dispose();
+                dispose();
+            });
+
+            requestUnbounded();
+        }
+
+        @Override
+        protected void hookOnNext(List<EngineEvent> events) {
+            synchronized (this) {
+                merge(pending, events);
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            synchronized (this) {
+                done = true;
+                due = true;
+            }
+            emit();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            timer.dispose();
+            sink.error(throwable);
+        }
+
+        private void due() {
+            synchronized (this) {
+                due = true;
+            }
+            emit();
+        }
+
+        private synchronized void emit() {
+            if (!due || sink.requestedFromDownstream() == 0) {
+                return;
+            }
+            due = false;
+
+            if (!pending.isEmpty()) {
+                List<EngineEvent> conflated = new ArrayList<>(pending.values());
+                pending = new LinkedHashMap<>();
+
+                sink.next(conflated);
+            }
+            if (done) {
+                timer.dispose();
+                sink.complete();
+            }
+        }
+    }
+}
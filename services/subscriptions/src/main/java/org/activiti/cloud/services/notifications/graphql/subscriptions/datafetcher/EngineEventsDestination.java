@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Structured subscription destination with one set of allowed values, or wildcard, per routing key segment.
+ * 
+ * Matching a routing key costs one hash lookup per segment regardless of the number of values in each set,
+ * instead of testing every pattern of the cartesian product of subscription arguments.
+ */
+public class EngineEventsDestination {
+
+    private static final String ANY = "**";
+    private static final String WILDCARD = "*";
+
+    private final String name;
+    private final List<Set<String>> segments;
+    private final boolean trailingAny;
+
+    /**
+     * @param name the first routing key segment, i.e. subscription field name
+     * @param segments allowed values for each of the following routing key segments, or null for wildcard segment
+     * @param trailingAny whether any number of routing key segments may follow the given segments
+     */
+    public EngineEventsDestination(String name, List<Set<String>> segments, boolean trailingAny) {
+        this.name = name;
+        this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+        this.trailingAny = trailingAny;
+    }
+
+    /**
+     * Creates destination that matches any routing key starting with name segment
+     */
+    public static EngineEventsDestination any(String name) {
+        return new EngineEventsDestination(name, Collections.emptyList(), true);
+    }
+
+    /**
+     * Converts Ant-style destination pattern into structured destination, if pattern contains only literal 
+     * or '*' segments optionally followed by trailing '**' segment.
+     * 
+     * @return destination or null if pattern cannot be represented with value sets 
+     */
+    public static EngineEventsDestination fromPattern(String pattern, String pathSeparator) {
+        String[] tokens = StringUtils.tokenizeToStringArray(pattern, pathSeparator, false, true);
+
+        if (tokens.length == 0 || !isLiteral(tokens[0])) {
+            return null;
+        }
+
+        List<Set<String>> segments = new ArrayList<>();
+        boolean trailingAny = false;
+
+        for (int i = 1; i < tokens.length; i++) {
+            String token = tokens[i];
+
+            if (ANY.equals(token) && i == tokens.length - 1) {
+                trailingAny = true;
+            } else if (WILDCARD.equals(token)) {
+                segments.add(null);
+            } else if (isLiteral(token)) {
+                segments.add(Collections.singleton(token));
+            } else {
+                return null;
+            }
+        }
+
+        return new EngineEventsDestination(tokens[0], segments, trailingAny);
+    }
+
+    public static boolean isLiteral(String segment) {
+        return segment.indexOf('*') == -1 && segment.indexOf('?') == -1 && segment.indexOf('{') == -1;
+    }
+
+    public static Set<String> valueSet(List<String> values) {
+        return values.size() == 1 ? Collections.singleton(values.get(0)) : new HashSet<>(values);
+    }
+
+    public boolean matches(String[] routingKeySegments) {
+        int size = segments.size();
+
+        if (routingKeySegments.length < size + 1 || !name.equals(routingKeySegments[0])) {
+            return false;
+        }
+
+        if (!trailingAny && routingKeySegments.length != size + 1) {
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            Set<String> values = segments.get(i);
+
+            if (values != null && !values.contains(routingKeySegments[i + 1])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns allowed values for routing key segments following the name segment, with null elements for wildcards
+     */
+    public List<Set<String>> getSegments() {
+        return segments;
+    }
+
+    public boolean isTrailingAny() {
+        return trailingAny;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name);
+
+        segments.forEach(values -> builder.append(".")
+                                          .append(values == null ? WILDCARD : values));
+        if (trailingAny) {
+            builder.append(".").append(ANY);
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import graphql.schema.DataFetchingEnvironment;
+
+/**
+ * Resolves structured subscription destination without expanding argument value lists into patterns.
+ * 
+ * Destination resolvers implementing only {@link DataFetcherDestinationResolver} are still supported
+ * by converting their patterns into structured destinations where possible.
+ */
+public interface EngineEventsDestinationResolver {
+
+    /**
+     * @return structured destination, or null if arguments cannot be represented with value sets 
+     */
+    EngineEventsDestination resolveDestination(DataFetchingEnvironment environment);
+
+}
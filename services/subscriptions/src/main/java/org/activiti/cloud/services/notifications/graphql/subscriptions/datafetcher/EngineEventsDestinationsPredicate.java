@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.DestinationMatcher.DestinationPattern;
+import org.springframework.util.StringUtils;
+
+/**
+ * Predicate that matches engine event routing keys against resolved subscription destinations.
+ * 
+ * Structured destinations are matched with one set lookup per routing key segment. Patterns that cannot
+ * be represented as structured destinations are matched with compiled destination patterns.
+ * 
+ * Destinations are exposed to let dispatcher index subscriptions by destination segments. 
+ */
+public class EngineEventsDestinationsPredicate implements Predicate<EngineEvent> {
+
+    private final List<EngineEventsDestination> destinations;
+    private final List<DestinationPattern> patterns;
+    private final Function<EngineEvent, String> routingKeyResolver;
+
+    public EngineEventsDestinationsPredicate(List<EngineEventsDestination> destinations,
+                                             List<DestinationPattern> patterns,
+                                             Function<EngineEvent, String> routingKeyResolver) {
+        this.destinations = destinations;
+        this.patterns = patterns;
+        this.routingKeyResolver = routingKeyResolver;
+    }
+
+    @Override
+    public boolean test(EngineEvent engineEvent) {
+        String routingKey = routingKeyResolver.apply(engineEvent);
+        String[] segments = engineEvent.getRoutingKeySegments();
+
+        if (segments == null) {
+            segments = StringUtils.tokenizeToStringArray(routingKey, ".", false, true);
+        }
+
+        for (EngineEventsDestination destination : destinations) {
+            if (destination.matches(segments)) {
+                return true;
+            }
+        }
+
+        for (DestinationPattern pattern : patterns) {
+            if (pattern.matches(routingKey, segments)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public List<EngineEventsDestination> getDestinations() {
+        return destinations;
+    }
+
+    /**
+     * Returns patterns that cannot be represented as structured destinations
+     */
+    public List<DestinationPattern> getPatterns() {
+        return patterns;
+    }
+
+    @Override
+    public String toString() {
+        return "EngineEventsDestinationsPredicate [destinations=" + destinations + ", patterns=" + patterns + "]";
+    }
+
+}
@@ -15,12 +15,14 @@
  */
 package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
 
 import graphql.schema.DataFetchingEnvironment;
 import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.DestinationMatcher.DestinationPattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.AntPathMatcher;
@@ -29,10 +31,14 @@ public class EngineEventsDestinationsPredicateFactory implements EngineEventsPre
 
     private static Logger logger = LoggerFactory.getLogger(EngineEventsDestinationsPredicateFactory.class);
 
+    private static final String PATH_SEPARATOR = ".";
+
     private final RoutingKeyResolver routingKeyResolver;
 
     private DataFetcherDestinationResolver destinationResolver = new AntPathDestinationResolver();
-    private AntPathMatcher pathMatcher = new AntPathMatcher(".");
+    private DestinationMatcher destinationMatcher = new SegmentDestinationMatcher(PATH_SEPARATOR);
+    // structured destinations follow the default matcher semantics, custom matchers get all patterns
+    private boolean structuredDestinations = true;
     
     public EngineEventsDestinationsPredicateFactory(RoutingKeyResolver routingKeyResolver) {
         this.routingKeyResolver = routingKeyResolver;
@@ -41,18 +47,51 @@ public class EngineEventsDestinationsPredicateFactory implements EngineEventsPre
     // filter events that do not match subscription arguments
     @Override
     public Predicate<? super EngineEvent> getPredicate(DataFetchingEnvironment environment) {
-        List<String> destinations = destinationResolver.resolveDestinations(environment);
+        List<EngineEventsDestination> destinations = new ArrayList<>();
+        List<DestinationPattern> patterns = new ArrayList<>();
+
+        EngineEventsDestination destination = null;
+
+        if (!structuredDestinations) {
+            for (String pattern : destinationResolver.resolveDestinations(environment)) {
+                patterns.add(destinationMatcher.compile(pattern));
+            }
+        } else if (destinationResolver instanceof EngineEventsDestinationResolver) {
+            destination = ((EngineEventsDestinationResolver) destinationResolver).resolveDestination(environment);
+        }
+
+        if (destination != null) {
+            destinations.add(destination);
+        } else if (structuredDestinations) {
+            // convert patterns resolved by custom resolvers into structured destinations where possible
+            for (String pattern : destinationResolver.resolveDestinations(environment)) {
+                EngineEventsDestination converted = EngineEventsDestination.fromPattern(pattern, PATH_SEPARATOR);
+
+                if (converted != null) {
+                    destinations.add(converted);
+                } else {
+                    patterns.add(destinationMatcher.compile(pattern));
+                }
+            }
+        }
         
-        logger.info("Resolved destinations {} for environment: {}", destinations, environment);
+        logger.info("Resolved destinations {} and patterns {} for environment: {}", destinations, patterns, environment);
         
-        return (engineEvent) -> {
-            String routingKey = routingKeyResolver.resolveRoutingKey(engineEvent);
-            
-            logger.debug("Resolved routing key {} for {}", routingKey, engineEvent);
-            
-            return destinations.stream()
-                               .anyMatch(pattern -> pathMatcher.match(pattern, routingKey));
-        };
+        return new EngineEventsDestinationsPredicate(destinations,
+                                                     patterns,
+                                                     this::resolveRoutingKey);
+    }
+
+    // reuse routing key resolved at ingestion time, if available
+    protected String resolveRoutingKey(EngineEvent engineEvent) {
+        String routingKey = engineEvent.getRoutingKey();
+
+        if (routingKey == null) {
+            routingKey = routingKeyResolver.resolveRoutingKey(engineEvent);
+            engineEvent.setRoutingKey(routingKey);
+        }
+
+        return routingKey;
     }
 
     public EngineEventsDestinationsPredicateFactory destinationResolver(DataFetcherDestinationResolver destinationResolver) {
@@ -62,7 +101,16 @@ public class EngineEventsDestinationsPredicateFactory implements EngineEventsPre
     }
     
     public EngineEventsDestinationsPredicateFactory pathMatcher(AntPathMatcher pathMatcher) {
-        this.pathMatcher = pathMatcher;
+        return destinationMatcher(new AntPathDestinationMatcher(pathMatcher));
+    }
+
+    /**
+     * Sets matcher for all destination patterns, which are then no longer converted into structured destinations
+     * so that the matcher semantics, i.e. its path separator, apply to every subscription
+     */
+    public EngineEventsDestinationsPredicateFactory destinationMatcher(DestinationMatcher destinationMatcher) {
+        this.destinationMatcher = destinationMatcher;
+        this.structuredDestinations = false;
         
         return this;
     }
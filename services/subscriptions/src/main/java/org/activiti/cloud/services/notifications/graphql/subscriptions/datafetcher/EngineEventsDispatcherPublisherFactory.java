@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import graphql.schema.DataFetchingEnvironment;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher.EngineEventsDispatcher;
+import reactor.core.publisher.Flux;
+
+/**
+ * Publisher factory that registers subscriptions in the central {@link EngineEventsDispatcher} index.
+ * 
+ * Subscription predicates that expose structured destinations are indexed by destination segments, 
+ * all other predicates are evaluated for every event.
+ */
+public class EngineEventsDispatcherPublisherFactory implements EngineEventsPublisherFactory {
+
+    private final EngineEventsDispatcher dispatcher;
+    private final EngineEventsPredicateFactory predicateFactory;
+
+    public EngineEventsDispatcherPublisherFactory(EngineEventsDispatcher dispatcher,
+                                                  EngineEventsPredicateFactory predicateFactory) {
+        this.dispatcher = dispatcher;
+        this.predicateFactory = predicateFactory;
+    }
+
+    @Override
+    public Flux<List<EngineEvent>> getPublisher(DataFetchingEnvironment environment) {
+        Predicate<? super EngineEvent> predicate = predicateFactory.getPredicate(environment);
+
+        List<EngineEventsDestination> destinations = Collections.emptyList();
+
+        if (predicate instanceof EngineEventsDestinationsPredicate) {
+            EngineEventsDestinationsPredicate destinationsPredicate = (EngineEventsDestinationsPredicate) predicate;
+
+            // subscriptions with patterns must be tested with every event
+            if (destinationsPredicate.getPatterns().isEmpty()) {
+                destinations = destinationsPredicate.getDestinations();
+            }
+        }
+
+        return dispatcher.subscribe(destinations, predicate);
+    }
+}
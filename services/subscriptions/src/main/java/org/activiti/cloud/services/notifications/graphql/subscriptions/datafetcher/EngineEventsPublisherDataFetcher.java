@@ -15,27 +15,43 @@
  */
 package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
 
+import java.time.Duration;
 import java.util.List;
 
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
 import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
 import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.util.context.Context;
 
 public class EngineEventsPublisherDataFetcher implements DataFetcher<Publisher<List<EngineEvent>>>{
 
+	public static final String CONFLATE_ARGUMENT = "conflate";
+
 	private final EngineEventsPublisherFactory publisherFactory;
+	private final EngineEventsConflator conflator;
 
 	public EngineEventsPublisherDataFetcher(EngineEventsPublisherFactory publisherFactory) {
+		 this(publisherFactory, new EngineEventsConflator(Duration.ofSeconds(1)));
+	}
+
+	public EngineEventsPublisherDataFetcher(EngineEventsPublisherFactory publisherFactory,
+	                                        EngineEventsConflator conflator) {
 		 this.publisherFactory = publisherFactory;
+		 this.conflator = conflator;
 	}
 
 	@Override
 	public Publisher<List<EngineEvent>> get(DataFetchingEnvironment environment) {
 
-        return publisherFactory.getPublisher(environment)
-                               .subscriberContext(Context.of(DataFetchingEnvironment.class, environment));
+        Flux<List<EngineEvent>> publisher = publisherFactory.getPublisher(environment);
+
+        if (Boolean.TRUE.equals(environment.getArgument(CONFLATE_ARGUMENT))) {
+            publisher = conflator.conflate(publisher);
+        }
+
+        return publisher.subscriberContext(Context.of(DataFetchingEnvironment.class, environment));
     }
 
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * Destination matcher that pre-splits patterns into segments at compile time and matches them 
+ * against pre-split routing keys.
+ * 
+ * Follows {@link org.springframework.util.AntPathMatcher} semantics: '**' matches zero or more segments,
+ * '*' and '?' match characters within a segment and segments with '{name}' or '{name:regex}' template 
+ * variables are delegated to {@link AntPathMatcher}. All other segments are matched without allocation.
+ */
+public class SegmentDestinationMatcher implements DestinationMatcher {
+
+    private static final String ANY = "**";
+
+    private final String pathSeparator;
+    private final AntPathMatcher templateMatcher;
+
+    public SegmentDestinationMatcher() {
+        this(".");
+    }
+
+    public SegmentDestinationMatcher(String pathSeparator) {
+        this.pathSeparator = pathSeparator;
+        this.templateMatcher = new AntPathMatcher(pathSeparator);
+    }
+
+    @Override
+    public DestinationPattern compile(String pattern) {
+        String[] tokens = StringUtils.tokenizeToStringArray(pattern, pathSeparator, false, true);
+        Segment[] segments = new Segment[tokens.length];
+
+        for (int i = 0; i < tokens.length; i++) {
+            segments[i] = Segment.compile(tokens[i], templateMatcher);
+        }
+
+        return new CompiledPattern(pattern,
+                                   segments,
+                                   pattern.startsWith(pathSeparator),
+                                   pattern.endsWith(pathSeparator),
+                                   pathSeparator);
+    }
+
+    static class CompiledPattern implements DestinationPattern {
+
+        private final String pattern;
+        private final Segment[] segments;
+        private final boolean leadingSeparator;
+        private final boolean trailingSeparator;
+        private final String pathSeparator;
+
+        CompiledPattern(String pattern,
+                        Segment[] segments,
+                        boolean leadingSeparator,
+                        boolean trailingSeparator,
+                        String pathSeparator) {
+            this.pattern = pattern;
+            this.segments = segments;
+            this.leadingSeparator = leadingSeparator;
+            this.trailingSeparator = trailingSeparator;
+            this.pathSeparator = pathSeparator;
+        }
+
+        @Override
+        public String getPattern() {
+            return pattern;
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+
+        // Port of AntPathMatcher.doMatch() with full match over pre-split segments
+        @Override
+        public boolean matches(String routingKey, String[] path) {
+            if (routingKey.startsWith(pathSeparator) != leadingSeparator) {
+                return false;
+            }
+
+            int pattIdxStart = 0;
+            int pattIdxEnd = segments.length - 1;
+            int pathIdxStart = 0;
+            int pathIdxEnd = path.length - 1;
+
+            // Match all elements up to the first **
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                Segment segment = segments[pattIdxStart];
+                if (segment.any) {
+                    break;
+                }
+                if (!segment.matches(path[pathIdxStart])) {
+                    return false;
+                }
+                pattIdxStart++;
+                pathIdxStart++;
+            }
+
+            if (pathIdxStart > pathIdxEnd) {
+                // Path is exhausted, only match if rest of pattern is * or **'s
+                if (pattIdxStart > pattIdxEnd) {
+                    return trailingSeparator == routingKey.endsWith(pathSeparator);
+                }
+                if (pattIdxStart == pattIdxEnd && segments[pattIdxStart].wildcard && routingKey.endsWith(pathSeparator)) {
+                    return true;
+                }
+                return onlyAny(pattIdxStart, pattIdxEnd);
+            } else if (pattIdxStart > pattIdxEnd) {
+                // String not exhausted, but pattern is. Failure.
+                return false;
+            }
+
+            // up to last '**'
+            while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                Segment segment = segments[pattIdxEnd];
+                if (segment.any) {
+                    break;
+                }
+                if (!segment.matches(path[pathIdxEnd])) {
+                    return false;
+                }
+                pattIdxEnd--;
+                pathIdxEnd--;
+            }
+
+            if (pathIdxStart > pathIdxEnd) {
+                // String is exhausted
+                return onlyAny(pattIdxStart, pattIdxEnd);
+            }
+
+            while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+                int patIdxTmp = -1;
+                for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+                    if (segments[i].any) {
+                        patIdxTmp = i;
+                        break;
+                    }
+                }
+                if (patIdxTmp == pattIdxStart + 1) {
+                    // '**.**' situation, so skip one
+                    pattIdxStart++;
+                    continue;
+                }
+                // Find the pattern between pattIdxStart & patIdxTmp in path between pathIdxStart & pathIdxEnd
+                int patLength = (patIdxTmp - pattIdxStart - 1);
+                int strLength = (pathIdxEnd - pathIdxStart + 1);
+                int foundIdx = -1;
+
+                strLoop:
+                for (int i = 0; i <= strLength - patLength; i++) {
+                    for (int j = 0; j < patLength; j++) {
+                        if (!segments[pattIdxStart + j + 1].matches(path[pathIdxStart + i + j])) {
+                            continue strLoop;
+                        }
+                    }
+                    foundIdx = pathIdxStart + i;
+                    break;
+                }
+
+                if (foundIdx == -1) {
+                    return false;
+                }
+
+                pattIdxStart = patIdxTmp;
+                pathIdxStart = foundIdx + patLength;
+            }
+
+            return onlyAny(pattIdxStart, pattIdxEnd);
+        }
+
+        private boolean onlyAny(int from, int to) {
+            for (int i = from; i <= to; i++) {
+                if (!segments[i].any) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static class Segment {
+
+        final String value;
+        final boolean any;
+        final boolean wildcard;
+        final boolean literal;
+        final boolean glob;
+        final AntPathMatcher templateMatcher;
+
+        private Segment(String value, boolean any, boolean wildcard, boolean literal, boolean glob, AntPathMatcher templateMatcher) {
+            this.value = value;
+            this.any = any;
+            this.wildcard = wildcard;
+            this.literal = literal;
+            this.glob = glob;
+            this.templateMatcher = templateMatcher;
+        }
+
+        static Segment compile(String value, AntPathMatcher templateMatcher) {
+            if (ANY.equals(value)) {
+                return new Segment(value, true, false, false, false, null);
+            } else if ("*".equals(value)) {
+                return new Segment(value, false, true, false, false, null);
+            } else if (value.indexOf('{') != -1) {
+                // template variables are delegated to the same regular expressions as AntPathMatcher
+                return new Segment(value, false, false, false, false, templateMatcher);
+            } else if (value.indexOf('*') != -1 || value.indexOf('?') != -1) {
+                return new Segment(value, false, false, false, true, null);
+            }
+
+            return new Segment(value, false, false, true, false, null);
+        }
+
+        boolean matches(String segment) {
+            if (literal) {
+                return value.equals(segment);
+            } else if (wildcard || any) {
+                return true;
+            } else if (glob) {
+                return globMatches(value, 0, segment, 0);
+            }
+
+            return templateMatcher.match(value, segment);
+        }
+
+        // matches '*' and '?' wildcards within segment
+        private static boolean globMatches(String pattern, int p, String str, int s) {
+            int starP = -1;
+            int starS = -1;
+
+            while (s < str.length()) {
+                if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == str.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (starP != -1) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+
+            return p == pattern.length();
+        }
+    }
+
+}
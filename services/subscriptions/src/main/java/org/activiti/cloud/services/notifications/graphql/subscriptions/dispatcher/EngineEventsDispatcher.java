@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.codahale.metrics.annotation.Gauge;
+import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.consumer.EngineEventsPartitionedSubscriber;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestination;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * Central dispatcher subscribed once to engine events stream. 
+ * 
+ * Active GraphQL subscriptions are kept in an inverted {@link EngineEventsSubscriptionIndex}, so that each 
+ * event is looked up once and delivered only to matching subscribers instead of being filtered by every 
+ * subscription.
+ * 
+ * The dispatcher is subscribed once, or once per partition of a partitioned engine events bus to dispatch 
+ * messages of different partitions concurrently.
+ * 
+ * Each subscription buffers at most subscriptionBufferSize batches of events for a lagging subscriber,
+ * the oldest batches are dropped and counted once the buffer is full.
+ */
+public class EngineEventsDispatcher extends BaseSubscriber<Message<List<EngineEvent>>> implements EngineEventsPartitionedSubscriber {
+
+    public static final int DEFAULT_SUBSCRIPTION_BUFFER_SIZE = 256;
+
+    private static Logger logger = LoggerFactory.getLogger(EngineEventsDispatcher.class);
+
+    private final EngineEventsSubscriptionIndex index;
+    private final RoutingKeyResolver routingKeyResolver;
+    private final int subscriptionBufferSize;
+    private final AtomicInteger partitions = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EngineEventsDispatcher(RoutingKeyResolver routingKeyResolver) {
+        this(routingKeyResolver, DEFAULT_SUBSCRIPTION_BUFFER_SIZE);
+    }
+
+    public EngineEventsDispatcher(RoutingKeyResolver routingKeyResolver,
+                                  int subscriptionBufferSize) {
+        this(routingKeyResolver, new EngineEventsSubscriptionIndex(), subscriptionBufferSize);
+    }
+
+    public EngineEventsDispatcher(RoutingKeyResolver routingKeyResolver,
+                                  EngineEventsSubscriptionIndex index) {
+        this(routingKeyResolver, index, DEFAULT_SUBSCRIPTION_BUFFER_SIZE);
+    }
+
+    public EngineEventsDispatcher(RoutingKeyResolver routingKeyResolver,
+                                  EngineEventsSubscriptionIndex index,
+                                  int subscriptionBufferSize) {
+        if (subscriptionBufferSize < 1) {
+            throw new IllegalArgumentException("subscriptionBufferSize must be positive: " + subscriptionBufferSize);
+        }
+        this.routingKeyResolver = routingKeyResolver;
+        this.index = index;
+        this.subscriptionBufferSize = subscriptionBufferSize;
+    }
+
+    /**
+     * Creates a stream of events matching subscription destinations and predicate. 
+     * Empty destinations list subscribes to all events filtered by predicate.
+     */
+    public Flux<List<EngineEvent>> subscribe(List<EngineEventsDestination> destinations,
+                                             Predicate<? super EngineEvent> predicate) {
+        return Flux.<List<EngineEvent>> create(sink -> {
+            EngineEventsSubscription subscription = new EngineEventsSubscription(destinations, predicate, sink);
+
+            sink.onDispose(() -> unregister(subscription));
+
+            register(subscription);
+        })
+        .onBackpressureBuffer(subscriptionBufferSize, this::dropped, BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    public int getSubscriptionCount() {
+        return index.size();
+    }
+
+    public int getSubscriptionBufferSize() {
+        return subscriptionBufferSize;
+    }
+
+    @Gauge(name = "engineEventsDispatcherDroppedCount", absolute = true)
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    protected void dropped(List<EngineEvent> events) {
+        dropped.addAndGet(events.size());
+
+        logger.debug("Dropped {} events of lagging subscription", events.size());
+    }
+
+    protected void register(EngineEventsSubscription subscription) {
+        index.add(subscription);
+
+        logger.debug("Registered {}", subscription);
+    }
+
+    protected void unregister(EngineEventsSubscription subscription) {
+        index.remove(subscription);
+
+        logger.debug("Unregistered {}", subscription);
+    }
+
+    @Override
+    public Subscriber<Message<List<EngineEvent>>> partition() {
+        partitions.incrementAndGet();
+
+        return new PartitionSubscriber();
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    protected void hookOnNext(Message<List<EngineEvent>> message) {
+        dispatch(message);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        complete();
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+        error(throwable);
+    }
+
+    protected void dispatch(Message<List<EngineEvent>> message) {
+        Map<EngineEventsSubscription, List<EngineEvent>> batches = new IdentityHashMap<>();
+        Map<EngineEventsSubscription, EngineEvent> tested = new IdentityHashMap<>();
+
+        for (EngineEvent event : message.getPayload()) {
+            dispatch(event, batches, tested);
+        }
+
+        batches.forEach(EngineEventsSubscription::next);
+    }
+
+    protected void dispatch(EngineEvent event,
+                            Map<EngineEventsSubscription, List<EngineEvent>> batches,
+                            Map<EngineEventsSubscription, EngineEvent> tested) {
+        String[] segments = resolveRoutingKeySegments(event);
+
+        index.lookup(segments, subscription -> {
+            // skip subscriptions already tested for this event via another destination
+            if (tested.put(subscription, event) != event && subscription.test(event)) {
+                batches.computeIfAbsent(subscription, key -> new ArrayList<>())
+                       .add(event);
+            }
+        });
+    }
+
+    protected void complete() {
+        index.forEach(EngineEventsSubscription::complete);
+    }
+
+    protected void error(Throwable throwable) {
+        logger.error("Engine events stream error", throwable);
+
+        index.forEach(subscription -> subscription.error(throwable));
+    }
+
+    protected String[] resolveRoutingKeySegments(EngineEvent event) {
+        if (event.getRoutingKey() == null) {
+            event.setRoutingKey(routingKeyResolver.resolveRoutingKey(event));
+        }
+
+        return event.getRoutingKeySegments();
+    }
+
+    /**
+     * Subscriber of a single bus partition. Subscriptions are completed once all partitions complete.
+     */
+    private class PartitionSubscriber extends BaseSubscriber<Message<List<EngineEvent>>> {
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        protected void hookOnNext(Message<List<EngineEvent>> message) {
+            dispatch(message);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            if (partitions.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            // every partition receives the same error
+            if (partitions.getAndSet(0) > 0) {
+                error(throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestination;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Active subscription registered in the dispatcher index.
+ */
+public class EngineEventsSubscription {
+
+    private final Predicate<? super EngineEvent> predicate;
+    private final FluxSink<List<EngineEvent>> sink;
+    private final List<EngineEventsDestination> destinations;
+
+    // index keys this subscription was registered with
+    volatile List<EngineEventsSubscriptionIndex.Key> keys;
+
+    EngineEventsSubscription(List<EngineEventsDestination> destinations,
+                             Predicate<? super EngineEvent> predicate,
+                             FluxSink<List<EngineEvent>> sink) {
+        this.destinations = destinations;
+        this.predicate = predicate;
+        this.sink = sink;
+    }
+
+    public List<EngineEventsDestination> getDestinations() {
+        return destinations;
+    }
+
+    boolean test(EngineEvent event) {
+        return predicate.test(event);
+    }
+
+    void next(List<EngineEvent> events) {
+        sink.next(events);
+    }
+
+    void complete() {
+        sink.complete();
+    }
+
+    void error(Throwable error) {
+        sink.error(error);
+    }
+
+    @Override
+    public String toString() {
+        return "EngineEventsSubscription [destinations=" + destinations + ", predicate=" + predicate + "]";
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestination;
+
+/**
+ * Inverted index of active subscriptions by destination segments.
+ * 
+ * Each destination is registered under the values of its most specific segment, i.e. the last
+ * segment that is not a wildcard. Destinations without such segments are kept in the wildcard
+ * bucket that is visited for every event.
+ * 
+ * Lookup visits one hash bucket per routing key segment plus the wildcard bucket, so the candidates
+ * returned for an event are independent of the total number of subscriptions. Candidates must be 
+ * verified by the caller.
+ */
+public class EngineEventsSubscriptionIndex {
+
+    // buckets by segment position and value
+    private final List<Map<String, Set<EngineEventsSubscription>>> positions = new CopyOnWriteArrayList<>();
+    private final Set<EngineEventsSubscription> wildcards = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void add(EngineEventsSubscription subscription) {
+        List<Key> keys = new ArrayList<>();
+        boolean wildcard = subscription.getDestinations() == null || subscription.getDestinations().isEmpty();
+
+        if (!wildcard) {
+            for (EngineEventsDestination destination : subscription.getDestinations()) {
+                List<Key> destinationKeys = resolveKeys(destination);
+
+                if (destinationKeys != null) {
+                    keys.addAll(destinationKeys);
+                } else {
+                    wildcard = true;
+                }
+            }
+        }
+
+        subscription.keys = keys;
+
+        keys.forEach(key -> bucketsAt(key.position).computeIfAbsent(key.value, k -> ConcurrentHashMap.newKeySet())
+                                                   .add(subscription));
+        if (wildcard) {
+            wildcards.add(subscription);
+        }
+
+        size.incrementAndGet();
+    }
+
+    public void remove(EngineEventsSubscription subscription) {
+        List<Key> keys = subscription.keys;
+
+        if (keys == null) {
+            return;
+        }
+
+        subscription.keys = null;
+        wildcards.remove(subscription);
+
+        keys.forEach(key -> bucketsAt(key.position).computeIfPresent(key.value, (k, bucket) -> {
+            bucket.remove(subscription);
+
+            return bucket.isEmpty() ? null : bucket;
+        }));
+
+        size.decrementAndGet();
+    }
+
+    /**
+     * Visits candidate subscriptions for routing key segments. The same subscription may be visited 
+     * more than once, if it has been registered with multiple destinations.
+     */
+    public void lookup(String[] segments, Consumer<EngineEventsSubscription> consumer) {
+        wildcards.forEach(consumer);
+
+        int length = Math.min(segments.length, positions.size());
+
+        for (int position = 1; position < length; position++) {
+            Set<EngineEventsSubscription> bucket = positions.get(position).get(segments[position]);
+
+            if (bucket != null) {
+                bucket.forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Visits each registered subscription once.
+     */
+    public void forEach(Consumer<EngineEventsSubscription> consumer) {
+        Set<EngineEventsSubscription> subscriptions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        subscriptions.addAll(wildcards);
+        positions.forEach(buckets -> buckets.values().forEach(subscriptions::addAll));
+
+        subscriptions.forEach(consumer);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private Map<String, Set<EngineEventsSubscription>> bucketsAt(int position) {
+        if (position >= positions.size()) {
+            synchronized (positions) {
+                while (position >= positions.size()) {
+                    positions.add(new ConcurrentHashMap<>());
+                }
+            }
+        }
+
+        return positions.get(position);
+    }
+
+    /**
+     * @return keys for values of the last non wildcard segment, or null if all segments are wildcards
+     */
+    protected List<Key> resolveKeys(EngineEventsDestination destination) {
+        List<Set<String>> segments = destination.getSegments();
+
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Set<String> values = segments.get(i);
+
+            if (values != null) {
+                // routing key position is shifted by destination name segment
+                int position = i + 1;
+                
+                return values.stream()
+                             .map(value -> new Key(position, value))
+                             .collect(Collectors.toList());
+            }
+        }
+
+        return null;
+    }
+
+    static final class Key {
+
+        private final int position;
+        private final String value;
+
+        Key(int position, String value) {
+            this.position = position;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return position + ":" + value;
+        }
+    }
+}
@@ -31,6 +31,21 @@ public class GraphQLSubscriptionSchemaBuilderTest {
         assertThat(schemaBuilder.getGraphQLSchema().getSubscriptionType().getFieldDefinition("engineEvents")).isNotNull();
     }
 
+    @Test
+    public void testNotificationsSchemaBuilderBuildsSchemaOnce() {
+        GraphQLSubscriptionSchemaBuilder schemaBuilder = new GraphQLSubscriptionSchemaBuilder("classpath:activiti.graphqls");
+
+        assertThat(schemaBuilder.getGraphQLSchema()).isSameAs(schemaBuilder.getGraphQLSchema());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testNotificationsSchemaBuilderRejectsWiringAfterBuild() {
+        GraphQLSubscriptionSchemaBuilder schemaBuilder = new GraphQLSubscriptionSchemaBuilder("classpath:activiti.graphqls");
+        schemaBuilder.getGraphQLSchema();
+
+        schemaBuilder.withSubscription("engineEvents", environment -> null);
+    }
+
     @Test(expected=RuntimeException.class)
     public void testNotificationsSchemaBuilderParsesSchemaNotFoundRuntimeException() {
         new GraphQLSubscriptionSchemaBuilder("http://notfound.com//activiti.graphqls");
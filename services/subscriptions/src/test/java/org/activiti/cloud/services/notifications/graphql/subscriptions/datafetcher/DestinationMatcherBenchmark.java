@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.DestinationMatcher.DestinationPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+/**
+ * Compares {@link AntPathMatcher} with {@link SegmentDestinationMatcher} for subscription destination patterns.
+ * 
+ * Run with main method from IDE or test classpath, i.e.
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.DestinationMatcherBenchmark 
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DestinationMatcherBenchmark {
+
+    @Param({"10", "1000"})
+    private int patternCount;
+
+    private String routingKey = "engineEvents.rb.app.PROCESS_STARTED.pd1.p999._";
+
+    private AntPathMatcher antPathMatcher = new AntPathMatcher(".");
+
+    private List<String> patterns;
+
+    private List<DestinationPattern> compiledPatterns;
+
+    @Setup
+    public void setUp() {
+        patterns = IntStream.range(0, patternCount)
+                            .mapToObj(i -> i % 2 == 0 ? "engineEvents.rb.*.PROCESS_STARTED.*.p" + i + ".*"
+                                                      : "engineEvents.**.p" + i + ".*")
+                            .collect(Collectors.toList());
+
+        SegmentDestinationMatcher segmentMatcher = new SegmentDestinationMatcher(".");
+
+        compiledPatterns = patterns.stream()
+                                   .map(segmentMatcher::compile)
+                                   .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void antPathMatcher(Blackhole blackhole) {
+        for (String pattern : patterns) {
+            blackhole.consume(antPathMatcher.match(pattern, routingKey));
+        }
+    }
+
+    @Benchmark
+    public void segmentDestinationMatcher(Blackhole blackhole) {
+        // routing key is split once per event at ingestion
+        String[] segments = StringUtils.tokenizeToStringArray(routingKey, ".", false, true);
+
+        for (DestinationPattern pattern : compiledPatterns) {
+            blackhole.consume(pattern.matches(routingKey, segments));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DestinationMatcherBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+}
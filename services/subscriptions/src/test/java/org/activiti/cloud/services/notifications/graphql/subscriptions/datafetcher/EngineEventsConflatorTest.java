@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+
+public class EngineEventsConflatorTest {
+
+    private EngineEventsConflator subject = new EngineEventsConflator(Duration.ofMinutes(1));
+
+    @Test
+    public void testConflateKeepsLastEventPerEventTypeAndEntityId() {
+        // given
+        Flux<List<EngineEvent>> events = Flux.just(Arrays.asList(event("1", "TASK_CREATED", "t1"),
+                                                                 event("2", "TASK_UPDATED", "t1")),
+                                                   Arrays.asList(event("3", "TASK_CREATED", "t2"),
+                                                                 event("4", "TASK_UPDATED", "t1"),
+                                                                 event("5", "TASK_UPDATED", "t2")));
+
+        // when
+        List<List<EngineEvent>> result = subject.conflate(events)
+                                                .collectList()
+                                                .block(Duration.ofSeconds(5));
+
+        // then
+        assertThat(result).hasSize(1);
+        assertThat(ids(result.get(0))).containsExactly("1", "3", "4", "5");
+    }
+
+    @Test
+    public void testConflatePassesEventsWithoutEntityId() {
+        // given
+        Flux<List<EngineEvent>> events = Flux.just(Arrays.asList(event("1", "PROCESS_DEPLOYED", null),
+                                                                 event("2", "PROCESS_DEPLOYED", null)));
+
+        // when
+        List<List<EngineEvent>> result = subject.conflate(events)
+                                                .collectList()
+                                                .block(Duration.ofSeconds(5));
+
+        // then
+        assertThat(result).hasSize(1);
+        assertThat(ids(result.get(0))).containsExactly("1", "2");
+    }
+
+    @Test
+    public void testConflateEmitsOncePerWindow() {
+        // given
+        EngineEventsConflator conflator = new EngineEventsConflator(Duration.ofMillis(50));
+        Flux<List<EngineEvent>> events = Flux.just(Arrays.asList(event("1", "TASK_UPDATED", "t1")),
+                                                   Arrays.asList(event("2", "TASK_UPDATED", "t1")))
+                                             .delayElements(Duration.ofMillis(200));
+
+        // when
+        List<List<EngineEvent>> result = conflator.conflate(events)
+                                                  .collectList()
+                                                  .block(Duration.ofSeconds(5));
+
+        // then
+        assertThat(result).extracting(this::ids)
+                          .containsExactly(Arrays.asList("1"), Arrays.asList("2"));
+    }
+
+    @Test
+    public void testConflateKeepsMergingWithoutDemand() throws Exception {
+        // given
+        EngineEventsConflator conflator = new EngineEventsConflator(Duration.ofMillis(10));
+        DirectProcessor<List<EngineEvent>> events = DirectProcessor.create();
+        List<List<EngineEvent>> result = new CopyOnWriteArrayList<>();
+        BaseSubscriber<List<EngineEvent>> subscriber = new BaseSubscriber<List<EngineEvent>>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // stop requesting
+            }
+
+            @Override
+            protected void hookOnNext(List<EngineEvent> value) {
+                result.add(value);
+            }
+        };
+        conflator.conflate(events).subscribe(subscriber);
+
+        // when windows elapse without demand
+        events.onNext(Arrays.asList(event("1", "TASK_UPDATED", "t1")));
+        Thread.sleep(50);
+        events.onNext(Arrays.asList(event("2", "TASK_UPDATED", "t1"), event("3", "TASK_UPDATED", "t2")));
+        Thread.sleep(50);
+
+        // then
+        assertThat(result).isEmpty();
+        assertThat(subscriber.isDisposed()).isFalse();
+
+        // when
+        subscriber.request(1);
+
+        // then
+        assertThat(result).extracting(this::ids)
+                          .containsExactly(Arrays.asList("2", "3"));
+
+        // when
+        events.onNext(Arrays.asList(event("4", "TASK_UPDATED", "t1")));
+        events.onComplete();
+        subscriber.request(1);
+
+        // then
+        assertThat(result).extracting(this::ids)
+                          .containsExactly(Arrays.asList("2", "3"), Arrays.asList("4"));
+        assertThat(subscriber.isDisposed()).isTrue();
+    }
+
+    private List<Object> ids(List<EngineEvent> events) {
+        return events.stream()
+                     .map(event -> event.get("id"))
+                     .collect(Collectors.toList());
+    }
+
+    private static EngineEvent event(String id, String eventType, String entityId) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("id", id);
+        attributes.put("eventType", eventType);
+        attributes.put("entityId", entityId);
+
+        return new EngineEvent(attributes);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import graphql.language.Field;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.Scalars;
+import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+public class EngineEventsDestinationTest {
+
+    private static final String[] ARGUMENT_NAMES = {"serviceName", "appName", "eventType", "processDefinitionKey", "processInstanceId", "businessKey"};
+
+    @Test
+    public void testResolveDestinationUsesValueSets() {
+        // given
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("serviceName", Arrays.asList("rb1", "rb2"));
+        arguments.put("eventType", Arrays.asList("PROCESS_STARTED", "PROCESS_COMPLETED"));
+        arguments.put("processInstanceId", Arrays.asList("1", "2", "3"));
+
+        DataFetchingEnvironment environment = mockEnvironment(arguments);
+
+        // when
+        EngineEventsDestination destination = new AntPathDestinationResolver().resolveDestination(environment);
+
+        // then
+        assertThat(destination.getName()).isEqualTo("engineEvents");
+        assertThat(destination.getSegments()).containsExactly(new LinkedHashSet<>(Arrays.asList("rb1", "rb2")),
+                                                              null,
+                                                              new LinkedHashSet<>(Arrays.asList("PROCESS_STARTED", "PROCESS_COMPLETED")),
+                                                              null,
+                                                              new LinkedHashSet<>(Arrays.asList("1", "2", "3")),
+                                                              null);
+
+        assertThat(destination.matches(segments("engineEvents.rb2.app.PROCESS_COMPLETED.pd.3._"))).isTrue();
+        assertThat(destination.matches(segments("engineEvents.rb3.app.PROCESS_COMPLETED.pd.3._"))).isFalse();
+        assertThat(destination.matches(segments("engineEvents.rb2.app.TASK_CREATED.pd.3._"))).isFalse();
+        assertThat(destination.matches(segments("engineEvents.rb2.app.PROCESS_COMPLETED.pd.3"))).isFalse();
+    }
+
+    @Test
+    public void testResolveDestinationMatchesCrossJoinPatterns() {
+        // given
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("serviceName", Arrays.asList("rb1", "rb2"));
+        arguments.put("processInstanceId", Arrays.asList("1", "2"));
+
+        DataFetchingEnvironment environment = mockEnvironment(arguments);
+        AntPathDestinationResolver resolver = new AntPathDestinationResolver();
+        AntPathMatcher pathMatcher = new AntPathMatcher(".");
+
+        EngineEventsDestination destination = resolver.resolveDestination(environment);
+        List<String> patterns = resolver.resolveDestinations(environment);
+
+        // then
+        for (String routingKey : Arrays.asList("engineEvents.rb1.app.PROCESS_STARTED.pd.1._",
+                                               "engineEvents.rb2.app.PROCESS_STARTED.pd.2.bk",
+                                               "engineEvents.rb2.app.PROCESS_STARTED.pd.3.bk",
+                                               "engineEvents.rb3.app.PROCESS_STARTED.pd.1.bk")) {
+            boolean expected = patterns.stream().anyMatch(pattern -> pathMatcher.match(pattern, routingKey));
+
+            assertThat(destination.matches(segments(routingKey))).as(routingKey).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testResolveDestinationWithoutArguments() {
+        // given
+        DataFetchingEnvironment environment = mockEnvironment(Collections.emptyMap());
+
+        // when
+        EngineEventsDestination destination = new AntPathDestinationResolver().resolveDestination(environment);
+
+        // then
+        assertThat(destination.isTrailingAny()).isTrue();
+        assertThat(destination.matches(segments("engineEvents.rb.app.PROCESS_STARTED.pd.1._"))).isTrue();
+        assertThat(destination.matches(segments("otherEvents.rb.app.PROCESS_STARTED.pd.1._"))).isFalse();
+    }
+
+    @Test
+    public void testResolveDestinationWithWildcardValues() {
+        // given
+        DataFetchingEnvironment environment = mockEnvironment(Collections.singletonMap("serviceName", Arrays.asList("rb*")));
+
+        // then
+        assertThat(new AntPathDestinationResolver().resolveDestination(environment)).isNull();
+    }
+
+    @Test
+    public void testResolveDestinationIgnoresConflateArgument() {
+        // given
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("processInstanceId", Arrays.asList("1"));
+        arguments.put(EngineEventsPublisherDataFetcher.CONFLATE_ARGUMENT, true);
+
+        DataFetchingEnvironment environment = mockEnvironment(arguments);
+        AntPathDestinationResolver resolver = new AntPathDestinationResolver();
+
+        // when
+        EngineEventsDestination destination = resolver.resolveDestination(environment);
+
+        // then
+        assertThat(destination.getSegments()).hasSize(ARGUMENT_NAMES.length);
+        assertThat(destination.matches(segments("engineEvents.rb.app.PROCESS_STARTED.pd.1._"))).isTrue();
+        assertThat(resolver.resolveDestinations(environment)).containsExactly("engineEvents.*.*.*.*.1.*");
+    }
+
+    @Test
+    public void testFromPattern() {
+        assertThat(EngineEventsDestination.fromPattern("engineEvents.**", ".").isTrailingAny()).isTrue();
+        assertThat(EngineEventsDestination.fromPattern("engineEvents.*.app.**", ".").getSegments()).containsExactly(null, Collections.singleton("app"));
+        assertThat(EngineEventsDestination.fromPattern("engineEvents.**.app", ".")).isNull();
+        assertThat(EngineEventsDestination.fromPattern("engineEvents.rb*.app", ".")).isNull();
+    }
+
+    @Test
+    public void testCustomPathMatcherAppliesToAllPatterns() {
+        // given
+        AntPathMatcher pathMatcher = new AntPathMatcher(".");
+        pathMatcher.setCaseSensitive(false);
+
+        EngineEventsDestinationsPredicateFactory factory = new EngineEventsDestinationsPredicateFactory(mock(RoutingKeyResolver.class))
+                .pathMatcher(pathMatcher);
+
+        DataFetchingEnvironment environment = mockEnvironment(Collections.singletonMap("serviceName", Arrays.asList("RB1")));
+
+        EngineEvent engineEvent = new EngineEvent();
+        engineEvent.setRoutingKey("engineEvents.rb1.app.PROCESS_STARTED.pd.1._");
+
+        // when
+        EngineEventsDestinationsPredicate predicate = (EngineEventsDestinationsPredicate) factory.getPredicate(environment);
+
+        // then
+        assertThat(predicate.getDestinations()).isEmpty();
+        assertThat(predicate.getPatterns()).hasSize(1);
+        assertThat(predicate.test(engineEvent)).isTrue();
+    }
+
+    private static String[] segments(String routingKey) {
+        return routingKey.split("\\.");
+    }
+
+    private static DataFetchingEnvironment mockEnvironment(Map<String, Object> arguments) {
+        GraphQLFieldDefinition.Builder fieldDefinition = GraphQLFieldDefinition.newFieldDefinition()
+                                                                               .name("engineEvents")
+                                                                               .type(GraphQLList.list(Scalars.GraphQLString));
+        for (String name : ARGUMENT_NAMES) {
+            fieldDefinition.argument(GraphQLArgument.newArgument()
+                                                    .name(name)
+                                                    .type(GraphQLList.list(Scalars.GraphQLString)));
+        }
+        fieldDefinition.argument(GraphQLArgument.newArgument()
+                                                .name(EngineEventsPublisherDataFetcher.CONFLATE_ARGUMENT)
+                                                .type(Scalars.GraphQLBoolean));
+
+        DataFetchingEnvironment environment = mock(DataFetchingEnvironment.class);
+
+        when(environment.getFields()).thenReturn(Collections.singletonList(new Field("engineEvents")));
+        when(environment.getFieldDefinition()).thenReturn(fieldDefinition.build());
+        when(environment.getArguments()).thenReturn(arguments);
+        when(environment.getArgument(anyString())).thenAnswer(invocation -> arguments.get(invocation.getArgument(0)));
+
+        return environment;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+public class SegmentDestinationMatcherTest {
+
+    private AntPathMatcher antPathMatcher = new AntPathMatcher(".");
+
+    private SegmentDestinationMatcher subject = new SegmentDestinationMatcher(".");
+
+    private List<String> patterns = Arrays.asList("engineEvents.**",
+                                                  "engineEvents.*",
+                                                  "engineEvents.*.*.*.*.*.*",
+                                                  "engineEvents.rb.*.*.*.*.*",
+                                                  "engineEvents.*.app.PROCESS_STARTED.*.*.*",
+                                                  "engineEvents.**.p1.*",
+                                                  "engineEvents.**.p1.**",
+                                                  "**.PROCESS_*.**",
+                                                  "engineEvents.r?.**",
+                                                  "engineEvents.*.*.*.{key:pd[0-9]}.**",
+                                                  "engineEvents.rb.**.bk",
+                                                  "engineEvents.**.**.bk",
+                                                  "engineEvents.rb",
+                                                  ".engineEvents.**",
+                                                  "engineEvents.**.");
+
+    private List<String> routingKeys = Arrays.asList("engineEvents.rb.app.PROCESS_STARTED.pd1.p1._",
+                                                     "engineEvents.rb.app.PROCESS_COMPLETED.pd2.p2.bk",
+                                                     "engineEvents.rb1.app.TASK_CREATED.pdx.p1.bk",
+                                                     "engineEvents.rb",
+                                                     "engineEvents",
+                                                     "engineEvents.rb.",
+                                                     ".engineEvents.rb",
+                                                     "otherEvents.rb.app.PROCESS_STARTED.pd1.p1._");
+
+    @Test
+    public void testMatchesSameAsAntPathMatcher() {
+        for (String pattern : patterns) {
+            DestinationMatcher.DestinationPattern compiled = subject.compile(pattern);
+
+            for (String routingKey : routingKeys) {
+                String[] segments = StringUtils.tokenizeToStringArray(routingKey, ".", false, true);
+
+                assertThat(compiled.matches(routingKey, segments)).as("%s => %s", pattern, routingKey)
+                                                                  .isEqualTo(antPathMatcher.match(pattern, routingKey));
+            }
+        }
+    }
+
+    @Test
+    public void testGlobSegments() {
+        DestinationMatcher.DestinationPattern compiled = subject.compile("engineEvents.*b.a?p.PROCESS_*");
+
+        assertThat(compiled.matches("engineEvents.rb.app.PROCESS_STARTED", new String[] {"engineEvents", "rb", "app", "PROCESS_STARTED"})).isTrue();
+        assertThat(compiled.matches("engineEvents.rx.app.PROCESS_STARTED", new String[] {"engineEvents", "rx", "app", "PROCESS_STARTED"})).isFalse();
+        assertThat(compiled.matches("engineEvents.rb.ap.PROCESS_STARTED", new String[] {"engineEvents", "rb", "ap", "PROCESS_STARTED"})).isFalse();
+    }
+}
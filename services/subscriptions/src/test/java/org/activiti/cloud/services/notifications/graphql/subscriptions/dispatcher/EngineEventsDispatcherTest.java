@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.subscriptions.dispatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.activiti.cloud.services.notifications.graphql.events.RoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.SpELTemplateRoutingKeyResolver;
+import org.activiti.cloud.services.notifications.graphql.events.model.EngineEvent;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestination;
+import org.activiti.cloud.services.notifications.graphql.subscriptions.datafetcher.EngineEventsDestinationsPredicate;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+public class EngineEventsDispatcherTest {
+
+    private RoutingKeyResolver routingKeyResolver = new SpELTemplateRoutingKeyResolver();
+
+    private EngineEventsDispatcher subject;
+
+    @Before
+    public void setUp() {
+        subject = new EngineEventsDispatcher(routingKeyResolver);
+    }
+
+    @Test
+    public void testDispatchDeliversOnlyMatchingEvents() {
+        // given
+        List<List<EngineEvent>> byProcessInstance = new ArrayList<>();
+        List<List<EngineEvent>> byEventType = new ArrayList<>();
+        List<List<EngineEvent>> all = new ArrayList<>();
+
+        Disposable s1 = subscribe(byProcessInstance, "engineEvents.*.*.*.*.p1.*");
+        Disposable s2 = subscribe(byEventType, "engineEvents.*.*.PROCESS_STARTED.*.*.*", "engineEvents.*.*.PROCESS_COMPLETED.*.*.*");
+        Disposable s3 = subscribe(all, "engineEvents.**");
+
+        assertThat(subject.getSubscriptionCount()).isEqualTo(3);
+
+        EngineEvent e1 = engineEvent("PROCESS_STARTED", "p1");
+        EngineEvent e2 = engineEvent("PROCESS_STARTED", "p2");
+        EngineEvent e3 = engineEvent("TASK_CREATED", "p2");
+
+        // when
+        subject.onNext(MessageBuilder.withPayload(Arrays.asList(e1, e2, e3)).build());
+
+        // then
+        assertThat(byProcessInstance).containsExactly(Arrays.asList(e1));
+        assertThat(byEventType).containsExactly(Arrays.asList(e1, e2));
+        assertThat(all).containsExactly(Arrays.asList(e1, e2, e3));
+
+        // when
+        s1.dispose();
+        s2.dispose();
+        s3.dispose();
+
+        // then
+        assertThat(subject.getSubscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDispatchWithoutMatchesSkipsSubscription() {
+        // given
+        List<List<EngineEvent>> received = new ArrayList<>();
+
+        subscribe(received, "engineEvents.rb.*.*.*.*.*");
+
+        // when
+        subject.onNext(MessageBuilder.withPayload(Arrays.asList(engineEvent("PROCESS_STARTED", "p1"))).build());
+
+        // then
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    public void testDispatchPartitionsCompleteSubscriptionsOnceAllPartitionsComplete() {
+        // given
+        List<List<EngineEvent>> received = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        subject.subscribe(Collections.emptyList(), event -> true)
+               .subscribe(received::add, null, () -> completed.set(true));
+
+        Subscriber<Message<List<EngineEvent>>> first = subject.partition();
+        Subscriber<Message<List<EngineEvent>>> second = subject.partition();
+
+        EngineEvent e1 = engineEvent("PROCESS_STARTED", "p1");
+        EngineEvent e2 = engineEvent("PROCESS_STARTED", "p2");
+
+        // when
+        Flux.just(MessageBuilder.withPayload(Arrays.asList(e1)).build())
+            .subscribe(first);
+
+        // then
+        assertThat(received).containsExactly(Arrays.asList(e1));
+        assertThat(completed).isFalse();
+
+        // when
+        Flux.just(MessageBuilder.withPayload(Arrays.asList(e2)).build())
+            .subscribe(second);
+
+        // then
+        assertThat(received).containsExactly(Arrays.asList(e1), Arrays.asList(e2));
+        assertThat(completed).isTrue();
+    }
+
+    @Test
+    public void testDispatchDropsOldestEventsOfLaggingSubscription() {
+        // given
+        subject = new EngineEventsDispatcher(routingKeyResolver, 4);
+
+        List<List<EngineEvent>> received = new ArrayList<>();
+        BaseSubscriber<List<EngineEvent>> lagging = new BaseSubscriber<List<EngineEvent>>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // stop requesting
+            }
+
+            @Override
+            protected void hookOnNext(List<EngineEvent> value) {
+                received.add(value);
+            }
+        };
+        subscribe("engineEvents.**").subscribe(lagging);
+
+        List<EngineEvent> events = IntStream.range(0, 10)
+                                            .mapToObj(i -> engineEvent("PROCESS_STARTED", "p" + i))
+                                            .collect(Collectors.toList());
+
+        // when
+        events.forEach(event -> subject.onNext(MessageBuilder.withPayload(Arrays.asList(event)).build()));
+
+        // then
+        assertThat(received).isEmpty();
+        assertThat(subject.getDroppedCount()).isEqualTo(6);
+
+        // when
+        lagging.request(Long.MAX_VALUE);
+
+        // then
+        assertThat(received).containsExactly(Arrays.asList(events.get(6)),
+                                             Arrays.asList(events.get(7)),
+                                             Arrays.asList(events.get(8)),
+                                             Arrays.asList(events.get(9)));
+
+        lagging.dispose();
+    }
+
+    private Disposable subscribe(List<List<EngineEvent>> received, String... destinations) {
+        return subscribe(destinations).subscribe(received::add);
+    }
+
+    private Flux<List<EngineEvent>> subscribe(String... destinations) {
+        List<EngineEventsDestination> patterns = Stream.of(destinations)
+                                                       .map(pattern -> EngineEventsDestination.fromPattern(pattern, "."))
+                                                       .collect(Collectors.toList());
+
+        return subject.subscribe(patterns,
+                                 new EngineEventsDestinationsPredicate(patterns,
+                                                                       Collections.emptyList(),
+                                                                       routingKeyResolver::resolveRoutingKey));
+    }
+
+    private EngineEvent engineEvent(String eventType, String processInstanceId) {
+        EngineEvent event = new EngineEvent();
+
+        event.put("serviceName", "my-rb");
+        event.put("appName", "app");
+        event.put("eventType", eventType);
+        event.put("processDefinitionKey", "pd1");
+        event.put("processInstanceId", processInstanceId);
+
+        return event;
+    }
+
+}
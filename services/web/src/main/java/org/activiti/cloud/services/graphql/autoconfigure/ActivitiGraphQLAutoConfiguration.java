@@ -15,6 +15,8 @@
  */
 package org.activiti.cloud.services.graphql.autoconfigure;
 
+import org.activiti.cloud.notifications.graphql.schema.GraphQLQueryCostAnalyzer;
+import org.activiti.cloud.services.graphql.web.ActivitiGraphQLJpaExecutor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -22,7 +24,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.introproventures.graphql.jpa.query.schema.GraphQLExecutor;
-import com.introproventures.graphql.jpa.query.schema.impl.GraphQLJpaExecutor;
 import graphql.GraphQL;
 import graphql.schema.GraphQLSchema;
 
@@ -42,8 +43,12 @@ public class ActivitiGraphQLAutoConfiguration {
 
         @Bean
         @ConditionalOnMissingBean(GraphQLExecutor.class)
-        public GraphQLExecutor graphQLExecutor(GraphQLSchema querySchema) {
-            return new GraphQLJpaExecutor(querySchema);
+        public GraphQLExecutor graphQLExecutor(GraphQLSchema querySchema, ActivitiGraphQLWebProperties properties) {
+            GraphQLQueryCostAnalyzer queryCostAnalyzer = new GraphQLQueryCostAnalyzer(properties.getMaxQueryDepth(),
+                                                                                      properties.getMaxQueryJoins(),
+                                                                                      properties.getMaxQueryCardinality());
+
+            return new ActivitiGraphQLJpaExecutor(querySchema, queryCostAnalyzer);
         }
     }
 }
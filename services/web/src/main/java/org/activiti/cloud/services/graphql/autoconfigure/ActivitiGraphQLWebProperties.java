@@ -39,6 +39,21 @@ public class ActivitiGraphQLWebProperties {
     @NotBlank
     private String path = "/graphql";
 
+    /**
+     * Maximum nesting depth of query fields, 0 for unlimited. Default value is 10
+     */
+    private int maxQueryDepth = 10;
+
+    /**
+     * Maximum number of estimated JPA joins of a query, 0 for unlimited. Default value is 10
+     */
+    private int maxQueryJoins = 10;
+
+    /**
+     * Maximum number of list argument value combinations of a query, 0 for unlimited. Default value is 1000
+     */
+    private long maxQueryCardinality = 1000;
+
     @Configuration
     @PropertySources({
         @PropertySource(value="classpath:META-INF/graphql.properties"),
@@ -82,4 +97,46 @@ public class ActivitiGraphQLWebProperties {
         this.path = path;
     }
 
+    /**
+     * @return the maxQueryDepth
+     */
+    public int getMaxQueryDepth() {
+        return this.maxQueryDepth;
+    }
+
+    /**
+     * @param maxQueryDepth the maxQueryDepth to set
+     */
+    public void setMaxQueryDepth(int maxQueryDepth) {
+        this.maxQueryDepth = maxQueryDepth;
+    }
+
+    /**
+     * @return the maxQueryJoins
+     */
+    public int getMaxQueryJoins() {
+        return this.maxQueryJoins;
+    }
+
+    /**
+     * @param maxQueryJoins the maxQueryJoins to set
+     */
+    public void setMaxQueryJoins(int maxQueryJoins) {
+        this.maxQueryJoins = maxQueryJoins;
+    }
+
+    /**
+     * @return the maxQueryCardinality
+     */
+    public long getMaxQueryCardinality() {
+        return this.maxQueryCardinality;
+    }
+
+    /**
+     * @param maxQueryCardinality the maxQueryCardinality to set
+     */
+    public void setMaxQueryCardinality(long maxQueryCardinality) {
+        this.maxQueryCardinality = maxQueryCardinality;
+    }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.graphql.web;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.introproventures.graphql.jpa.query.schema.impl.GraphQLJpaExecutor;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.language.Document;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLPreparsedDocumentCache;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLQueryCostAnalyzer;
+
+/**
+ * GraphQLJpaExecutor which rejects queries exceeding the {@link GraphQLQueryCostAnalyzer} limits
+ * with a GraphQL error before executing them.
+ *
+ * Parsed documents are kept in a bounded LRU cache, so that the cost of a query text is analyzed once.
+ */
+public class ActivitiGraphQLJpaExecutor extends GraphQLJpaExecutor {
+
+    private final GraphQLSchema graphQLSchema;
+
+    private final GraphQLQueryCostAnalyzer queryCostAnalyzer;
+
+    private final GraphQLPreparsedDocumentCache documentCache;
+
+    /**
+     * Creates instance using GraphQLSchema and GraphQLQueryCostAnalyzer parameters.
+     *
+     * @param graphQLSchema instance
+     * @param queryCostAnalyzer analyzer with cost limits
+     */
+    public ActivitiGraphQLJpaExecutor(GraphQLSchema graphQLSchema, GraphQLQueryCostAnalyzer queryCostAnalyzer) {
+        super(graphQLSchema);
+
+        this.graphQLSchema = graphQLSchema;
+        this.queryCostAnalyzer = queryCostAnalyzer;
+        this.documentCache = new GraphQLPreparsedDocumentCache();
+    }
+
+    @Override
+    public ExecutionResult execute(String query) {
+        try {
+            checkQueryCost(query, Collections.emptyMap());
+        } catch (AbortExecutionException e) {
+            return e.toExecutionResult();
+        }
+
+        return super.execute(query);
+    }
+
+    @Override
+    public ExecutionResult execute(String query, Map<String, Object> arguments) {
+        try {
+            checkQueryCost(query, arguments);
+        } catch (AbortExecutionException e) {
+            return e.toExecutionResult();
+        }
+
+        return super.execute(query, arguments);
+    }
+
+    public GraphQLQueryCostAnalyzer getQueryCostAnalyzer() {
+        return queryCostAnalyzer;
+    }
+
+    private void checkQueryCost(String query, Map<String, Object> arguments) {
+        PreparsedDocumentEntry entry = documentCache.getDocument(ExecutionInput.newExecutionInput(query).build(),
+                                                                 this::parse);
+
+        // invalid queries are reported by the execution
+        if (!entry.hasErrors()) {
+            queryCostAnalyzer.check(graphQLSchema, entry.getDocument(), null, arguments);
+        }
+    }
+
+    private PreparsedDocumentEntry parse(ExecutionInput executionInput) {
+        try {
+            Document document = new Parser().parseDocument(executionInput.getQuery());
+
+            return new PreparsedDocumentEntry(document);
+        } catch (InvalidSyntaxException e) {
+            return new PreparsedDocumentEntry(e.toInvalidSyntaxError());
+        }
+    }
+}
@@ -15,9 +15,22 @@
  */
 package org.activiti.cloud.services.notifications.graphql.ws.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.cloud.notifications.graphql.schema.GraphQLPreparsedDocumentCache;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLQueryCostAnalyzer;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLQueryCostInstrumentation;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerMessageHandler;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerSubProtocolHandler;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLClasspathPersistedQueryStore;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLInMemoryPersistedQueryStore;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLPersistedQueryRegistry;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLPersistedQueryStore;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOperationExecutor;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSubscriptionExecutor;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSubscriptionMultiplexer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -30,6 +43,8 @@ import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StringUtils;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -41,6 +56,10 @@ import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
 import graphql.GraphQL;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
 import graphql.schema.GraphQLSchema;
 
 @Configuration
@@ -81,7 +100,10 @@ public class GraphQLWebSocketMessageBrokerAutoConfiguration {
                                                           MessageChannel clientOutboundChannel,
                                                           SubscribableChannel brokerChannel,
                                                           TaskScheduler messageBrokerTaskScheduler,
-                                                          GraphQLSubscriptionExecutor graphQLSubscriptionExecutor) {
+                                                          GraphQLSubscriptionExecutor graphQLSubscriptionExecutor,
+                                                          ObjectProvider<GraphQLSubscriptionMultiplexer> graphQLSubscriptionMultiplexer,
+                                                          ObjectProvider<GraphQLSessionOperationExecutor> graphQLSessionOperationExecutor,
+                                                          ObjectProvider<GraphQLPersistedQueryRegistry> graphQLPersistedQueryRegistry) {
             GraphQLBrokerMessageHandler messageHandler = new GraphQLBrokerMessageHandler(clientInboundChannel,
                     clientOutboundChannel,
                     brokerChannel,
@@ -89,7 +111,13 @@ public class GraphQLWebSocketMessageBrokerAutoConfiguration {
 
             messageHandler.setTaskScheduler(messageBrokerTaskScheduler)
                           .setBufferCount(configurationProperties.getBufferCount())
-                          .setBufferTimeSpanMs(configurationProperties.getBufferTimeSpanMs());
+                          .setBufferTimeSpanMs(configurationProperties.getBufferTimeSpanMs())
+                          .setMaxBufferCount(configurationProperties.getMaxBufferCount())
+                          .setMaxBufferTimeSpanMs(configurationProperties.getMaxBufferTimeSpanMs())
+                          .setSubscriptionPrefetch(configurationProperties.getSubscriptionPrefetch())
+                          .setSubscriptionMultiplexer(graphQLSubscriptionMultiplexer.getIfAvailable())
+                          .setOperationExecutor(graphQLSessionOperationExecutor.getIfAvailable())
+                          .setPersistedQueryRegistry(graphQLPersistedQueryRegistry.getIfAvailable());
 
             return messageHandler;
         }
@@ -109,15 +137,86 @@ public class GraphQLWebSocketMessageBrokerAutoConfiguration {
         @Bean
         @ConditionalOnMissingBean
         public GraphQLBrokerSubProtocolHandler graphQLBrokerSubProtocolHandler() {
-            return new GraphQLBrokerSubProtocolHandler(configurationProperties.getEndpoint());
+            GraphQLBrokerSubProtocolHandler handler = new GraphQLBrokerSubProtocolHandler(configurationProperties.getEndpoint());
+
+            handler.setOutboundQueueCapacity(configurationProperties.getOutboundQueueCapacity());
+            handler.setOutboundQueueMaxBytes(configurationProperties.getOutboundQueueMaxBytes());
+            handler.setOutboundOverflowPolicy(configurationProperties.getOutboundOverflowPolicy());
+            handler.setOutboundExecutor(clientOutboundChannelExecutor());
+
+            return handler;
         }
         
         @Bean
         @ConditionalOnMissingBean
-        public GraphQLSubscriptionExecutor graphQLSubscriptionExecutor(GraphQLSchema graphQLSchema) {
-            return new GraphQLSubscriptionExecutor(graphQLSchema);
+        public GraphQLSubscriptionExecutor graphQLSubscriptionExecutor(GraphQLSchema graphQLSchema,
+                                                                       ObjectProvider<PreparsedDocumentProvider> preparsedDocumentProvider,
+                                                                       GraphQLQueryCostInstrumentation graphQLQueryCostInstrumentation,
+                                                                       ObjectProvider<Instrumentation> instrumentation) {
+            // query cost limits are checked first and always apply, application instrumentations are chained after
+            List<Instrumentation> instrumentations = new ArrayList<>();
+            instrumentations.add(graphQLQueryCostInstrumentation);
+            instrumentation.orderedStream()
+                           .filter(it -> it != graphQLQueryCostInstrumentation)
+                           .forEach(instrumentations::add);
+
+            return new GraphQLSubscriptionExecutor(graphQLSchema,
+                                                   preparsedDocumentProvider.getIfAvailable(() -> NoOpPreparsedDocumentProvider.INSTANCE),
+                                                   instrumentations.size() == 1 ? graphQLQueryCostInstrumentation
+                                                                                : new ChainedInstrumentation(instrumentations));
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphQLQueryCostInstrumentation graphQLQueryCostInstrumentation() {
+            return new GraphQLQueryCostInstrumentation(new GraphQLQueryCostAnalyzer(configurationProperties.getMaxQueryDepth(),
+                                                                                    configurationProperties.getMaxQueryJoins(),
+                                                                                    configurationProperties.getMaxQueryCardinality()));
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(PreparsedDocumentProvider.class)
+        public GraphQLPreparsedDocumentCache graphQLPreparsedDocumentCache() {
+            return new GraphQLPreparsedDocumentCache(configurationProperties.getPreparsedDocumentCacheSize());
         }
         
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphQLPersistedQueryRegistry graphQLPersistedQueryRegistry(ObjectProvider<GraphQLPersistedQueryStore> graphQLPersistedQueryStore) {
+            String manifest = configurationProperties.getPersistedQueryManifest();
+
+            if (StringUtils.hasText(manifest)) {
+                return new GraphQLPersistedQueryRegistry(new GraphQLClasspathPersistedQueryStore(manifest), true);
+            }
+
+            GraphQLPersistedQueryStore store = graphQLPersistedQueryStore.getIfAvailable(
+                    () -> new GraphQLInMemoryPersistedQueryStore(configurationProperties.getPersistedQueryCacheSize()));
+
+            return new GraphQLPersistedQueryRegistry(store);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphQLSessionOperationExecutor graphQLSessionOperationExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+            executor.setThreadNamePrefix("graphQLOperation-");
+            executor.setCorePoolSize(configurationProperties.getOperationConcurrency());
+            executor.setMaxPoolSize(configurationProperties.getOperationConcurrency());
+            executor.setQueueCapacity(configurationProperties.getOperationQueueCapacity());
+            executor.setAllowCoreThreadTimeOut(true);
+            executor.initialize();
+
+            return new GraphQLSessionOperationExecutor(executor);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(name="spring.activiti.cloud.services.notifications.graphql.ws.subscription-multiplexing", matchIfMissing = true)
+        public GraphQLSubscriptionMultiplexer graphQLSubscriptionMultiplexer() {
+            return new GraphQLSubscriptionMultiplexer(configurationProperties.getSubscriptionMultiplexingBufferSize());
+        }
+
         @Bean
         public ServletServerContainerFactoryBean createWebSocketContainer() {
             ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
@@ -15,9 +15,11 @@
  */
 package org.activiti.cloud.services.notifications.graphql.ws.config;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOutboundQueue.OverflowPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
@@ -72,6 +74,73 @@ public class GraphQLWebSocketMessageBrokerConfigurationProperties {
     @NotNull
     private Integer bufferTimeSpanMs;
 
+    /* Maximum buffer count clients can request with the bufferCount subscription extension, further limited by subscription prefetch. Default is 1000 */
+    @NotNull
+    @Min(0)
+    private Integer maxBufferCount;
+
+    /* Maximum buffer timespan in ms clients can request with the bufferTimeSpanMs subscription extension. Default is 60000 */
+    @NotNull
+    @Min(0)
+    private Long maxBufferTimeSpanMs;
+
+    /* Share a single upstream between identical subscriptions started by different sessions. Default is true */
+    @NotNull
+    private Boolean subscriptionMultiplexing;
+
+    /* Maximum number of shared subscription results buffered per session, the oldest are dropped for sessions lagging behind. Default is 256 */
+    @NotNull
+    @Min(1)
+    private Integer subscriptionMultiplexingBufferSize;
+
+    /* Number of results requested upfront from each subscription upstream, replenished as sent results are queued to the client session. Default is 256 */
+    @NotNull
+    @Min(1)
+    private Integer subscriptionPrefetch;
+
+    /* Maximum number of outbound messages queued per client session. Default is 256 */
+    @NotNull
+    private Integer outboundQueueCapacity;
+
+    /* Maximum number of outbound message bytes queued per client session. Default is 1048576 */
+    @NotNull
+    private Long outboundQueueMaxBytes;
+
+    /* Policy applied to slow client sessions exceeding outbound queue limits: DROP_OLDEST, CONFLATE or DISCONNECT. Default is DROP_OLDEST */
+    @NotNull
+    private OverflowPolicy outboundOverflowPolicy;
+
+    /* Maximum number of parsed and validated subscription documents cached by query text. Default is 256 */
+    @NotNull
+    private Integer preparsedDocumentCacheSize;
+
+    /* Maximum number of client operations executed concurrently off the inbound channel thread. Default is 8 */
+    @NotNull
+    private Integer operationConcurrency;
+
+    /* Maximum number of client sessions with operations waiting for an executor thread. Default is 1024 */
+    @NotNull
+    private Integer operationQueueCapacity;
+
+    /* Maximum nesting depth of operation fields, 0 for unlimited. Default is 10 */
+    @NotNull
+    private Integer maxQueryDepth;
+
+    /* Maximum number of estimated JPA joins of an operation, 0 for unlimited. Default is 10 */
+    @NotNull
+    private Integer maxQueryJoins;
+
+    /* Maximum number of list argument value combinations of an operation, i.e. subscription destinations, 0 for unlimited. Default is 1000 */
+    @NotNull
+    private Long maxQueryCardinality;
+
+    /* Maximum number of automatic persisted queries registered by clients. Default is 1000 */
+    @NotNull
+    private Integer persistedQueryCacheSize;
+
+    /* Classpath location of a JSON manifest of persisted queries by sha256 hash. If set, only manifest queries can be executed. Default is not set */
+    private String persistedQueryManifest;
+
     @Configuration
     @PropertySource("classpath:META-INF/graphql-ws.properties")
     @PropertySource(value="classpath:graphql-ws.properties", ignoreResourceNotFound=true)
@@ -155,6 +224,134 @@ public class GraphQLWebSocketMessageBrokerConfigurationProperties {
         this.bufferTimeSpanMs = bufferTimeSpanMs;
     }
 
+    public Integer getMaxBufferCount() {
+        return maxBufferCount;
+    }
+
+    public void setMaxBufferCount(Integer maxBufferCount) {
+        this.maxBufferCount = maxBufferCount;
+    }
+
+    public Long getMaxBufferTimeSpanMs() {
+        return maxBufferTimeSpanMs;
+    }
+
+    public void setMaxBufferTimeSpanMs(Long maxBufferTimeSpanMs) {
+        this.maxBufferTimeSpanMs = maxBufferTimeSpanMs;
+    }
+
+    public Boolean isSubscriptionMultiplexing() {
+        return subscriptionMultiplexing;
+    }
+
+    public void setSubscriptionMultiplexing(Boolean subscriptionMultiplexing) {
+        this.subscriptionMultiplexing = subscriptionMultiplexing;
+    }
+
+    public Integer getSubscriptionMultiplexingBufferSize() {
+        return subscriptionMultiplexingBufferSize;
+    }
+
+    public void setSubscriptionMultiplexingBufferSize(Integer subscriptionMultiplexingBufferSize) {
+        this.subscriptionMultiplexingBufferSize = subscriptionMultiplexingBufferSize;
+    }
+
+    public Integer getSubscriptionPrefetch() {
+        return subscriptionPrefetch;
+    }
+
+    public void setSubscriptionPrefetch(Integer subscriptionPrefetch) {
+        this.subscriptionPrefetch = subscriptionPrefetch;
+    }
+
+    public Integer getOutboundQueueCapacity() {
+        return outboundQueueCapacity;
+    }
+
+    public void setOutboundQueueCapacity(Integer outboundQueueCapacity) {
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+
+    public Long getOutboundQueueMaxBytes() {
+        return outboundQueueMaxBytes;
+    }
+
+    public void setOutboundQueueMaxBytes(Long outboundQueueMaxBytes) {
+        this.outboundQueueMaxBytes = outboundQueueMaxBytes;
+    }
+
+    public OverflowPolicy getOutboundOverflowPolicy() {
+        return outboundOverflowPolicy;
+    }
+
+    public void setOutboundOverflowPolicy(OverflowPolicy outboundOverflowPolicy) {
+        this.outboundOverflowPolicy = outboundOverflowPolicy;
+    }
+
+    public Integer getPreparsedDocumentCacheSize() {
+        return preparsedDocumentCacheSize;
+    }
+
+    public void setPreparsedDocumentCacheSize(Integer preparsedDocumentCacheSize) {
+        this.preparsedDocumentCacheSize = preparsedDocumentCacheSize;
+    }
+
+    public Integer getOperationConcurrency() {
+        return operationConcurrency;
+    }
+
+    public void setOperationConcurrency(Integer operationConcurrency) {
+        this.operationConcurrency = operationConcurrency;
+    }
+
+    public Integer getOperationQueueCapacity() {
+        return operationQueueCapacity;
+    }
+
+    public void setOperationQueueCapacity(Integer operationQueueCapacity) {
+        this.operationQueueCapacity = operationQueueCapacity;
+    }
+
+    public Integer getMaxQueryDepth() {
+        return maxQueryDepth;
+    }
+
+    public void setMaxQueryDepth(Integer maxQueryDepth) {
+        this.maxQueryDepth = maxQueryDepth;
+    }
+
+    public Integer getMaxQueryJoins() {
+        return maxQueryJoins;
+    }
+
+    public void setMaxQueryJoins(Integer maxQueryJoins) {
+        this.maxQueryJoins = maxQueryJoins;
+    }
+
+    public Long getMaxQueryCardinality() {
+        return maxQueryCardinality;
+    }
+
+    public void setMaxQueryCardinality(Long maxQueryCardinality) {
+        this.maxQueryCardinality = maxQueryCardinality;
+    }
+
+    public Integer getPersistedQueryCacheSize() {
+        return persistedQueryCacheSize;
+    }
+
+    public void setPersistedQueryCacheSize(Integer persistedQueryCacheSize) {
+        this.persistedQueryCacheSize = persistedQueryCacheSize;
+    }
+
+    public String getPersistedQueryManifest() {
+        return persistedQueryManifest;
+    }
+
+    public void setPersistedQueryManifest(String persistedQueryManifest) {
+        this.persistedQueryManifest = persistedQueryManifest;
+    }
+
     public String getSystemLogin() {
         return systemLogin;
     }
@@ -15,8 +15,12 @@
  */
 package org.activiti.cloud.services.notifications.graphql.ws.transport;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import graphql.ExecutionResult;
@@ -33,11 +37,20 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.UnicastProcessor;
 
+/**
+ * Sends subscription execution results to the client as DATA messages.
+ * <p>Upstream demand is replenished as sent results are taken over by the {@link GraphQLSessionOutboundQueue}
+ * of the client session, see {@link GraphQLSessionOutboundQueue#DELIVERY_CALLBACK_HEADER}, so that no more than
+ * prefetch results are in flight on the outbound channel while slow clients are left to the queue overflow policy.
+ */
 public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResult>{
 
+    public static final int DEFAULT_PREFETCH = 256;
+
     private static Logger log = LoggerFactory.getLogger(GraphQLBrokerChannelSubscriber.class);
 
 	private final MessageChannel outboundChannel;
@@ -46,23 +59,56 @@ public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResul
 
 	private final String operationMessageId;
 
-	private final UnicastProcessor<ExecutionResult> processor = UnicastProcessor.create();
+	private final UnicastProcessor<ExecutionResult> processor;
 
     private final AtomicReference<Subscription> subscriptionRef = new AtomicReference<>();
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    private volatile Throwable error;
     
     private final Disposable control;
 
+    private final boolean buffered;
+
+    private final int prefetch;
+
+    private final int limit;
+
+    private final AtomicInteger delivered = new AtomicInteger();
+
 	public GraphQLBrokerChannelSubscriber(Message<?> message,  String operationMessageId,
 			MessageChannel outboundChannel,
 			long bufferTimeSpanMs, int bufferCount)
+	{
+		this(message, operationMessageId, outboundChannel, bufferTimeSpanMs, bufferCount, DEFAULT_PREFETCH);
+	}
+
+	public GraphQLBrokerChannelSubscriber(Message<?> message,  String operationMessageId,
+			MessageChannel outboundChannel,
+			long bufferTimeSpanMs, int bufferCount, int prefetch)
 	{
 		this.outboundChannel = outboundChannel;
 		this.operationMessageId = operationMessageId;
 		this.message = message;
+		this.prefetch = prefetch;
+		// replenish demand when 75% of prefetched results have been delivered
+		this.limit = prefetch == Integer.MAX_VALUE ? Integer.MAX_VALUE : prefetch - (prefetch >> 2);
+		this.buffered = bufferCount > 1 && bufferTimeSpanMs > 0;
 
-        this.control = Flux.from(processor)
-                           .map(ExecutionResult::getData)
-                           .subscribe(this::sendDataToClient);
+		if (buffered) {
+		    this.processor = UnicastProcessor.create();
+		    // upstream error completes the buffer to flush buffered results before the error is sent
+            this.control = Flux.from(processor)
+                               .onErrorResume(this::deferError)
+                               .bufferTimeout(bufferCount, Duration.ofMillis(bufferTimeSpanMs))
+                               .subscribe(this::sendBufferToClient,
+                                          error -> log.error("Failed to send data to client", error),
+                                          this::sendTerminalToClient);
+		} else {
+		    this.processor = null;
+		    this.control = Disposables.single();
+		}
 	}
 
 	public void cancel() {
@@ -84,21 +130,63 @@ public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResul
         log.info("New subscription: {}", s);
         subscriptionRef.set(s);
         
-        requestNext(1);
+        requestNext(prefetch);
     }
 
     @Override
     public void onNext(ExecutionResult executionResult) {
         log.debug("Process {} executionResult {} ", subscriptionRef.get(), executionResult);
-    	processor.onNext(executionResult);
-
-        requestNext(1);
+        if (buffered) {
+            processor.onNext(executionResult);
+        } else {
+            sendExecutionResultToClient(executionResult, 1);
+        }
     }
 
     @Override
     public void onError(Throwable t) {
         log.error("Subscription {} threw an exception {}", subscriptionRef.get(), t);
 
+        if (buffered) {
+            // flush buffered results, error message is sent after them
+            processor.onError(t);
+        } else {
+            sendErrorToClient(t);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        log.info("Subscription complete: {}", subscriptionRef.get());
+
+        if (buffered) {
+            // flush buffered results, complete message is sent after them
+            processor.onComplete();
+        } else {
+            sendCompleteToClient();
+        }
+    }
+
+    private Flux<ExecutionResult> deferError(Throwable t) {
+        this.error = t;
+
+        return Flux.empty();
+    }
+
+    private void sendTerminalToClient() {
+        if (error != null) {
+            sendErrorToClient(error);
+        } else {
+            sendCompleteToClient();
+        }
+    }
+
+    private void sendErrorToClient(Throwable t) {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
+        control.dispose();
+
         Map<String, Object> payload = Collections.singletonMap("errors", Collections.singletonList(t.getMessage()));
 
         GraphQLMessage operationMessage = new GraphQLMessage(operationMessageId, GraphQLMessageType.ERROR, payload);
@@ -109,10 +197,10 @@ public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResul
 		outboundChannel.send(responseMessage);
     }
 
-    @Override
-    public void onComplete() {
-        log.info("Subscription complete: {}", subscriptionRef.get());
-
+    private void sendCompleteToClient() {
+        if (!terminated.compareAndSet(false, true)) {
+            return;
+        }
         cancel();
 
         GraphQLMessage operationMessage = new GraphQLMessage(operationMessageId, GraphQLMessageType.COMPLETE);
@@ -129,11 +217,50 @@ public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResul
         }
     }
 
-    protected void sendDataToClient(Object data) {
+    private void delivered(int results) {
+        int current = delivered.addAndGet(results);
+
+        // concurrent deliveries that lose the race see the limit reached and replenish themselves
+        if (current >= limit && delivered.compareAndSet(current, 0)) {
+            requestNext(current);
+        }
+    }
+
+    private void sendBufferToClient(List<ExecutionResult> results) {
+        List<ExecutionResult> merged = GraphQLExecutionResultBuffer.merge(results);
+
+        // the last frame accounts for all buffered results once delivered
+        for (int i = 0; i < merged.size(); i++) {
+            sendExecutionResultToClient(merged.get(i), i == merged.size() - 1 ? results.size() : 0);
+        }
+    }
+
+    /**
+     * @param executionResult execution result to send
+     * @param results number of upstream results the sent message accounts for once delivered
+     */
+    protected void sendExecutionResultToClient(ExecutionResult executionResult, int results) {
+        if (executionResult instanceof PreparedExecutionResult) {
+            sendPreparedDataToClient(((PreparedExecutionResult) executionResult).getPreparedPayload(), results);
+        } else {
+            sendDataToClient(executionResult.getData(), results);
+        }
+    }
+
+    protected void sendPreparedDataToClient(GraphQLPreparedPayload preparedPayload, int results) {
+        GraphQLMessage operationData = new PreparedGraphQLMessage(operationMessageId, preparedPayload);
+
+        Message<?> responseMessage = MessageBuilder.createMessage(operationData, getMessageHeaders(results));
+
+        // Send message directly to user
+        outboundChannel.send(responseMessage);
+    }
+
+    protected void sendDataToClient(Object data, int results) {
 	    Map<String, Object> payload = Collections.singletonMap("data", data);
 	    GraphQLMessage operationData = new GraphQLMessage(operationMessageId, GraphQLMessageType.DATA, payload);
 
-		Message<?> responseMessage = MessageBuilder.createMessage(operationData, getMessageHeaders());
+		Message<?> responseMessage = MessageBuilder.createMessage(operationData, getMessageHeaders(results));
 
 		// Send message directly to user
 	    outboundChannel.send(responseMessage);
@@ -146,4 +273,17 @@ public class GraphQLBrokerChannelSubscriber implements Subscriber<ExecutionResul
         return headerAccessor.getMessageHeaders();
     }
 
+    private MessageHeaders getMessageHeaders(int results) {
+        if (results == 0 || limit == Integer.MAX_VALUE) {
+            return getMessageHeaders();
+        }
+        // copy headers, each message carries its own delivery callback
+        SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.wrap(message);
+        headerAccessor.setHeader(GraphQLSessionOutboundQueue.DELIVERY_CALLBACK_HEADER,
+                                 (Runnable) () -> delivered(results));
+        headerAccessor.setLeaveMutable(true); // must be mutable to preserve publish order!
+
+        return headerAccessor.getMessageHeaders();
+    }
+
 }
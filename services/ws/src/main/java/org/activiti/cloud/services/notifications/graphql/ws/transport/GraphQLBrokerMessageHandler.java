@@ -15,19 +15,24 @@
  */
 package org.activiti.cloud.services.notifications.graphql.ws.transport;
 
+import java.math.BigDecimal;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import com.codahale.metrics.annotation.Timed;
 import graphql.ExecutionResult;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLPersistedQueryRegistry.PersistedQueryException;
+import org.activiti.cloud.services.notifications.graphql.ws.util.DecodedGraphQLMessage;
 import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
 import org.reactivestreams.Publisher;
 import org.springframework.context.event.EventListener;
@@ -49,6 +54,10 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
     public final static String BROKER_NOT_AVAILABLE = "Broker Not Available.";
 
+    public final static String BUFFER_COUNT = "bufferCount";
+
+    public final static String BUFFER_TIMESPAN_MS = "bufferTimeSpanMs";
+
 	private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<String, SessionInfo>();
 
 	private MessageHeaderInitializer headerInitializer;
@@ -69,6 +78,18 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
 	private int bufferCount = 50;
 
+	private long maxBufferTimeSpanMs = 60000;
+
+	private int maxBufferCount = 1000;
+
+	private int subscriptionPrefetch = GraphQLBrokerChannelSubscriber.DEFAULT_PREFETCH;
+
+	private GraphQLSubscriptionMultiplexer subscriptionMultiplexer;
+
+	private GraphQLSessionOperationExecutor operationExecutor;
+
+	private GraphQLPersistedQueryRegistry persistedQueryRegistry;
+
 	public GraphQLBrokerMessageHandler(SubscribableChannel inboundChannel, MessageChannel outboundChannel,
 			SubscribableChannel brokerChannel, GraphQLSubscriptionExecutor graphQLSubscriptionExecutor) {
 		super(inboundChannel, outboundChannel, brokerChannel);
@@ -103,6 +124,100 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
         return this;
     }
 
+    public long getMaxBufferTimeSpanMs() {
+        return maxBufferTimeSpanMs;
+    }
+
+    /**
+     * Configure the maximum buffer timespan in ms a client can set with the bufferTimeSpanMs subscription extension.
+     * <p>By default this property is set to 60000.
+     */
+    public GraphQLBrokerMessageHandler setMaxBufferTimeSpanMs(long maxBufferTimeSpanMs) {
+        Assert.isTrue(maxBufferTimeSpanMs >= 0, "maxBufferTimeSpanMs must not be negative");
+        this.maxBufferTimeSpanMs = maxBufferTimeSpanMs;
+
+        return this;
+    }
+
+    public int getMaxBufferCount() {
+        return maxBufferCount;
+    }
+
+    /**
+     * Configure the maximum buffer count a client can set with the bufferCount subscription extension,
+     * buffer count is further limited by the subscription prefetch.
+     * <p>By default this property is set to 1000.
+     */
+    public GraphQLBrokerMessageHandler setMaxBufferCount(int maxBufferCount) {
+        Assert.isTrue(maxBufferCount >= 0, "maxBufferCount must not be negative");
+        this.maxBufferCount = maxBufferCount;
+
+        return this;
+    }
+
+    public int getSubscriptionPrefetch() {
+        return subscriptionPrefetch;
+    }
+
+    /**
+     * Configure the number of results requested upfront from each subscription upstream.
+     * Demand is replenished once 75% of the prefetched results have been queued to the client session
+     * by its {@link GraphQLSessionOutboundQueue}, which applies its overflow policy to slow clients.
+     * <p>By default this property is set to {@link GraphQLBrokerChannelSubscriber#DEFAULT_PREFETCH}.
+     */
+    public GraphQLBrokerMessageHandler setSubscriptionPrefetch(int subscriptionPrefetch) {
+        Assert.isTrue(subscriptionPrefetch > 0, "subscriptionPrefetch must be greater than 0");
+        this.subscriptionPrefetch = subscriptionPrefetch;
+
+        return this;
+    }
+
+    public GraphQLSubscriptionMultiplexer getSubscriptionMultiplexer() {
+        return subscriptionMultiplexer;
+    }
+
+    /**
+     * Configure a {@link GraphQLSubscriptionMultiplexer} to share a single upstream between identical
+     * subscriptions started by different sessions.
+     * <p>By default this property is not set and each subscription is executed on its own.
+     */
+    public GraphQLBrokerMessageHandler setSubscriptionMultiplexer(GraphQLSubscriptionMultiplexer subscriptionMultiplexer) {
+        this.subscriptionMultiplexer = subscriptionMultiplexer;
+
+        return this;
+    }
+
+    public GraphQLSessionOperationExecutor getOperationExecutor() {
+        return operationExecutor;
+    }
+
+    /**
+     * Configure a {@link GraphQLSessionOperationExecutor} to execute client operations off the inbound
+     * channel thread, so that a slow operation does not hold other sessions sharing the inbound channel.
+     * Operations of the same session are still executed in order.
+     * <p>By default this property is not set and operations are executed on the inbound channel thread.
+     */
+    public GraphQLBrokerMessageHandler setOperationExecutor(GraphQLSessionOperationExecutor operationExecutor) {
+        this.operationExecutor = operationExecutor;
+
+        return this;
+    }
+
+    public GraphQLPersistedQueryRegistry getPersistedQueryRegistry() {
+        return persistedQueryRegistry;
+    }
+
+    /**
+     * Configure a {@link GraphQLPersistedQueryRegistry} to resolve persisted queries sent by hash
+     * in the {@code persistedQuery} extension of START payloads.
+     * <p>By default this property is not set and START payloads must contain the query text.
+     */
+    public GraphQLBrokerMessageHandler setPersistedQueryRegistry(GraphQLPersistedQueryRegistry persistedQueryRegistry) {
+        this.persistedQueryRegistry = persistedQueryRegistry;
+
+        return this;
+    }
+
     @EventListener
 	public void on(BrokerAvailabilityEvent event) {
 	    this.brokerAvailable.set(event.isBrokerAvailable());
@@ -199,7 +314,7 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
                     long[] serverHeartbeat = getHeartbeatValue();
                     this.sessions.put(sessionId, new SessionInfo(sessionId, user, clientHeartbeat, serverHeartbeat));
 
-                    handleConnectionInitMessage(graphQLMessage);
+                    execute(sessionId, () -> handleConnectionInitMessage(graphQLMessage));
                     break;
 
                 case START:
@@ -209,17 +324,17 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
                         return;
                     }
 
-                    handleStartSubscription(graphQLMessage);
+                    execute(sessionId, () -> handleStartSubscription(graphQLMessage));
                     break;
 
                 case STOP:
                     // stop subscription
-                    handleStopSubscription(graphQLMessage);
+                    execute(sessionId, () -> handleStopSubscription(graphQLMessage));
                     break;
 
                 case CONNECTION_TERMINATE:
                     // end connection
-                    handleConnectionTerminate(graphQLMessage);
+                    execute(sessionId, () -> handleConnectionTerminate(graphQLMessage));
                     break;
 
                 default:
@@ -229,6 +344,14 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
         }
     }
 
+    private void execute(String sessionId, Runnable operation) {
+        if (operationExecutor != null) {
+            operationExecutor.execute(sessionId, operation);
+        } else {
+            operation.run();
+        }
+    }
+
     @Timed
     protected final void handleConnectionInitMessage(Message<GraphQLMessage> message) {
         GraphQLMessage operationPayload = message.getPayload();
@@ -254,13 +377,30 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
         QueryParameters parameters = null;
 
         try {
-            parameters = QueryParameters.from(operationPayload.getPayload());
+            parameters = operationPayload instanceof DecodedGraphQLMessage
+                    ? ((DecodedGraphQLMessage) operationPayload).getQueryParameters()
+                    : QueryParameters.from(operationPayload.getPayload());
         } catch (Exception e) {
             sendErrorMessageToClient(e.getMessage(), GraphQLMessageType.ERROR, message);
             return;
         }
-        ExecutionResult executionResult = graphQLSubscriptionExecutor.execute(parameters.getQuery(),
-                                                                              parameters.getVariables());
+
+        if (persistedQueryRegistry != null) {
+            try {
+                parameters = persistedQueryRegistry.resolve(parameters);
+            } catch (PersistedQueryException e) {
+                sendPersistedQueryErrorToClient(e.getMessage(), message);
+                return;
+            }
+        }
+        // buffer options can be overridden by subscription extensions
+        int subscriptionBufferCount = getSubscriptionBufferCount(parameters);
+        long subscriptionBufferTimeSpanMs = getSubscriptionBufferTimeSpanMs(parameters);
+
+        ExecutionResult executionResult = executeSubscription(parameters,
+                                                              SimpMessageHeaderAccessor.getUser(headers),
+                                                              subscriptionBufferCount,
+                                                              subscriptionBufferTimeSpanMs);
         
         if (executionResult.getErrors().isEmpty()) {
             if (executionResult.getData() == null) {
@@ -271,11 +411,15 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
                         .ifPresent(data -> {
                             MessageChannel outboundChannel = getClientOutboundChannelForSession(sessionId);
                             
+                            // shared upstream results are already buffered by the multiplexer
+                            boolean buffered = subscriptionMultiplexer != null;
+
                             GraphQLBrokerChannelSubscriber subscriber = new GraphQLBrokerChannelSubscriber(message,
                                                                                                            operationPayload.getId(),
                                                                                                            outboundChannel,
-                                                                                                           bufferTimeSpanMs,
-                                                                                                           bufferCount);
+                                                                                                           buffered ? 0 : subscriptionBufferTimeSpanMs,
+                                                                                                           buffered ? 1 : subscriptionBufferCount,
+                                                                                                           subscriptionPrefetch);
                             graphQLsubscriptionRegistry.subscribe(sessionId,
                                                                   operationPayload.getId(),
                                                                   subscriber,
@@ -302,6 +446,61 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
     }
     
+    private ExecutionResult executeSubscription(QueryParameters parameters,
+                                                Principal user,
+                                                int bufferCount,
+                                                long bufferTimeSpanMs) {
+        Supplier<ExecutionResult> executor = () -> graphQLSubscriptionExecutor.execute(parameters.getQuery(),
+                                                                                       parameters.getVariables());
+        if (subscriptionMultiplexer != null) {
+            return subscriptionMultiplexer.execute(parameters,
+                                                   user,
+                                                   executor,
+                                                   results -> GraphQLExecutionResultBuffer.buffer(results,
+                                                                                                  bufferCount,
+                                                                                                  bufferTimeSpanMs));
+        }
+
+        return executor.get();
+    }
+
+    // buffer count must not exceed prefetch, so that a full buffer can be collected without more demand
+    int getSubscriptionBufferCount(QueryParameters parameters) {
+        long count = getExtension(parameters, BUFFER_COUNT, bufferCount, maxBufferCount);
+
+        return (int) Math.min(count, subscriptionPrefetch);
+    }
+
+    long getSubscriptionBufferTimeSpanMs(QueryParameters parameters) {
+        return getExtension(parameters, BUFFER_TIMESPAN_MS, bufferTimeSpanMs, maxBufferTimeSpanMs);
+    }
+
+    private long getExtension(QueryParameters parameters, String name, long defaultValue, long maxValue) {
+        Object value = parameters.getExtensions().get(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        BigDecimal number;
+        try {
+            number = new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid subscription extension " + name + "=" + value);
+            return defaultValue;
+        }
+
+        if (number.signum() < 0 || number.stripTrailingZeros().scale() > 0) {
+            logger.warn("Ignoring invalid subscription extension " + name + "=" + value);
+            return defaultValue;
+        }
+        if (number.compareTo(BigDecimal.valueOf(maxValue)) > 0) {
+            logger.warn("Limiting subscription extension " + name + "=" + value + " to " + maxValue);
+            return maxValue;
+        }
+        return number.longValue();
+    }
+
     private void handleQueryOrMutation(String id, ExecutionResult result, Message<GraphQLMessage> message) {
             Map<String, Object> payload = Collections.singletonMap("data", result.getData());
             MessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.getMutableAccessor(message);
@@ -357,6 +556,22 @@ public class GraphQLBrokerMessageHandler extends AbstractBrokerMessageHandler {
         getClientOutboundChannel().send(errorMessage);
     }
 
+    private void sendPersistedQueryErrorToClient(String code, Message<GraphQLMessage> inputMessage) {
+        // clients expect the error code as message of a GraphQL error object
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("message", code);
+        error.put("extensions", Collections.singletonMap("code", code));
+
+        Map<String, Object> payload = Collections.singletonMap("errors", Collections.singletonList(error));
+        GraphQLMessage persistedQueryError = new GraphQLMessage(inputMessage.getPayload().getId(),
+                                                                GraphQLMessageType.ERROR,
+                                                                payload);
+        MessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.getMutableAccessor(inputMessage);
+
+        getClientOutboundChannel().send(MessageBuilder.createMessage(persistedQueryError,
+                                                                     headerAccessor.getMessageHeaders()));
+    }
+
     private void updateSessionReadTime(String sessionId) {
         if (sessionId != null) {
             SessionInfo info = this.sessions.get(sessionId);
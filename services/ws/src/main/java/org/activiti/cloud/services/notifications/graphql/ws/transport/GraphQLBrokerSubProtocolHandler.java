@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -30,9 +31,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import com.codahale.metrics.annotation.Gauge;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOutboundQueue.OverflowPolicy;
+import org.activiti.cloud.services.notifications.graphql.ws.util.GraphQLMessageCodec;
+import org.activiti.cloud.services.notifications.graphql.ws.util.StreamingGraphQLMessageCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEvent;
@@ -71,10 +74,24 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 
 	private final ObjectMapper objectMapper = new ObjectMapper();
 
+	private GraphQLMessageCodec messageCodec = new StreamingGraphQLMessageCodec(objectMapper);
+
 	private final Map<String, Principal> graphqlAuthentications = new ConcurrentHashMap<String, Principal>();
 
 	private final Stats stats = new Stats();
 
+	private final Map<String, GraphQLSessionOutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+
+	private final GraphQLSessionOutboundQueue.Stats outboundQueueStats = new GraphQLSessionOutboundQueue.Stats();
+
+	private int outboundQueueCapacity = 256;
+
+	private long outboundQueueMaxBytes = 1024 * 1024;
+
+	private OverflowPolicy outboundOverflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+	private Executor outboundExecutor;
+
 	private ApplicationEventPublisher eventPublisher;
 
 	private final String destination;
@@ -103,9 +120,7 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 		if(message instanceof TextMessage) {
 			TextMessage textMessage = (TextMessage) message;
 
-			GraphQLMessage sourceMessage = objectMapper.reader()
-					.forType(GraphQLMessage.class)
-					.readValue(textMessage.getPayload());
+			GraphQLMessage sourceMessage = messageCodec.decode(textMessage.getPayload());
 
 			try {
 				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
@@ -208,10 +223,27 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 			if(GraphQLMessageType.CONNECTION_ACK.equals(operation.getType()))
 				this.stats.incrementConnectedCount();
 
-			byte[] bytes = objectMapper.writer()
-					.writeValueAsBytes(message.getPayload());
+			byte[] bytes = operation instanceof PreparedGraphQLMessage
+					? messageCodec.encode(operation.getId(),
+							operation.getType(),
+							((PreparedGraphQLMessage) operation).getPreparedPayload().getBytes(messageCodec))
+					: messageCodec.encode(operation);
 
-			session.sendMessage(new TextMessage(bytes));
+			Runnable callback = message.getHeaders().get(GraphQLSessionOutboundQueue.DELIVERY_CALLBACK_HEADER,
+					Runnable.class);
+
+			GraphQLSessionOutboundQueue outboundQueue = this.outboundQueues.get(session.getId());
+
+			if (outboundQueue == null) {
+				// session has ended, the message is discarded
+				logger.debug("Dropping message to client in ended session " + session.getId() + ".");
+				if (callback != null) {
+					callback.run();
+				}
+				return;
+			}
+
+			outboundQueue.send(operation, new TextMessage(bytes), callback);
 		}
 		catch (SessionLimitExceededException ex) {
 			// Bad session, just get out
@@ -246,6 +278,13 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 		if (session.getTextMessageSizeLimit() < MINIMUM_WEBSOCKET_MESSAGE_SIZE) {
 			session.setTextMessageSizeLimit(MINIMUM_WEBSOCKET_MESSAGE_SIZE);
 		}
+
+		this.outboundQueues.put(session.getId(), new GraphQLSessionOutboundQueue(session,
+				this.outboundQueueCapacity,
+				this.outboundQueueMaxBytes,
+				this.outboundOverflowPolicy,
+				this.outboundExecutor,
+				this.outboundQueueStats));
 	}
 
 	@Override
@@ -254,6 +293,9 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 
         this.stats.incrementDisconnectCount();
 
+        Optional.ofNullable(this.outboundQueues.remove(session.getId()))
+                .ifPresent(GraphQLSessionOutboundQueue::close);
+
         /*
          * To cleanup we send an internal messages to the handlers. It might be possible
          * that this is an unexpected session end and the client did not unsubscribe his
@@ -302,10 +344,8 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
 
 		GraphQLMessage response = new GraphQLMessage(message.getId(), GraphQLMessageType.CONNECTION_ERROR);
 
-		ObjectWriter writer = objectMapper.writer();
-
 		try {
-			byte[] bytes = writer.writeValueAsBytes(response);
+			byte[] bytes = messageCodec.encode(response);
 
 			session.sendMessage(new TextMessage(bytes));
 		}
@@ -445,6 +485,91 @@ public class GraphQLBrokerSubProtocolHandler implements SubProtocolHandler, Appl
         return this.loggingPeriod;
     }
 
+    /**
+     * Set the codec used to write messages to client sessions.
+     * <p>By default this property is set to {@link StreamingGraphQLMessageCodec}.
+     */
+    public void setMessageCodec(GraphQLMessageCodec messageCodec) {
+        this.messageCodec = messageCodec;
+    }
+
+    public GraphQLMessageCodec getMessageCodec() {
+        return this.messageCodec;
+    }
+
+    /**
+     * Set the maximum number of messages queued for delivery to each client session.
+     * <p>By default this property is set to 256.
+     */
+    public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+
+    public int getOutboundQueueCapacity() {
+        return this.outboundQueueCapacity;
+    }
+
+    /**
+     * Set the maximum number of bytes queued for delivery to each client session.
+     * <p>By default this property is set to 1MB (1024 * 1024).
+     */
+    public void setOutboundQueueMaxBytes(long outboundQueueMaxBytes) {
+        this.outboundQueueMaxBytes = outboundQueueMaxBytes;
+    }
+
+    public long getOutboundQueueMaxBytes() {
+        return this.outboundQueueMaxBytes;
+    }
+
+    /**
+     * Set the policy applied when a client session outbound queue exceeds its limits.
+     * <p>By default this property is set to {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public void setOutboundOverflowPolicy(OverflowPolicy outboundOverflowPolicy) {
+        this.outboundOverflowPolicy = outboundOverflowPolicy;
+    }
+
+    public OverflowPolicy getOutboundOverflowPolicy() {
+        return this.outboundOverflowPolicy;
+    }
+
+    /**
+     * Set the executor used to write queued messages to client sessions.
+     * <p>By default this property is not set and messages are written on the calling thread.
+     */
+    public void setOutboundExecutor(Executor outboundExecutor) {
+        this.outboundExecutor = outboundExecutor;
+    }
+
+    public Executor getOutboundExecutor() {
+        return this.outboundExecutor;
+    }
+
+    @Gauge(name = "outboundQueueDepth", absolute = true)
+    public long getOutboundQueueDepth() {
+        return this.outboundQueueStats.getDepth();
+    }
+
+    @Gauge(name = "outboundQueueBytes", absolute = true)
+    public long getOutboundQueueBytes() {
+        return this.outboundQueueStats.getBytes();
+    }
+
+    @Gauge(name = "outboundDroppedCount", absolute = true)
+    public long getOutboundDroppedCount() {
+        return this.outboundQueueStats.getDroppedCount();
+    }
+
+    @Gauge(name = "outboundConflatedCount", absolute = true)
+    public long getOutboundConflatedCount() {
+        return this.outboundQueueStats.getConflatedCount();
+    }
+
+    @Gauge(name = "outboundDisconnectedCount", absolute = true)
+    public long getOutboundDisconnectedCount() {
+        return this.outboundQueueStats.getDisconnectedCount();
+    }
+
 
 
 }
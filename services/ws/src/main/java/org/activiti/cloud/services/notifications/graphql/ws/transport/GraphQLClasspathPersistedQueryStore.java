@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Read only store of persisted queries loaded from a classpath JSON manifest mapping
+ * sha256 hashes to query texts, i.e. {@code {"<sha256Hash>": "subscription { ... }"}}.
+ * Queries sent by clients are never added, so the manifest acts as an allow list.
+ */
+public class GraphQLClasspathPersistedQueryStore implements GraphQLPersistedQueryStore {
+
+    private final Map<String, String> queries;
+
+    /**
+     * Loads the manifest from the classpath.
+     *
+     * @param location classpath location of the manifest
+     * @throws UncheckedIOException if the manifest cannot be read
+     * @throws IllegalArgumentException if a hash does not match its query
+     */
+    public GraphQLClasspathPersistedQueryStore(String location) {
+        Map<String, String> manifest;
+
+        try (InputStream inputStream = new ClassPathResource(location).getInputStream()) {
+            manifest = new ObjectMapper().readValue(inputStream, new TypeReference<Map<String, String>>() {});
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read persisted query manifest " + location, e);
+        }
+
+        Map<String, String> queries = new HashMap<>();
+
+        manifest.forEach((hash, query) -> {
+            String queryHash = GraphQLPersistedQueryRegistry.sha256Hex(query);
+
+            if (!queryHash.equalsIgnoreCase(hash)) {
+                throw new IllegalArgumentException("Persisted query manifest " + location
+                        + " hash " + hash + " does not match its query");
+            }
+            queries.put(queryHash, query);
+        });
+
+        this.queries = Collections.unmodifiableMap(queries);
+    }
+
+    @Override
+    public String get(String hash) {
+        return queries.get(hash);
+    }
+
+    @Override
+    public void put(String hash, String query) {
+        // read only
+    }
+
+    @Override
+    public int size() {
+        return queries.size();
+    }
+}
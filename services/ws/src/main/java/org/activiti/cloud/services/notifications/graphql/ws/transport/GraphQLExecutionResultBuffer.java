@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import reactor.core.publisher.Flux;
+
+/**
+ * Batches subscription execution results by count and time span, merging the list fields of buffered
+ * results into a single execution result, so that a burst of events is sent to the client in one DATA frame.
+ */
+public final class GraphQLExecutionResultBuffer {
+
+    private GraphQLExecutionResultBuffer() {
+    }
+
+    /**
+     * Buffers execution results until bufferCount results are collected or bufferTimeSpanMs elapses,
+     * whichever comes first, and merges each buffer.
+     *
+     * Results are passed through as is if bufferCount is less than 2 or bufferTimeSpanMs is not positive.
+     *
+     * @param results execution results
+     * @param bufferCount maximum number of results to merge
+     * @param bufferTimeSpanMs maximum time to hold buffered results in ms
+     * @return buffered execution results
+     */
+    public static Flux<ExecutionResult> buffer(Flux<ExecutionResult> results, int bufferCount, long bufferTimeSpanMs) {
+        if (bufferCount < 2 || bufferTimeSpanMs <= 0) {
+            return results;
+        }
+
+        return results.bufferTimeout(bufferCount, Duration.ofMillis(bufferTimeSpanMs))
+                      .flatMapIterable(GraphQLExecutionResultBuffer::merge);
+    }
+
+    /**
+     * Merges execution results whose data is a map of list fields, concatenating the lists in order.
+     * Results with errors, prepared payloads or non list data cannot be merged and are returned as is.
+     *
+     * @param results buffered execution results
+     * @return merged execution results
+     */
+    public static List<ExecutionResult> merge(List<ExecutionResult> results) {
+        if (results.size() < 2 || !results.stream().allMatch(GraphQLExecutionResultBuffer::isMergeable)) {
+            return results;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+
+        for (ExecutionResult result : results) {
+            Map<String, Object> fields = result.getData();
+
+            fields.forEach((name, value) -> {
+                @SuppressWarnings("unchecked")
+                List<Object> merged = (List<Object>) data.computeIfAbsent(name, key -> new ArrayList<>());
+
+                merged.addAll((List<?>) value);
+            });
+        }
+
+        return Collections.singletonList(new ExecutionResultImpl(data, Collections.emptyList()));
+    }
+
+    private static boolean isMergeable(ExecutionResult result) {
+        if (result instanceof PreparedExecutionResult || !result.getErrors().isEmpty()) {
+            return false;
+        }
+
+        Object data = result.getData();
+
+        return data instanceof Map && ((Map<?, ?>) data).values()
+                                                         .stream()
+                                                         .allMatch(List.class::isInstance);
+    }
+}
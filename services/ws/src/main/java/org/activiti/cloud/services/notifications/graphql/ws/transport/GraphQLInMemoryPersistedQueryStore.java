@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU in-memory store of persisted queries registered by clients
+ */
+public class GraphQLInMemoryPersistedQueryStore implements GraphQLPersistedQueryStore {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final Map<String, String> queries;
+
+    public GraphQLInMemoryPersistedQueryStore() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public GraphQLInMemoryPersistedQueryStore(int maximumSize) {
+        this.queries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized String get(String hash) {
+        return queries.get(hash);
+    }
+
+    @Override
+    public synchronized void put(String hash, String query) {
+        queries.put(hash, query);
+    }
+
+    @Override
+    public synchronized int size() {
+        return queries.size();
+    }
+}
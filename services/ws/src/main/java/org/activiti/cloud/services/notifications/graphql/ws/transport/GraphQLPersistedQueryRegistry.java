@@ -0,0 +1,186 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.annotation.Gauge;
+import graphql.GraphQLException;
+import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
+
+/**
+ * Registry of persisted queries identified by the sha256 hash of their text, sent by clients in the
+ * {@code persistedQuery} extension instead of the query text, as per Apollo automatic persisted queries.
+ * <p>Unless in allow list mode, a client sending an unknown hash gets a {@link #PERSISTED_QUERY_NOT_FOUND}
+ * error and retries with both the hash and the query text, which registers the query in the store.
+ * <p>In allow list mode only the queries of the store can be executed, either by hash or by text.
+ */
+public class GraphQLPersistedQueryRegistry {
+
+    public static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+
+    public static final String PERSISTED_QUERY_NOT_ALLOWED = "PersistedQueryNotAllowed";
+
+    public static final String PERSISTED_QUERY_HASH_MISMATCH = "PersistedQueryHashMismatch";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final GraphQLPersistedQueryStore store;
+
+    private final boolean allowList;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong registrations = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    public GraphQLPersistedQueryRegistry(GraphQLPersistedQueryStore store) {
+        this(store, false);
+    }
+
+    /**
+     * @param store persisted queries store
+     * @param allowList whether only the queries of the store can be executed
+     */
+    public GraphQLPersistedQueryRegistry(GraphQLPersistedQueryStore store, boolean allowList) {
+        this.store = store;
+        this.allowList = allowList;
+    }
+
+    /**
+     * Resolves the query text of persisted query parameters and registers new persisted queries.
+     *
+     * @param parameters query parameters
+     * @return parameters with the query text
+     * @throws PersistedQueryException if the query cannot be resolved or is not allowed
+     */
+    public QueryParameters resolve(QueryParameters parameters) throws PersistedQueryException {
+        String hash = parameters.getPersistedQueryHash();
+
+        if (hash == null) {
+            if (allowList && parameters.getQuery() != null
+                    && store.get(sha256Hex(parameters.getQuery())) == null) {
+                rejections.incrementAndGet();
+                throw new PersistedQueryException(PERSISTED_QUERY_NOT_ALLOWED);
+            }
+            return parameters;
+        }
+
+        hash = hash.toLowerCase(Locale.ROOT);
+
+        if (parameters.getQuery() == null) {
+            String query = store.get(hash);
+
+            if (query == null) {
+                misses.incrementAndGet();
+                throw new PersistedQueryException(allowList ? PERSISTED_QUERY_NOT_ALLOWED : PERSISTED_QUERY_NOT_FOUND);
+            }
+            hits.incrementAndGet();
+
+            return parameters.withQuery(query);
+        }
+
+        if (!sha256Hex(parameters.getQuery()).equals(hash)) {
+            rejections.incrementAndGet();
+            throw new PersistedQueryException(PERSISTED_QUERY_HASH_MISMATCH);
+        }
+
+        if (allowList) {
+            if (store.get(hash) == null) {
+                rejections.incrementAndGet();
+                throw new PersistedQueryException(PERSISTED_QUERY_NOT_ALLOWED);
+            }
+        } else {
+            store.put(hash, parameters.getQuery());
+            registrations.incrementAndGet();
+        }
+
+        return parameters;
+    }
+
+    public GraphQLPersistedQueryStore getStore() {
+        return store;
+    }
+
+    public boolean isAllowList() {
+        return allowList;
+    }
+
+    @Gauge(name = "persistedQuerySize", absolute = true)
+    public int getSize() {
+        return store.size();
+    }
+
+    @Gauge(name = "persistedQueryHitCount", absolute = true)
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Gauge(name = "persistedQueryMissCount", absolute = true)
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Gauge(name = "persistedQueryRegistrationCount", absolute = true)
+    public long getRegistrationCount() {
+        return registrations.get();
+    }
+
+    @Gauge(name = "persistedQueryRejectionCount", absolute = true)
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    /**
+     * @return lower case hex sha256 hash of the UTF-8 query text
+     */
+    public static String sha256Hex(String query) {
+        byte[] digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        char[] hex = new char[digest.length * 2];
+
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+
+        return new String(hex);
+    }
+
+    /**
+     * Persisted query error, the message is the error code expected by clients
+     */
+    @SuppressWarnings("serial")
+    public static class PersistedQueryException extends GraphQLException {
+
+        public PersistedQueryException(String code) {
+            super(code);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+/**
+ * Store of persisted query texts by sha256 hash used by {@link GraphQLPersistedQueryRegistry}
+ */
+public interface GraphQLPersistedQueryStore {
+
+    /**
+     * @param hash sha256 hex hash of the query text
+     * @return query text or null if the hash is unknown
+     */
+    String get(String hash);
+
+    /**
+     * Stores the query text by its hash, if the store accepts new queries.
+     *
+     * @param hash sha256 hex hash of the query text
+     * @param query query text
+     */
+    void put(String hash, String query);
+
+    /**
+     * @return number of stored queries
+     */
+    int size();
+}
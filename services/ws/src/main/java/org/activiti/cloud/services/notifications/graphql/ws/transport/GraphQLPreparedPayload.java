@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.activiti.cloud.services.notifications.graphql.ws.util.GraphQLMessageCodec;
+
+/**
+ * DATA message payload shared between all sessions receiving the same execution result.
+ *
+ * The payload is serialized on first use and the resulting bytes are reused for every session,
+ * so that only the per session message envelope needs to be written.
+ */
+public class GraphQLPreparedPayload {
+
+    private final Map<String, Object> payload;
+
+    private volatile byte[] bytes;
+
+    public GraphQLPreparedPayload(Object data) {
+        this.payload = Collections.singletonMap("data", data);
+    }
+
+    public Map<String, Object> getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns serialized payload bytes, writing them with the given codec on first invocation.
+     *
+     * @param codec message codec to serialize payload
+     * @return serialized payload bytes
+     * @throws IOException if payload cannot be serialized
+     */
+    public byte[] getBytes(GraphQLMessageCodec codec) throws IOException {
+        byte[] result = bytes;
+
+        if (result == null) {
+            synchronized (this) {
+                result = bytes;
+                if (result == null) {
+                    bytes = result = codec.encodePayload(payload);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public boolean isSerialized() {
+        return bytes != null;
+    }
+
+}
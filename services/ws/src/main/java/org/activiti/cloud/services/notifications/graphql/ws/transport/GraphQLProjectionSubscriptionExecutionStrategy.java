@@ -0,0 +1,372 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static java.util.Collections.singletonMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import graphql.Assert;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.DataFetcherExceptionHandler;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.FetchedValue;
+import graphql.execution.FieldCollectorParameters;
+import graphql.execution.MergedField;
+import graphql.execution.MergedSelectionSet;
+import graphql.execution.SubscriptionExecutionStrategy;
+import graphql.execution.UnboxPossibleOptional;
+import graphql.execution.reactive.CompletionStageMappingPublisher;
+import graphql.introspection.Introspection;
+import graphql.language.Field;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLEnumType;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.GraphQLTypeUtil;
+import graphql.schema.PropertyDataFetcher;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Subscription execution strategy that compiles the selection set of the subscribed field into a direct
+ * field-copy projection once per subscription, instead of completing every event through graphql-java.
+ *
+ * The projection supports an object or a list of objects selecting scalar and enum fields, resolved by
+ * the default property data fetcher, with aliases, fragments, skip/include directives and __typename.
+ * Selections it cannot compile are executed by the default subscription strategy, and events it cannot
+ * render without errors are completed by the full execution path, so results are identical either way.
+ *
+ * Per field instrumentation is not invoked for projected events.
+ */
+public class GraphQLProjectionSubscriptionExecutionStrategy extends SubscriptionExecutionStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphQLProjectionSubscriptionExecutionStrategy.class);
+
+    private static final ProjectionException CANNOT_PROJECT = new ProjectionException();
+
+    public GraphQLProjectionSubscriptionExecutionStrategy() {
+        super();
+    }
+
+    public GraphQLProjectionSubscriptionExecutionStrategy(DataFetcherExceptionHandler dataFetcherExceptionHandler) {
+        super(dataFetcherExceptionHandler);
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> execute(ExecutionContext executionContext,
+                                                      ExecutionStrategyParameters parameters) {
+        ExecutionStrategyParameters fieldParameters = firstFieldOfSubscriptionSelection(parameters);
+
+        Projection projection = compile(executionContext, fieldParameters);
+
+        if (projection == null) {
+            logger.debug("Cannot compile projection for subscription field {}, using full execution",
+                         fieldParameters.getField().getName());
+
+            return super.execute(executionContext, parameters);
+        }
+
+        return fetchField(executionContext, fieldParameters).thenApply(fetchedValue -> {
+            Object publisher = fetchedValue.getFetchedValue();
+
+            if (publisher == null) {
+                return new ExecutionResultImpl(null, executionContext.getErrors());
+            }
+
+            Assert.assertTrue(publisher instanceof Publisher,
+                              "Your data fetcher must return a Publisher of events when using graphql subscriptions");
+
+            @SuppressWarnings("unchecked")
+            Publisher<ExecutionResult> results = new CompletionStageMappingPublisher<>((Publisher<Object>) publisher,
+                    eventPayload -> executeSubscriptionEvent(executionContext, fieldParameters, projection, eventPayload));
+
+            return new ExecutionResultImpl(results, executionContext.getErrors());
+        });
+    }
+
+    /**
+     * Renders the event payload with the compiled projection, falling back to full execution of the event
+     * if the payload cannot be projected.
+     */
+    protected CompletableFuture<ExecutionResult> executeSubscriptionEvent(ExecutionContext executionContext,
+                                                                          ExecutionStrategyParameters fieldParameters,
+                                                                          Projection projection,
+                                                                          Object eventPayload) {
+        try {
+            Object data = projection.render(eventPayload);
+
+            return CompletableFuture.completedFuture(new ExecutionResultImpl(singletonMap(projection.getResultKey(), data),
+                                                                             executionContext.getErrors()));
+        } catch (RuntimeException e) {
+            logger.trace("Cannot project subscription event, using full execution", e);
+
+            return executeSubscriptionEvent(executionContext, fieldParameters, eventPayload);
+        }
+    }
+
+    /**
+     * Completes the event payload for the subscribed field the same way the default subscription strategy does.
+     */
+    protected CompletableFuture<ExecutionResult> executeSubscriptionEvent(ExecutionContext executionContext,
+                                                                          ExecutionStrategyParameters fieldParameters,
+                                                                          Object eventPayload) {
+        ExecutionContext eventContext = executionContext.transform(builder -> builder.root(eventPayload));
+
+        FetchedValue fetchedValue = FetchedValue.newFetchedValue()
+                                                .fetchedValue(eventPayload)
+                                                .rawFetchedValue(eventPayload)
+                                                .localContext(fieldParameters.getLocalContext())
+                                                .build();
+
+        String resultKey = fieldParameters.getField().getResultKey();
+
+        return completeField(eventContext, fieldParameters, fetchedValue)
+                .getFieldValue()
+                .thenApply(result -> new ExecutionResultImpl(singletonMap(resultKey, result.getData()),
+                                                             result.getErrors()));
+    }
+
+    /**
+     * Compiles the selection set of the subscribed field into a projection.
+     *
+     * @return projection or null if the selection cannot be projected
+     */
+    protected Projection compile(ExecutionContext executionContext, ExecutionStrategyParameters fieldParameters) {
+        MergedField field = fieldParameters.getField();
+        GraphQLFieldDefinition fieldDefinition = getFieldDef(executionContext, fieldParameters, field.getSingleField());
+
+        GraphQLOutputType type = fieldDefinition.getType();
+        boolean list = GraphQLTypeUtil.isList(type);
+
+        if (list) {
+            type = (GraphQLOutputType) ((GraphQLList) type).getWrappedType();
+        }
+
+        if (!(type instanceof GraphQLObjectType)) {
+            return null;
+        }
+
+        GraphQLObjectType objectType = (GraphQLObjectType) type;
+
+        FieldCollectorParameters collectorParameters = FieldCollectorParameters.newParameters()
+                                                                               .schema(executionContext.getGraphQLSchema())
+                                                                               .objectType(objectType)
+                                                                               .fragments(executionContext.getFragmentsByName())
+                                                                               .variables(executionContext.getVariables())
+                                                                               .build();
+
+        MergedSelectionSet selectionSet = fieldCollector.collectFields(collectorParameters, field);
+
+        List<String> keys = selectionSet.getKeys();
+        List<Function<Map<?, ?>, Object>> renderers = new ArrayList<>(keys.size());
+
+        for (String key : keys) {
+            Function<Map<?, ?>, Object> renderer = compileField(executionContext, objectType, selectionSet.getSubField(key));
+
+            if (renderer == null) {
+                return null;
+            }
+            renderers.add(renderer);
+        }
+
+        return new Projection(field.getResultKey(), list, keys.toArray(new String[0]), renderers);
+    }
+
+    private ExecutionStrategyParameters firstFieldOfSubscriptionSelection(ExecutionStrategyParameters parameters) {
+        MergedSelectionSet fields = parameters.getFields();
+        MergedField firstField = fields.getSubField(fields.getKeys().get(0));
+
+        ExecutionPath fieldPath = parameters.getPath().segment(mkNameForPath(firstField.getSingleField()));
+
+        return parameters.transform(builder -> builder.field(firstField).path(fieldPath));
+    }
+
+    private Function<Map<?, ?>, Object> compileField(ExecutionContext executionContext,
+                                                     GraphQLObjectType objectType,
+                                                     MergedField field) {
+        for (Field selection : field.getFields()) {
+            if (selection.getSelectionSet() != null) {
+                return null;
+            }
+        }
+
+        if (Introspection.TypeNameMetaFieldDef.getName().equals(field.getName())) {
+            String typeName = objectType.getName();
+
+            return source -> typeName;
+        }
+
+        GraphQLFieldDefinition fieldDefinition = objectType.getFieldDefinition(field.getName());
+
+        if (fieldDefinition == null) {
+            return null;
+        }
+
+        DataFetcher<?> dataFetcher = executionContext.getGraphQLSchema()
+                                                     .getCodeRegistry()
+                                                     .getDataFetcher(objectType, fieldDefinition);
+
+        if (!(dataFetcher instanceof PropertyDataFetcher)
+                || ((PropertyDataFetcher<?>) dataFetcher).getPropertyName() == null) {
+            return null;
+        }
+
+        String propertyName = ((PropertyDataFetcher<?>) dataFetcher).getPropertyName();
+        GraphQLOutputType fieldType = fieldDefinition.getType();
+
+        if (fieldType instanceof GraphQLScalarType) {
+            GraphQLScalarType scalarType = (GraphQLScalarType) fieldType;
+
+            return source -> serializeScalar(scalarType, fetch(source, propertyName));
+        }
+
+        if (fieldType instanceof GraphQLEnumType) {
+            GraphQLEnumType enumType = (GraphQLEnumType) fieldType;
+
+            return source -> serializeEnum(enumType, fetch(source, propertyName));
+        }
+
+        return null;
+    }
+
+    private static Object fetch(Map<?, ?> source, String propertyName) {
+        Object value = source.get(propertyName);
+
+        if (value instanceof DataFetcherResult || value instanceof CompletionStage) {
+            throw CANNOT_PROJECT;
+        }
+
+        return UnboxPossibleOptional.unboxPossibleOptional(value);
+    }
+
+    private static Object serializeScalar(GraphQLScalarType scalarType, Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        Object serialized = scalarType.getCoercing().serialize(value);
+
+        if (serialized instanceof Double && ((Double) serialized).isNaN()) {
+            return null;
+        }
+
+        return serialized;
+    }
+
+    private static Object serializeEnum(GraphQLEnumType enumType, Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        return enumType.getCoercing().serialize(value);
+    }
+
+    /**
+     * Compiled direct field-copy renderer for the subscribed field of a subscription.
+     */
+    public static class Projection {
+
+        private final String resultKey;
+        private final boolean list;
+        private final String[] keys;
+        private final List<Function<Map<?, ?>, Object>> renderers;
+
+        Projection(String resultKey,
+                   boolean list,
+                   String[] keys,
+                   List<Function<Map<?, ?>, Object>> renderers) {
+            this.resultKey = resultKey;
+            this.list = list;
+            this.keys = keys;
+            this.renderers = renderers;
+        }
+
+        public String getResultKey() {
+            return resultKey;
+        }
+
+        /**
+         * Renders the event payload into result data.
+         *
+         * @throws RuntimeException if the payload cannot be projected without errors
+         */
+        public Object render(Object eventPayload) {
+            Object value = UnboxPossibleOptional.unboxPossibleOptional(eventPayload);
+
+            if (!list) {
+                return renderObject(value);
+            }
+
+            if (value == null) {
+                return null;
+            }
+
+            if (!(value instanceof Iterable)) {
+                throw CANNOT_PROJECT;
+            }
+
+            List<Object> result = new ArrayList<>();
+
+            for (Object item : (Iterable<?>) value) {
+                result.add(renderObject(UnboxPossibleOptional.unboxPossibleOptional(item)));
+            }
+
+            return result;
+        }
+
+        private Map<String, Object> renderObject(Object value) {
+            if (value == null) {
+                return null;
+            }
+
+            if (!(value instanceof Map)) {
+                throw CANNOT_PROJECT;
+            }
+
+            Map<?, ?> source = (Map<?, ?>) value;
+            Map<String, Object> result = new LinkedHashMap<>();
+
+            for (int i = 0; i < keys.length; i++) {
+                result.put(keys[i], renderers.get(i).apply(source));
+            }
+
+            return result;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ProjectionException extends RuntimeException {
+
+        ProjectionException() {
+            super("Cannot project value", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.annotation.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * Executes client session operations on a shared {@link Executor}, off the inbound channel thread.
+ * <p>Operations of the same session are executed one at a time in submission order by a single drain loop,
+ * while operations of different sessions run concurrently up to the executor pool size. If the executor rejects
+ * a session drain loop, i.e. its queue is full, the operations are executed on the calling thread instead.
+ * Session queues are discarded as soon as they are drained.
+ */
+public class GraphQLSessionOperationExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphQLSessionOperationExecutor.class);
+
+    private final Executor executor;
+
+    private final Map<String, SessionOperations> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    public GraphQLSessionOperationExecutor(Executor executor) {
+        Assert.notNull(executor, "executor must not be null");
+
+        this.executor = executor;
+    }
+
+    /**
+     * Queue the operation after any pending operations of the same session.
+     *
+     * @param sessionId client session id, operations without session are executed on the calling thread
+     * @param operation operation to execute
+     */
+    public void execute(String sessionId, Runnable operation) {
+        if (sessionId == null) {
+            run(operation);
+            return;
+        }
+
+        for (;;) {
+            SessionOperations operations = sessions.computeIfAbsent(sessionId, SessionOperations::new);
+
+            synchronized (operations) {
+                if (operations.discarded) {
+                    continue;
+                }
+                operations.queue.offerLast(operation);
+                queueDepth.incrementAndGet();
+
+                if (operations.draining) {
+                    return;
+                }
+                operations.draining = true;
+            }
+
+            try {
+                executor.execute(operations::drain);
+            } catch (RejectedExecutionException ex) {
+                operations.drain();
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executor instanceof DisposableBean) {
+            ((DisposableBean) executor).destroy();
+        }
+    }
+
+    @Gauge(name = "operationQueueDepth", absolute = true)
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Gauge(name = "operationActiveCount", absolute = true)
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Gauge(name = "operationSessionCount", absolute = true)
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @Gauge(name = "operationCompletedCount", absolute = true)
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    @Gauge(name = "operationErrorCount", absolute = true)
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    private void run(Runnable operation) {
+        activeCount.incrementAndGet();
+        try {
+            operation.run();
+        } catch (Throwable ex) {
+            errorCount.incrementAndGet();
+            logger.error("Failed to execute client session operation", ex);
+        } finally {
+            activeCount.decrementAndGet();
+            completedCount.incrementAndGet();
+        }
+    }
+
+    private class SessionOperations {
+
+        private final String sessionId;
+
+        private final Deque<Runnable> queue = new ArrayDeque<>();
+
+        private boolean draining;
+
+        private boolean discarded;
+
+        SessionOperations(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void drain() {
+            for (;;) {
+                Runnable operation;
+
+                synchronized (this) {
+                    operation = queue.pollFirst();
+
+                    if (operation == null) {
+                        draining = false;
+                        discarded = true;
+                        sessions.remove(sessionId, this);
+                        return;
+                    }
+                    queueDepth.decrementAndGet();
+                }
+
+                run(operation);
+            }
+        }
+    }
+}
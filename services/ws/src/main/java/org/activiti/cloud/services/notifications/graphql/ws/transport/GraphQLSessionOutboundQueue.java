@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+/**
+ * Bounded queue of serialized messages waiting to be written to a single client session.
+ * <p>Messages are written in order by a single drain loop, either on the calling thread or on the
+ * configured {@link Executor}, so that a slow client does not hold the publishing threads.
+ * When the message count or byte limit is exceeded the configured {@link OverflowPolicy} is applied.
+ * Only DATA messages are ever dropped.
+ * <p>A message may carry a {@link #DELIVERY_CALLBACK_HEADER} callback, which is run once the queue has taken
+ * the message over, i.e. queued or discarded, so that publishers keep their demand flowing and slow client
+ * sessions are handled by the overflow policy rather than by stalling the publishers.
+ */
+public class GraphQLSessionOutboundQueue {
+
+    /**
+     * Header of outbound messages holding {@link Runnable} to run once the message has been queued or discarded
+     */
+    public static final String DELIVERY_CALLBACK_HEADER = "graphQLDeliveryCallback";
+
+    /**
+     * Close status sent to clients disconnected by the {@link OverflowPolicy#DISCONNECT} policy
+     */
+    public static final CloseStatus SLOW_CONSUMER = new CloseStatus(4008, "Outbound queue limit exceeded");
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphQLSessionOutboundQueue.class);
+
+    public enum OverflowPolicy {
+        /** Drop the oldest queued DATA messages */
+        DROP_OLDEST,
+        /** Replace queued DATA messages of the same operation with the latest one, then drop the oldest */
+        CONFLATE,
+        /** Close the client session */
+        DISCONNECT
+    }
+
+    private final WebSocketSession session;
+
+    private final int capacity;
+
+    private final long maxBytes;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Executor executor;
+
+    private final Stats stats;
+
+    private final Deque<Entry> queue = new ArrayDeque<>();
+
+    private long bytes;
+
+    private boolean draining;
+
+    private boolean closed;
+
+    public GraphQLSessionOutboundQueue(WebSocketSession session,
+                                       int capacity,
+                                       long maxBytes,
+                                       OverflowPolicy overflowPolicy,
+                                       Executor executor,
+                                       Stats stats) {
+        this.session = session;
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+        this.stats = stats;
+    }
+
+    /**
+     * Queue a serialized message and make sure it is going to be written to the session.
+     */
+    public void send(GraphQLMessage message, TextMessage textMessage) {
+        send(message, textMessage, null);
+    }
+
+    /**
+     * Queue a serialized message and make sure it is going to be written to the session.
+     * The callback, if any, is run once the message has been queued or discarded.
+     */
+    public void send(GraphQLMessage message, TextMessage textMessage, Runnable callback) {
+        try {
+            if (!offer(new Entry(message.getId(), message.getType(), textMessage))) {
+                return;
+            }
+        } finally {
+            if (callback != null) {
+                try {
+                    callback.run();
+                } catch (Throwable ex) {
+                    logger.warn("Outbound message delivery callback failed", ex);
+                }
+            }
+        }
+
+        if (executor != null) {
+            executor.execute(this::drain);
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * Discard queued messages, i.e. when the session has ended.
+     */
+    public synchronized void close() {
+        closed = true;
+
+        while (!queue.isEmpty()) {
+            remove(queue.pollFirst());
+        }
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return true if the drain loop has to be started
+     */
+    private synchronized boolean offer(Entry entry) {
+        if (closed) {
+            return false;
+        }
+        add(entry);
+
+        if (isOverflow() && !applyOverflowPolicy(entry)) {
+            return false;
+        }
+        if (draining) {
+            return false;
+        }
+        draining = true;
+
+        return true;
+    }
+
+    private void drain() {
+        for (;;) {
+            Entry entry;
+
+            synchronized (this) {
+                entry = queue.pollFirst();
+
+                if (entry == null) {
+                    draining = false;
+                    return;
+                }
+                remove(entry);
+            }
+
+            try {
+                session.sendMessage(entry.textMessage);
+            } catch (SessionLimitExceededException ex) {
+                closeSession(ex.getStatus());
+                return;
+            } catch (Throwable ex) {
+                // Could be part of normal workflow (e.g. browser tab closed)
+                logger.debug("Failed to send WebSocket message to client in session " + session.getId() + ".", ex);
+                closeSession(CloseStatus.PROTOCOL_ERROR);
+                return;
+            }
+        }
+    }
+
+    private boolean isOverflow() {
+        return queue.size() > capacity || bytes > maxBytes;
+    }
+
+    /**
+     * @return false if the session has been closed
+     */
+    private boolean applyOverflowPolicy(Entry latest) {
+        if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+            logger.warn("Closing slow client session " + session.getId() + " with " + queue.size()
+                    + " queued messages (" + bytes + " bytes)");
+            stats.disconnected.incrementAndGet();
+
+            closed = true;
+            while (!queue.isEmpty()) {
+                remove(queue.pollFirst());
+            }
+            executeOrRun(() -> closeSession(SLOW_CONSUMER));
+
+            return false;
+        }
+
+        if (overflowPolicy == OverflowPolicy.CONFLATE && latest.isData()) {
+            Iterator<Entry> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry != latest && entry.isData() && Objects.equals(entry.id, latest.id)) {
+                    iterator.remove();
+                    remove(entry);
+                    stats.conflated.incrementAndGet();
+                }
+            }
+        }
+
+        Iterator<Entry> iterator = queue.iterator();
+        while (isOverflow() && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.isData()) {
+                iterator.remove();
+                remove(entry);
+                stats.dropped.incrementAndGet();
+            }
+        }
+
+        return true;
+    }
+
+    private void executeOrRun(Runnable task) {
+        if (executor != null) {
+            executor.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private void closeSession(CloseStatus status) {
+        close();
+        try {
+            session.close(status);
+        } catch (IOException ex) {
+            // Ignore
+        }
+    }
+
+    private void add(Entry entry) {
+        queue.offerLast(entry);
+        bytes += entry.size;
+        stats.depth.incrementAndGet();
+        stats.bytes.addAndGet(entry.size);
+    }
+
+    private void remove(Entry entry) {
+        bytes -= entry.size;
+        stats.depth.decrementAndGet();
+        stats.bytes.addAndGet(-entry.size);
+    }
+
+    private static class Entry {
+
+        private final String id;
+
+        private final GraphQLMessageType type;
+
+        private final TextMessage textMessage;
+
+        private final int size;
+
+        Entry(String id, GraphQLMessageType type, TextMessage textMessage) {
+            this.id = id;
+            this.type = type;
+            this.textMessage = textMessage;
+            this.size = textMessage.asBytes().length;
+        }
+
+        boolean isData() {
+            return GraphQLMessageType.DATA.equals(type);
+        }
+    }
+
+    /**
+     * Counters shared by the outbound queues of all client sessions
+     */
+    public static class Stats {
+
+        private final AtomicLong depth = new AtomicLong();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private final AtomicLong dropped = new AtomicLong();
+
+        private final AtomicLong conflated = new AtomicLong();
+
+        private final AtomicLong disconnected = new AtomicLong();
+
+        public long getDepth() {
+            return depth.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        public long getConflatedCount() {
+            return conflated.get();
+        }
+
+        public long getDisconnectedCount() {
+            return disconnected.get();
+        }
+    }
+}
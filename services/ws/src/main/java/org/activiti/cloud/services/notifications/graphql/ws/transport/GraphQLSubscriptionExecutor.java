@@ -21,6 +21,10 @@ import java.util.Map;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.preparsed.NoOpPreparsedDocumentProvider;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
 import graphql.schema.GraphQLSchema;
 
 /**
@@ -37,7 +41,34 @@ public class GraphQLSubscriptionExecutor  {
      * @param graphQLSchema instance
      */
     public GraphQLSubscriptionExecutor(GraphQLSchema graphQLSchema) {
-        this.graphQL = GraphQL.newGraphQL(graphQLSchema).build();
+        this(graphQLSchema, NoOpPreparsedDocumentProvider.INSTANCE);
+    }
+
+    /**
+     * Creates instance using GraphQLSchema and PreparsedDocumentProvider parameters.
+     *
+     * @param graphQLSchema instance
+     * @param preparsedDocumentProvider provider to reuse parsed and validated query documents
+     */
+    public GraphQLSubscriptionExecutor(GraphQLSchema graphQLSchema, PreparsedDocumentProvider preparsedDocumentProvider) {
+        this(graphQLSchema, preparsedDocumentProvider, SimpleInstrumentation.INSTANCE);
+    }
+
+    /**
+     * Creates instance using GraphQLSchema, PreparsedDocumentProvider and Instrumentation parameters.
+     *
+     * @param graphQLSchema instance
+     * @param preparsedDocumentProvider provider to reuse parsed and validated query documents
+     * @param instrumentation instrumentation, i.e. to reject expensive operations before execution
+     */
+    public GraphQLSubscriptionExecutor(GraphQLSchema graphQLSchema,
+                                       PreparsedDocumentProvider preparsedDocumentProvider,
+                                       Instrumentation instrumentation) {
+        this.graphQL = GraphQL.newGraphQL(graphQLSchema)
+                              .preparsedDocumentProvider(preparsedDocumentProvider)
+                              .instrumentation(instrumentation)
+                              .subscriptionExecutionStrategy(new GraphQLProjectionSubscriptionExecutionStrategy())
+                              .build();
     }
 
     public ExecutionResult execute(String query) {
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.codahale.metrics.annotation.Gauge;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * Shares a single upstream subscription publisher between all sessions that start the same
+ * subscription query with the same variables on behalf of the same principal.
+ *
+ * The shared upstream is connected on the first subscriber and cancelled when the last subscriber
+ * unsubscribes, i.e. on STOP or session disconnect, at which point the entry is evicted.
+ * Each shared result is emitted as {@link PreparedExecutionResult} so that its DATA payload is
+ * serialized once for all sessions.
+ *
+ * Each session buffers at most bufferSize shared results and drops the oldest ones, so that a session
+ * which stops requesting does not hold back the shared upstream of the other sessions.
+ */
+public class GraphQLSubscriptionMultiplexer {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static Logger log = LoggerFactory.getLogger(GraphQLSubscriptionMultiplexer.class);
+
+    private final Map<Key, Flux<ExecutionResult>> upstreams = new ConcurrentHashMap<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int bufferSize;
+
+    public GraphQLSubscriptionMultiplexer() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public GraphQLSubscriptionMultiplexer(int bufferSize) {
+        Assert.isTrue(bufferSize > 0, "bufferSize must be greater than 0");
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns execution result for the subscription query, reusing the shared upstream publisher
+     * for the same key if one is active or invoking executor to create a new upstream otherwise.
+     *
+     * Execution results with errors or non-publisher data are returned as is and not shared.
+     *
+     * @param parameters subscription query parameters
+     * @param principal session user, may be null
+     * @param executor executes the subscription query
+     * @return execution result with shared publisher data
+     */
+    public ExecutionResult execute(QueryParameters parameters,
+                                   Principal principal,
+                                   Supplier<ExecutionResult> executor) {
+        return execute(parameters, principal, executor, Function.identity());
+    }
+
+    /**
+     * Returns execution result for the subscription query, reusing the shared upstream publisher
+     * for the same key if one is active or invoking executor to create a new upstream otherwise.
+     *
+     * The transformer is applied once to a new shared upstream, i.e. to batch results for all sessions.
+     * Subscription extensions are part of the key, so that per subscription options are honoured.
+     *
+     * @param parameters subscription query parameters
+     * @param principal session user, may be null
+     * @param executor executes the subscription query
+     * @param transformer transforms new shared upstream results
+     * @return execution result with shared publisher data
+     */
+    public ExecutionResult execute(QueryParameters parameters,
+                                   Principal principal,
+                                   Supplier<ExecutionResult> executor,
+                                   Function<Flux<ExecutionResult>, Flux<ExecutionResult>> transformer) {
+        Key key = new Key(parameters, principal);
+
+        Flux<ExecutionResult> upstream = upstreams.get(key);
+
+        if (upstream == null) {
+            ExecutionResult executionResult = executor.get();
+
+            if (!executionResult.getErrors().isEmpty() || !(executionResult.getData() instanceof Publisher)) {
+                return executionResult;
+            }
+
+            upstream = share(key, transformer.apply(Flux.from(executionResult.<Publisher<ExecutionResult>> getData())));
+
+            Flux<ExecutionResult> existing = upstreams.putIfAbsent(key, upstream);
+
+            if (existing != null) {
+                upstream = existing;
+            } else {
+                log.debug("Created shared upstream for {}", key);
+            }
+        }
+
+        return new ExecutionResultImpl(upstream.onBackpressureBuffer(bufferSize, this::dropped, BufferOverflowStrategy.DROP_OLDEST),
+                                       Collections.emptyList());
+    }
+
+    @Gauge(name = "upstreamCount", absolute = true)
+    public int getUpstreamCount() {
+        return upstreams.size();
+    }
+
+    @Gauge(name = "multiplexedDroppedCount", absolute = true)
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void dropped(ExecutionResult result) {
+        dropped.incrementAndGet();
+    }
+
+    private Flux<ExecutionResult> share(Key key, Flux<ExecutionResult> results) {
+        AtomicReference<Flux<ExecutionResult>> upstream = new AtomicReference<>();
+
+        upstream.set(results
+                         .<ExecutionResult> map(PreparedExecutionResult::new)
+                         .doFinally(signal -> {
+                             upstreams.remove(key, upstream.get());
+                             log.debug("Released shared upstream for {} on {}", key, signal);
+                         })
+                         .publish()
+                         .refCount());
+
+        return upstream.get();
+    }
+
+    /**
+     * Collapses whitespace outside of string literals so that formatting differences between clients
+     * do not produce distinct upstreams for the same subscription document.
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        StringBuilder builder = new StringBuilder(query.length());
+        boolean quoted = false;
+        boolean whitespace = false;
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+
+            if (quoted) {
+                builder.append(c);
+                if (c == '\\' && i + 1 < query.length()) {
+                    builder.append(query.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (Character.isWhitespace(c) || c == ',') {
+                whitespace = builder.length() > 0;
+            } else {
+                if (whitespace) {
+                    builder.append(' ');
+                    whitespace = false;
+                }
+                if (c == '"') {
+                    quoted = true;
+                }
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    static class Key {
+
+        private final String query;
+        private final String operationName;
+        private final Map<String, Object> variables;
+        private final Map<String, Object> extensions;
+        private final String principal;
+        private final int hashCode;
+
+        Key(QueryParameters parameters, Principal principal) {
+            this.query = normalize(parameters.getQuery());
+            this.operationName = parameters.getOperationName();
+            this.variables = Optional.ofNullable(parameters.getVariables()).orElse(Collections.emptyMap());
+            this.extensions = Optional.ofNullable(parameters.getExtensions()).orElse(Collections.emptyMap());
+            this.principal = Optional.ofNullable(principal).map(Principal::getName).orElse(null);
+            this.hashCode = Objects.hash(query, operationName, variables, extensions, this.principal);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode
+                    && Objects.equals(query, other.query)
+                    && Objects.equals(operationName, other.operationName)
+                    && Objects.equals(variables, other.variables)
+                    && Objects.equals(extensions, other.extensions)
+                    && Objects.equals(principal, other.principal);
+        }
+
+        @Override
+        public String toString() {
+            return "[query=" + query + ", operationName=" + operationName + ", variables=" + variables
+                    + ", extensions=" + extensions + ", principal=" + principal + "]";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+
+/**
+ * Execution result emitted by a shared subscription upstream, carrying the prepared DATA payload
+ * that is serialized once for all subscribed sessions.
+ */
+public class PreparedExecutionResult extends ExecutionResultImpl {
+
+    private final GraphQLPreparedPayload preparedPayload;
+
+    public PreparedExecutionResult(ExecutionResult executionResult) {
+        super(executionResult.getData(), executionResult.getErrors(), executionResult.getExtensions());
+
+        this.preparedPayload = new GraphQLPreparedPayload(executionResult.getData());
+    }
+
+    public GraphQLPreparedPayload getPreparedPayload() {
+        return preparedPayload;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+
+/**
+ * DATA message with a shared pre-serialized payload. {@link GraphQLBrokerSubProtocolHandler} writes
+ * the prepared payload bytes as is and only serializes the message id and type for each session.
+ */
+public class PreparedGraphQLMessage extends GraphQLMessage {
+
+    private final GraphQLPreparedPayload preparedPayload;
+
+    public PreparedGraphQLMessage(String id, GraphQLPreparedPayload preparedPayload) {
+        super(id, GraphQLMessageType.DATA, preparedPayload.getPayload());
+
+        this.preparedPayload = preparedPayload;
+    }
+
+    @JsonIgnore
+    public GraphQLPreparedPayload getPreparedPayload() {
+        return preparedPayload;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+
+/**
+ * Message decoded from a client frame keeping its payload as unparsed tokens.
+ *
+ * The payload is materialized on demand, either as a map with {@link #getPayload()}
+ * or directly as {@link QueryParameters} with {@link #getQueryParameters()}.
+ */
+public class DecodedGraphQLMessage extends GraphQLMessage {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private final TokenBuffer payloadTokens;
+
+    private final ObjectMapper objectMapper;
+
+    private volatile Map<String, Object> payload;
+
+    public DecodedGraphQLMessage(String id,
+                                 GraphQLMessageType type,
+                                 TokenBuffer payloadTokens,
+                                 ObjectMapper objectMapper) {
+        super(id, type, null);
+        this.payloadTokens = payloadTokens;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Map<String, Object> getPayload() {
+        Map<String, Object> result = payload;
+
+        if (result == null && payloadTokens != null) {
+            synchronized (this) {
+                result = payload;
+                if (result == null) {
+                    try (JsonParser parser = payloadTokens.asParser(objectMapper)) {
+                        payload = result = objectMapper.readValue(parser, MAP_TYPE);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the payload directly into query parameters without an intermediate map.
+     *
+     * @return query parameters
+     * @throws IOException if payload is missing or is not a valid query
+     */
+    public QueryParameters getQueryParameters() throws IOException {
+        if (payloadTokens == null) {
+            throw new IOException("Missing query payload");
+        }
+
+        try (JsonParser parser = payloadTokens.asParser(objectMapper)) {
+            return QueryParameters.from(parser);
+        }
+    }
+
+    public boolean hasPayload() {
+        return payloadTokens != null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [payload=" + (payload != null ? payload : hasPayload() ? "<unparsed>" : null)
+                + ", id=" + getId()
+                + ", type=" + getType() + "]";
+    }
+
+}
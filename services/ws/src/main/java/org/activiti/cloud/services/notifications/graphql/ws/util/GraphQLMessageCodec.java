@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.util;
+
+import java.io.IOException;
+
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+
+/**
+ * Codec for graphql-ws message envelopes sent to clients
+ */
+public interface GraphQLMessageCodec {
+
+    /**
+     * Encodes the message envelope with its payload
+     */
+    byte[] encode(GraphQLMessage message) throws IOException;
+
+    /**
+     * Encodes a message envelope around an already serialized payload
+     */
+    byte[] encode(String id, GraphQLMessageType type, byte[] payload) throws IOException;
+
+    /**
+     * Serializes a payload, i.e. to be shared between messages with {@link #encode(String, GraphQLMessageType, byte[])}
+     */
+    byte[] encodePayload(Object payload) throws IOException;
+
+    /**
+     * Decodes a message received from a client
+     */
+    GraphQLMessage decode(String text) throws IOException;
+
+}
@@ -21,13 +21,19 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 
 public class QueryParameters {
 
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
     String query;
     String operationName;
     Map<String, Object> variables = Collections.emptyMap();
+    Map<String, Object> extensions = Collections.emptyMap();
 
     public String getQuery() {
         return query;
@@ -41,6 +47,39 @@ public class QueryParameters {
         return variables;
     }
 
+    public Map<String, Object> getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Returns the sha256 hash of a persisted query sent in extensions as
+     * {@code {"persistedQuery": {"version": 1, "sha256Hash": "..."}}}
+     *
+     * @return query hash or null if the query is not persisted
+     */
+    public String getPersistedQueryHash() {
+        Object persistedQuery = extensions.get("persistedQuery");
+
+        if (persistedQuery instanceof Map) {
+            Object hash = ((Map<?, ?>) persistedQuery).get("sha256Hash");
+
+            return hash instanceof String ? (String) hash : null;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of these parameters with the query text, i.e. resolved from a persisted query hash.
+     */
+    public QueryParameters withQuery(String query) {
+        QueryParameters parameters = new QueryParameters();
+        parameters.query = query;
+        parameters.operationName = operationName;
+        parameters.variables = variables;
+        parameters.extensions = extensions;
+        return parameters;
+    }
+
     public static QueryParameters from(String queryMessage) throws JsonParseException, JsonMappingException, IOException {
         Map<String, Object> json = JsonConverter.toMap(queryMessage);
         return from(json);
@@ -51,10 +90,62 @@ public class QueryParameters {
         parameters.query = (String) json.get("query");
         parameters.operationName = (String) json.get("operationName");
         parameters.variables = getVariables(json.get("variables"));
+        parameters.extensions = getExtensions(json.get("extensions"));
         return parameters;
     }
 
 
+    /**
+     * Reads query parameters from a parser positioned before the payload object.
+     * The parser must have an {@link com.fasterxml.jackson.core.ObjectCodec} to read variables and extensions.
+     */
+    public static QueryParameters from(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected query parameters object");
+        }
+
+        QueryParameters parameters = new QueryParameters();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("query".equals(field)) {
+                parameters.query = readString(parser, token, field);
+            } else if ("operationName".equals(field)) {
+                parameters.operationName = readString(parser, token, field);
+            } else if ("variables".equals(field)) {
+                parameters.variables = readVariables(parser, token);
+            } else if ("extensions".equals(field) && token == JsonToken.START_OBJECT) {
+                parameters.extensions = parser.readValueAs(MAP_TYPE);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return parameters;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token, String field) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        // same as the map based parameters, which do not accept anything else than a string
+        throw JsonMappingException.from(parser, "Expected string value for " + field + " but was " + token);
+    }
+
+    private static Map<String, Object> readVariables(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            return parser.readValueAs(MAP_TYPE);
+        } else if (token == JsonToken.VALUE_STRING) {
+            return JsonConverter.toMap(parser.getText());
+        }
+        parser.skipChildren();
+
+        return Collections.emptyMap();
+    }
+
     private static Map<String, Object> getVariables(Object variables) throws JsonParseException, JsonMappingException, IOException {
         if (variables instanceof Map) {
             Map<?, ?> inputVars = (Map) variables;
@@ -65,4 +156,12 @@ public class QueryParameters {
         return JsonConverter.toMap(String.valueOf(variables));
     }
 
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getExtensions(Object extensions) {
+        if (extensions instanceof Map) {
+            return (Map<String, Object>) extensions;
+        }
+        return Collections.emptyMap();
+    }
+
 }
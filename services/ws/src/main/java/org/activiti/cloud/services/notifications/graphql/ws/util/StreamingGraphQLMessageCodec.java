@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+
+/**
+ * Writes graphql-ws envelopes straight into a per thread reusable buffer.
+ *
+ * The envelope fields are written directly in the same order as the {@link GraphQLMessage} bean serialization,
+ * only the payload goes through the cached {@link ObjectWriter}.
+ *
+ * Client frames are decoded in two phases: {@code id} and {@code type} are read with a streaming parser,
+ * while the payload of {@code start} and {@code connection_init} frames is kept as unparsed tokens until it is
+ * needed, see {@link DecodedGraphQLMessage}. Payloads of other frame types are skipped.
+ */
+public class StreamingGraphQLMessageCodec implements GraphQLMessageCodec {
+
+    private static final byte[] PAYLOAD_PREFIX = "{\"payload\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ID_PREFIX = ",\"id\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] TYPE_PREFIX = ",\"type\":".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private static final Map<GraphQLMessageType, byte[]> TYPES = new EnumMap<>(GraphQLMessageType.class);
+
+    static {
+        for (GraphQLMessageType type : GraphQLMessageType.values()) {
+            TYPES.put(type, ("\"" + type + "\"").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final ThreadLocal<ByteArrayBuilder> BUFFERS = ThreadLocal.withInitial(ByteArrayBuilder::new);
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter payloadWriter;
+
+    public StreamingGraphQLMessageCodec() {
+        this(new ObjectMapper());
+    }
+
+    public StreamingGraphQLMessageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.payloadWriter = objectMapper.writer();
+    }
+
+    @Override
+    public byte[] encode(GraphQLMessage message) throws IOException {
+        ByteArrayBuilder buffer = acquire();
+        try {
+            buffer.write(PAYLOAD_PREFIX);
+            if (message.getPayload() == null) {
+                buffer.write(NULL);
+            } else {
+                payloadWriter.writeValue(buffer, message.getPayload());
+            }
+            writeEnvelope(buffer, message.getId(), message.getType());
+
+            return buffer.toByteArray();
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    @Override
+    public byte[] encode(String id, GraphQLMessageType type, byte[] payload) throws IOException {
+        ByteArrayBuilder buffer = acquire();
+        try {
+            buffer.write(PAYLOAD_PREFIX);
+            buffer.write(payload);
+            writeEnvelope(buffer, id, type);
+
+            return buffer.toByteArray();
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    @Override
+    public byte[] encodePayload(Object payload) throws IOException {
+        return payloadWriter.writeValueAsBytes(payload);
+    }
+
+    @Override
+    public GraphQLMessage decode(String text) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected graphql-ws message object");
+            }
+
+            String id = null;
+            GraphQLMessageType type = null;
+            boolean typed = false;
+            TokenBuffer payload = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if ("type".equals(field)) {
+                    type = token == JsonToken.VALUE_NULL ? null : GraphQLMessageType.get(parser.getText());
+                    typed = true;
+                } else if ("id".equals(field)) {
+                    id = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                } else if ("payload".equals(field) && token != JsonToken.VALUE_NULL && (!typed || hasPayload(type))) {
+                    payload = new TokenBuffer(parser);
+                    payload.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return new DecodedGraphQLMessage(id, type, hasPayload(type) ? payload : null, objectMapper);
+        }
+    }
+
+    private static boolean hasPayload(GraphQLMessageType type) {
+        return GraphQLMessageType.START.equals(type) || GraphQLMessageType.CONNECTION_INIT.equals(type);
+    }
+
+    private void writeEnvelope(ByteArrayBuilder buffer, String id, GraphQLMessageType type) {
+        buffer.write(ID_PREFIX);
+        if (id == null) {
+            buffer.write(NULL);
+        } else {
+            buffer.write('"');
+            buffer.write(JsonStringEncoder.getInstance().quoteAsUTF8(id));
+            buffer.write('"');
+        }
+        buffer.write(TYPE_PREFIX);
+        buffer.write(type == null ? NULL : TYPES.get(type));
+        buffer.write('}');
+    }
+
+    private ByteArrayBuilder acquire() {
+        return BUFFERS.get();
+    }
+
+}
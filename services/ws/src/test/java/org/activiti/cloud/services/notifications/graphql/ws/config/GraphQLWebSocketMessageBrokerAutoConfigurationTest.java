@@ -15,7 +15,11 @@
  */
 package org.activiti.cloud.services.notifications.graphql.ws.config;
 
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentation;
 import graphql.schema.GraphQLSchema;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLPreparsedDocumentCache;
+import org.activiti.cloud.notifications.graphql.schema.GraphQLQueryCostInstrumentation;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerSubProtocolHandler;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -25,6 +29,7 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -42,10 +47,24 @@ public class GraphQLWebSocketMessageBrokerAutoConfigurationTest {
     @Autowired
     private GraphQLBrokerSubProtocolHandler graphQLBrokerSubProtocolHandler;
 
+    @Autowired
+    private GraphQLPreparsedDocumentCache graphQLPreparsedDocumentCache;
+
+    @Autowired
+    private GraphQLQueryCostInstrumentation graphQLQueryCostInstrumentation;
+
+    @Autowired
+    private Instrumentation applicationInstrumentation;
+
     @EnableAutoConfiguration
     @SpringBootConfiguration
     static class GraphQLWebSocketMessageBrokerAutoConfigurationTestApplication {
 
+        // application instrumentation does not disable query cost limits
+        @Bean
+        public Instrumentation applicationInstrumentation() {
+            return new SimpleInstrumentation();
+        }
     }
 
     @Test
@@ -18,6 +18,7 @@ package org.activiti.cloud.services.notifications.graphql.ws.config;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import org.activiti.cloud.services.notifications.graphql.ws.config.GraphQLWebSocketMessageBrokerConfigurationProperties;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOutboundQueue.OverflowPolicy;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +55,11 @@ public class GraphQLWebSocketMessageBrokerConfigurationPropertiesTest {
         assertThat(configurationProperties.getEndpoint()).isEqualTo("/ws/graphql");
         assertThat(configurationProperties.getBufferCount()).isEqualTo(50);
         assertThat(configurationProperties.getBufferTimeSpanMs()).isEqualTo(999); // overrides from graphql-ws.properties
+        assertThat(configurationProperties.isSubscriptionMultiplexing()).isEqualTo(true);
+        assertThat(configurationProperties.getOutboundQueueCapacity()).isEqualTo(256);
+        assertThat(configurationProperties.getOutboundQueueMaxBytes()).isEqualTo(1048576L);
+        assertThat(configurationProperties.getOutboundOverflowPolicy()).isEqualTo(OverflowPolicy.DROP_OLDEST);
+        assertThat(configurationProperties.getPreparsedDocumentCacheSize()).isEqualTo(256);
     }
 
 }
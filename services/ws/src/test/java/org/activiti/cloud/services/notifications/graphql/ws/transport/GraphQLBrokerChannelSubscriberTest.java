@@ -17,20 +17,25 @@ package org.activiti.cloud.services.notifications.graphql.ws.transport;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.security.Principal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.websocket.Session;
 
 import graphql.ExecutionResultImpl;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOutboundQueue.OverflowPolicy;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -44,8 +49,10 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+import reactor.core.publisher.Flux;
 
 public class GraphQLBrokerChannelSubscriberTest {
 
@@ -89,7 +96,79 @@ public class GraphQLBrokerChannelSubscriberTest {
         testSubject.onSubscribe(subscription);
 
         // then
-        verify(subscription).request(ArgumentMatchers.eq(1L));
+        verify(subscription).request(ArgumentMatchers.eq((long) GraphQLBrokerChannelSubscriber.DEFAULT_PREFETCH));
+    }
+
+    @Test
+    public void testDeliveredResultsReplenishDemand() {
+        // given
+        GraphQLBrokerChannelSubscriber subscriber = new GraphQLBrokerChannelSubscriber(startMessage("operationId", "sessionId"),
+                                                                                       "operationId",
+                                                                                       messageChannel,
+                                                                                       1000,
+                                                                                       1,
+                                                                                       8);
+        subscriber.onSubscribe(subscription);
+
+        // when
+        for (int i = 0; i < 12; i++) {
+            subscriber.onNext(new ExecutionResultImpl(Collections.singletonMap("key", "value" + i),
+                                                      Collections.emptyList()));
+        }
+
+        // then
+        verify(messageChannel, times(12)).send(messageCaptor.capture());
+        verify(subscription).request(8L);
+        verifyNoMoreInteractions(subscription);
+
+        // when
+        messageCaptor.getAllValues()
+                     .forEach(message -> message.getHeaders()
+                                                .get(GraphQLSessionOutboundQueue.DELIVERY_CALLBACK_HEADER, Runnable.class)
+                                                .run());
+
+        // then
+        verify(subscription, times(2)).request(6L);
+        verifyNoMoreInteractions(subscription);
+    }
+
+    @Test
+    public void testStalledSessionIsLeftToOutboundQueuePolicy() throws Exception {
+        // given
+        WebSocketSession session = mock(WebSocketSession.class);
+        GraphQLSessionOutboundQueue.Stats stats = new GraphQLSessionOutboundQueue.Stats();
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session,
+                                                                            4,
+                                                                            1024 * 1024,
+                                                                            OverflowPolicy.DROP_OLDEST,
+                                                                            task -> { }, // stalled session
+                                                                            stats);
+        MessageChannel outboundChannel = (message, timeout) -> {
+            queue.send((GraphQLMessage) message.getPayload(),
+                       new TextMessage("data"),
+                       message.getHeaders().get(GraphQLSessionOutboundQueue.DELIVERY_CALLBACK_HEADER, Runnable.class));
+            return true;
+        };
+        GraphQLBrokerChannelSubscriber subscriber = new GraphQLBrokerChannelSubscriber(startMessage("operationId", "sessionId"),
+                                                                                       "operationId",
+                                                                                       outboundChannel,
+                                                                                       1000,
+                                                                                       1,
+                                                                                       8);
+        AtomicLong requested = new AtomicLong();
+
+        // when
+        Flux.range(0, 100)
+            .doOnRequest(requested::addAndGet)
+            .map(i -> new ExecutionResultImpl(Collections.singletonMap("key", "value" + i), Collections.emptyList()))
+            .subscribe(subscriber);
+
+        // then
+        assertThat(requested.get()).isGreaterThanOrEqualTo(100);
+        // the latest DATA messages and COMPLETE are kept
+        assertThat(queue.size()).isEqualTo(4);
+        assertThat(stats.getDroppedCount()).isEqualTo(97);
+        verify(session, never()).sendMessage(ArgumentMatchers.any());
     }
 
     @Test
@@ -107,6 +186,45 @@ public class GraphQLBrokerChannelSubscriberTest {
 
     }
 
+    @Test
+    public void testOnNextMergesBufferedResults() {
+        // given
+        GraphQLBrokerChannelSubscriber subscriber = new GraphQLBrokerChannelSubscriber(startMessage("operationId", "sessionId"),
+                                                                                       "operationId",
+                                                                                       messageChannel,
+                                                                                       60000,
+                                                                                       3);
+        subscriber.onSubscribe(subscription);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            subscriber.onNext(new ExecutionResultImpl(Collections.singletonMap("engineEvents",
+                                                                               Arrays.asList("event" + i)),
+                                                      Collections.emptyList()));
+        }
+
+        // then
+        verify(messageChannel, times(1)).send(ArgumentMatchers.any());
+
+        // when
+        subscriber.onComplete();
+
+        // then
+        verify(messageChannel, times(3)).send(messageCaptor.capture());
+
+        assertThat(messageCaptor.getAllValues()).extracting(Message::getPayload)
+                                                .extracting(GraphQLMessage::getType)
+                                                .containsExactly(GraphQLMessageType.DATA,
+                                                                 GraphQLMessageType.DATA,
+                                                                 GraphQLMessageType.COMPLETE);
+        assertThat(messageCaptor.getAllValues().get(0).getPayload().getPayload()).containsEntry("data",
+                                                                                               Collections.singletonMap("engineEvents",
+                                                                                                                        Arrays.asList("event0", "event1", "event2")));
+        assertThat(messageCaptor.getAllValues().get(1).getPayload().getPayload()).containsEntry("data",
+                                                                                               Collections.singletonMap("engineEvents",
+                                                                                                                        Arrays.asList("event3")));
+    }
+
     @Test
     public void testOnError() {
         // given
@@ -122,6 +240,38 @@ public class GraphQLBrokerChannelSubscriberTest {
         assertThat(messageCaptor.getValue().getPayload().getType()).isEqualTo(GraphQLMessageType.ERROR);
     }
 
+    @Test
+    public void testOnErrorFlushesBufferedResultsBeforeError() {
+        // given
+        GraphQLBrokerChannelSubscriber subscriber = new GraphQLBrokerChannelSubscriber(startMessage("operationId", "sessionId"),
+                                                                                       "operationId",
+                                                                                       messageChannel,
+                                                                                       60000,
+                                                                                       3);
+        subscriber.onSubscribe(subscription);
+
+        for (int i = 0; i < 2; i++) {
+            subscriber.onNext(new ExecutionResultImpl(Collections.singletonMap("engineEvents",
+                                                                               Arrays.asList("event" + i)),
+                                                      Collections.emptyList()));
+        }
+
+        // when
+        subscriber.onError(new RuntimeException("boom"));
+        subscriber.onComplete();
+
+        // then
+        verify(messageChannel, times(2)).send(messageCaptor.capture());
+
+        assertThat(messageCaptor.getAllValues()).extracting(Message::getPayload)
+                                                .extracting(GraphQLMessage::getType)
+                                                .containsExactly(GraphQLMessageType.DATA,
+                                                                 GraphQLMessageType.ERROR);
+        assertThat(messageCaptor.getAllValues().get(0).getPayload().getPayload()).containsEntry("data",
+                                                                                               Collections.singletonMap("engineEvents",
+                                                                                                                        Arrays.asList("event0", "event1")));
+    }
+
     @Test
     public void testOnComplete() {
         // given
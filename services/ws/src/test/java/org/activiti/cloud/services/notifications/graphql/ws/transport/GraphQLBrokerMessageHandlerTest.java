@@ -20,9 +20,12 @@ import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.math.BigInteger;
 import java.security.Principal;
 import java.time.Duration;
 import java.util.Collections;
@@ -43,6 +46,7 @@ import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBro
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerMessageHandler;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerSubscriptionRegistry;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSubscriptionExecutor;
+import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -204,8 +208,8 @@ public class GraphQLBrokerMessageHandlerTest {
         Message<GraphQLMessage> message = startMessage("operationId", "sess1");
         CountDownLatch completeLatch = new CountDownLatch(1);
 
-        // Simulate stomp relay  subscription stream
-        Flux<ExecutionResult> mockStompRelayObservable = Flux.interval(Duration.ZERO, Duration.ofMillis(20))
+        // Simulate stomp relay  subscription stream, delayed to let the subscriber subscribe to the hot publisher
+        Flux<ExecutionResult> mockStompRelayObservable = Flux.interval(Duration.ofMillis(200), Duration.ofMillis(20))
                                                              .take(100)                   
                                                              .map(i -> {
                                                                  Map<String, Object> data = new HashMap<>();
@@ -230,6 +234,10 @@ public class GraphQLBrokerMessageHandlerTest {
         observable.verify(Duration.ofMinutes(2));
 
         assertThat(completeLatch.await(2000, TimeUnit.MILLISECONDS)).isTrue();
+
+        // buffered results are flushed before complete message
+        verify(this.clientOutboundChannel, timeout(2000)).send(Mockito.argThat(m -> m.getPayload() instanceof GraphQLMessage
+                && GraphQLMessageType.COMPLETE.equals(((GraphQLMessage) m.getPayload()).getType())));
         
         // then get last message
         verify(this.clientOutboundChannel, atLeast(99)).send(this.messageCaptor.capture());
@@ -283,6 +291,62 @@ public class GraphQLBrokerMessageHandlerTest {
         assertThat(messageCaptor.getValue().getPayload().getPayload()).containsKey("errors");
     }
 
+    @Test
+    public void testHandleStartMessageUnknownPersistedQuerySendsNotFoundError() {
+        // given
+        messageHandler.setPersistedQueryRegistry(new GraphQLPersistedQueryRegistry(new GraphQLInMemoryPersistedQueryStore()));
+
+        SimpMessageHeaderAccessor headerAccessor = simpHeaderAccessor(mockWebSocketSession("sess1"));
+        Map<String, Object> json = new HashMap<>();
+        json.put("extensions", Collections.singletonMap("persistedQuery",
+                                                        Collections.singletonMap("sha256Hash", "unknown")));
+
+        Message<GraphQLMessage> message = MessageBuilder.createMessage(new GraphQLMessage("id", GraphQLMessageType.START, json),
+                                                                       headerAccessor.getMessageHeaders());
+
+        // when
+        this.messageHandler.handleMessage(message);
+
+        // then
+        verify(graphQLExecutor, never()).execute(Mockito.anyString(), Mockito.any());
+        verify(this.clientOutboundChannel).send(this.messageCaptor.capture());
+
+        assertThat(messageCaptor.getValue().getPayload().getType()).isEqualTo(GraphQLMessageType.ERROR);
+        assertThat(messageCaptor.getValue().getPayload().getId()).isEqualTo("id");
+        assertThat(messageCaptor.getValue().getPayload().getPayload().get("errors").toString())
+                .contains(GraphQLPersistedQueryRegistry.PERSISTED_QUERY_NOT_FOUND);
+    }
+
+    @Test
+    public void testSubscriptionBufferExtensionsAreLimited() throws Exception {
+        // given
+        messageHandler.setBufferCount(50)
+                      .setBufferTimeSpanMs(1000)
+                      .setMaxBufferCount(100)
+                      .setMaxBufferTimeSpanMs(5000)
+                      .setSubscriptionPrefetch(80);
+
+        // then
+        assertThat(messageHandler.getSubscriptionBufferCount(extensions(Collections.emptyMap()))).isEqualTo(50);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(20))).isEqualTo(20);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount("30"))).isEqualTo(30);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(0))).isEqualTo(0);
+        // limited by prefetch
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(90))).isEqualTo(80);
+        // limited by maximum, without int overflow
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(4294967298L))).isEqualTo(80);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(new BigInteger("18446744073709551618")))).isEqualTo(80);
+        // ignored
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(-1))).isEqualTo(50);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount(2.5))).isEqualTo(50);
+        assertThat(messageHandler.getSubscriptionBufferCount(bufferCount("many"))).isEqualTo(50);
+
+        assertThat(messageHandler.getSubscriptionBufferTimeSpanMs(extensions(Collections.emptyMap()))).isEqualTo(1000);
+        assertThat(messageHandler.getSubscriptionBufferTimeSpanMs(bufferTimeSpanMs(200))).isEqualTo(200);
+        assertThat(messageHandler.getSubscriptionBufferTimeSpanMs(bufferTimeSpanMs(Long.MAX_VALUE))).isEqualTo(5000);
+        assertThat(messageHandler.getSubscriptionBufferTimeSpanMs(bufferTimeSpanMs(-200))).isEqualTo(1000);
+    }
+
     @Test
     public void testHandleStartMessageBrokerUnavailableSendsError() {
         // given
@@ -371,6 +435,22 @@ public class GraphQLBrokerMessageHandlerTest {
         return MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
     }
 
+    private QueryParameters bufferCount(Object value) throws Exception {
+        return extensions(Collections.singletonMap(GraphQLBrokerMessageHandler.BUFFER_COUNT, value));
+    }
+
+    private QueryParameters bufferTimeSpanMs(Object value) throws Exception {
+        return extensions(Collections.singletonMap(GraphQLBrokerMessageHandler.BUFFER_TIMESPAN_MS, value));
+    }
+
+    private QueryParameters extensions(Map<String, Object> extensions) throws Exception {
+        Map<String, Object> json = new HashMap<>();
+        json.put("query", "subscription { engineEvents { eventType } }");
+        json.put("extensions", extensions);
+
+        return QueryParameters.from(json);
+    }
+
     private Message<GraphQLMessage> stopMessage(String operationId, String sessionId) {
         SimpMessageHeaderAccessor headerAccessor = simpHeaderAccessor(mockWebSocketSession(sessionId));
 
@@ -26,9 +26,12 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.websocket.Session;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
 import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
 import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLBrokerSubProtocolHandler;
@@ -178,7 +181,7 @@ public class GraphQLBrokerSubProtocolHandlerTest {
     }
 
     @Test
-    public void testHandleConnectionAckMessageToClient() throws IOException {
+    public void testHandleConnectionAckMessageToClient() throws Exception {
         // given
         WebSocketSession session = spy(mockWebSocketSession("sess1"));
 
@@ -186,6 +189,8 @@ public class GraphQLBrokerSubProtocolHandlerTest {
 
         Message<GraphQLMessage> message = connectionAckMessage("operationId", session);
 
+        testSubject.afterSessionStarted(session, outputChannel);
+
         // when
         testSubject.handleMessageToClient(session, message);
 
@@ -195,13 +200,43 @@ public class GraphQLBrokerSubProtocolHandlerTest {
     }
 
     @Test
-    public void testHandleProtocolErrorMessageToClient() throws IOException {
+    public void testHandlePreparedDataMessageToClientSharesPayloadBytes() throws Exception {
+        // given
+        WebSocketSession session1 = spy(mockWebSocketSession("sess1"));
+        WebSocketSession session2 = spy(mockWebSocketSession("sess2"));
+        ArgumentCaptor<TextMessage> textMessageCaptor = ArgumentCaptor.forClass(TextMessage.class);
+
+        doNothing().when(session1).sendMessage(textMessageCaptor.capture());
+        doNothing().when(session2).sendMessage(textMessageCaptor.capture());
+
+        GraphQLPreparedPayload preparedPayload = new GraphQLPreparedPayload(Collections.singletonMap("engineEvents",
+                                                                                                     Collections.singletonList("\"event\"")));
+
+        testSubject.afterSessionStarted(session1, outputChannel);
+        testSubject.afterSessionStarted(session2, outputChannel);
+
+        // when
+        testSubject.handleMessageToClient(session1, preparedDataMessage("1", preparedPayload, session1));
+        testSubject.handleMessageToClient(session2, preparedDataMessage("2", preparedPayload, session2));
+
+        // then
+        assertThat(preparedPayload.isSerialized()).isTrue();
+        assertThat(textMessageCaptor.getAllValues()).extracting(TextMessage::getPayload)
+                                                    .containsExactly(new ObjectMapper().writeValueAsString(new GraphQLMessage("1", GraphQLMessageType.DATA, preparedPayload.getPayload())),
+                                                                     new ObjectMapper().writeValueAsString(new GraphQLMessage("2", GraphQLMessageType.DATA, preparedPayload.getPayload())));
+        assertThat(textMessageCaptor.getValue().getPayload()).isEqualTo("{\"payload\":{\"data\":{\"engineEvents\":[\"\\\"event\\\"\"]}},\"id\":\"2\",\"type\":\"data\"}");
+    }
+
+    @Test
+    public void testHandleProtocolErrorMessageToClient() throws Exception {
         // given
         WebSocketSession session = spy(mockWebSocketSession("sess1"));
         doThrow(RuntimeException.class).when(session).sendMessage(ArgumentMatchers.any(TextMessage.class));
 
         Message<GraphQLMessage> message = connectionAckMessage("operationId", session);
 
+        testSubject.afterSessionStarted(session, outputChannel);
+
         // when
         testSubject.handleMessageToClient(session, message);
 
@@ -226,6 +261,29 @@ public class GraphQLBrokerSubProtocolHandlerTest {
         assertThat(messageCaptor.getValue().getPayload().getType()).isEqualTo(GraphQLMessageType.CONNECTION_TERMINATE);
     }
 
+    @Test
+    public void testHandleMessageToClientAfterSessionEndedIsDropped() throws Exception {
+        // given
+        WebSocketSession session = spy(mockWebSocketSession("sess1"));
+        AtomicInteger delivered = new AtomicInteger();
+
+        SimpMessageHeaderAccessor headerAccessor = simpHeaderAccessor(session);
+        headerAccessor.setHeader(GraphQLSessionOutboundQueue.DELIVERY_CALLBACK_HEADER, (Runnable) delivered::incrementAndGet);
+        Message<GraphQLMessage> message = MessageBuilder.createMessage(new GraphQLMessage("operationId", GraphQLMessageType.DATA, Collections.emptyMap()),
+                                                                       headerAccessor.getMessageHeaders());
+
+        testSubject.afterSessionStarted(session, outputChannel);
+        testSubject.afterSessionEnded(session, CloseStatus.NORMAL, outputChannel);
+
+        // when
+        testSubject.handleMessageToClient(session, message);
+
+        // then
+        verify(session, never()).sendMessage(ArgumentMatchers.any());
+        assertThat(delivered).hasValue(1);
+        assertThat(testSubject.getOutboundQueueDepth()).isZero();
+    }
+
     @Test
     public void testAfterSessionStarted() throws Exception {
         // given
@@ -263,6 +321,16 @@ public class GraphQLBrokerSubProtocolHandlerTest {
         return MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
     }
 
+    private Message<GraphQLMessage> preparedDataMessage(String operationId,
+                                                        GraphQLPreparedPayload preparedPayload,
+                                                        WebSocketSession session) {
+        SimpMessageHeaderAccessor headerAccessor = simpHeaderAccessor(session);
+
+        GraphQLMessage payload = new PreparedGraphQLMessage(operationId, preparedPayload);
+
+        return MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
+    }
+
     private SimpMessageHeaderAccessor simpHeaderAccessor(WebSocketSession session) {
         SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLPersistedQueryRegistry.PersistedQueryException;
+import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
+import org.junit.Test;
+
+public class GraphQLPersistedQueryRegistryTest {
+
+    private static final String QUERY = "subscription { engineEvents { id eventType } }";
+
+    private static final String HASH = "2f8603218c4d0e85967b07b30d0747101a9784bd7f87c1d1e5a1a210511fb0a3";
+
+    @Test
+    public void testSha256Hex() {
+        assertThat(GraphQLPersistedQueryRegistry.sha256Hex(QUERY)).isEqualTo(HASH);
+    }
+
+    @Test
+    public void testRegistersAutomaticPersistedQuery() throws Exception {
+        // given
+        GraphQLPersistedQueryRegistry registry = new GraphQLPersistedQueryRegistry(new GraphQLInMemoryPersistedQueryStore());
+
+        // when
+        Throwable notFound = catchThrowable(() -> registry.resolve(parameters(null, HASH)));
+        QueryParameters registered = registry.resolve(parameters(QUERY, HASH));
+        QueryParameters resolved = registry.resolve(parameters(null, HASH));
+
+        // then
+        assertThat(notFound).isInstanceOf(PersistedQueryException.class)
+                            .hasMessage(GraphQLPersistedQueryRegistry.PERSISTED_QUERY_NOT_FOUND);
+        assertThat(registered.getQuery()).isEqualTo(QUERY);
+        assertThat(resolved.getQuery()).isEqualTo(QUERY);
+        assertThat(resolved.getVariables()).containsEntry("name", "value");
+        assertThat(registry.getHitCount()).isEqualTo(1);
+        assertThat(registry.getMissCount()).isEqualTo(1);
+        assertThat(registry.getRegistrationCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectsHashMismatch() {
+        // given
+        GraphQLPersistedQueryRegistry registry = new GraphQLPersistedQueryRegistry(new GraphQLInMemoryPersistedQueryStore());
+
+        // when
+        Throwable mismatch = catchThrowable(() -> registry.resolve(parameters("subscription { other }", HASH)));
+
+        // then
+        assertThat(mismatch).isInstanceOf(PersistedQueryException.class)
+                            .hasMessage(GraphQLPersistedQueryRegistry.PERSISTED_QUERY_HASH_MISMATCH);
+        assertThat(registry.getSize()).isZero();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedQueries() {
+        // given
+        GraphQLInMemoryPersistedQueryStore store = new GraphQLInMemoryPersistedQueryStore(2);
+
+        // when
+        store.put("a", "query a");
+        store.put("b", "query b");
+        store.get("a");
+        store.put("c", "query c");
+
+        // then
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get("a")).isEqualTo("query a");
+        assertThat(store.get("b")).isNull();
+    }
+
+    @Test
+    public void testAllowListOnlyExecutesManifestQueries() throws Exception {
+        // given
+        GraphQLPersistedQueryRegistry registry = new GraphQLPersistedQueryRegistry(new GraphQLClasspathPersistedQueryStore("persisted-queries.json"),
+                                                                                   true);
+        String otherQuery = "subscription { engineEvents { id } }";
+
+        // when
+        QueryParameters byHash = registry.resolve(parameters(null, HASH.toUpperCase()));
+        QueryParameters byText = registry.resolve(parameters(QUERY, null));
+        Throwable unknownText = catchThrowable(() -> registry.resolve(parameters(otherQuery, null)));
+        Throwable unknownHash = catchThrowable(() -> registry.resolve(parameters(otherQuery,
+                                                                                 GraphQLPersistedQueryRegistry.sha256Hex(otherQuery))));
+
+        // then
+        assertThat(byHash.getQuery()).isEqualTo(QUERY);
+        assertThat(byText.getQuery()).isEqualTo(QUERY);
+        assertThat(unknownText).hasMessage(GraphQLPersistedQueryRegistry.PERSISTED_QUERY_NOT_ALLOWED);
+        assertThat(unknownHash).hasMessage(GraphQLPersistedQueryRegistry.PERSISTED_QUERY_NOT_ALLOWED);
+        assertThat(registry.getSize()).isEqualTo(1);
+    }
+
+    private static QueryParameters parameters(String query, String hash) throws Exception {
+        Map<String, Object> json = new HashMap<>();
+        json.put("query", query);
+        json.put("variables", "{\"name\": \"value\"}");
+
+        if (hash != null) {
+            Map<String, Object> persistedQuery = new HashMap<>();
+            persistedQuery.put("version", 1);
+            persistedQuery.put("sha256Hash", hash);
+
+            json.put("extensions", Collections.singletonMap("persistedQuery", persistedQuery));
+        }
+
+        return QueryParameters.from(json);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.SubscriptionExecutionStrategy;
+import graphql.schema.Coercing;
+import graphql.schema.GraphQLScalarType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+public class GraphQLProjectionSubscriptionExecutionStrategyTest {
+
+    private static final String SCHEMA = "scalar ObjectScalar\n"
+            + "schema { query: Query subscription: Subscription }\n"
+            + "type Query { hello: String }\n"
+            + "type Subscription { engineEvents: [EngineEvent] engineEvent: EngineEvent }\n"
+            + "enum EngineEventType { PROCESS_STARTED PROCESS_COMPLETED }\n"
+            + "type EngineEvent { id: String timestamp: Long eventType: EngineEventType entity: ObjectScalar parent: EngineEvent }\n";
+
+    private AtomicInteger fallbacks = new AtomicInteger();
+
+    private GraphQLProjectionSubscriptionExecutionStrategy strategy = new GraphQLProjectionSubscriptionExecutionStrategy() {
+        @Override
+        protected CompletableFuture<ExecutionResult> executeSubscriptionEvent(ExecutionContext executionContext,
+                                                                              ExecutionStrategyParameters fieldParameters,
+                                                                              Object eventPayload) {
+            fallbacks.incrementAndGet();
+
+            return super.executeSubscriptionEvent(executionContext, fieldParameters, eventPayload);
+        }
+    };
+
+    @Test
+    public void testProjectsFlatSelectionIdenticalToFullExecution() {
+        // given
+        List<Object> events = Arrays.asList(Arrays.asList(event("1", "PROCESS_STARTED"), null, event("2", "PROCESS_COMPLETED")),
+                                            null,
+                                            Collections.singletonList(event("3", null)));
+        String query = "subscription { engineEvents { ...ids type: eventType timestamp entity __typename id } }"
+                + " fragment ids on EngineEvent { id }";
+
+        // when
+        List<Map<String, Object>> projected = execute(strategy, query, events);
+        List<Map<String, Object>> expected = execute(new SubscriptionExecutionStrategy(), query, events);
+
+        // then
+        assertThat(projected).isEqualTo(expected)
+                             .hasSize(3);
+        assertThat(fallbacks.get()).isZero();
+    }
+
+    @Test
+    public void testProjectsSingleObjectIdenticalToFullExecution() {
+        // given
+        List<Object> events = Arrays.asList(event("1", "PROCESS_STARTED"), Optional.of(event("2", "PROCESS_COMPLETED")));
+        String query = "subscription { engineEvent { id eventType skipped: id @skip(if: true) } }";
+
+        // when
+        List<Map<String, Object>> projected = execute(strategy, query, events);
+        List<Map<String, Object>> expected = execute(new SubscriptionExecutionStrategy(), query, events);
+
+        // then
+        assertThat(projected).isEqualTo(expected);
+        assertThat(fallbacks.get()).isZero();
+    }
+
+    @Test
+    public void testFallsBackToFullExecutionForInvalidEvent() {
+        // given
+        List<Object> events = Arrays.asList(Collections.singletonList(event("1", "PROCESS_STARTED")),
+                                            Collections.singletonList(event("2", "UNKNOWN")));
+        String query = "subscription { engineEvents { id eventType } }";
+
+        // when
+        List<Map<String, Object>> projected = execute(strategy, query, events);
+        List<Map<String, Object>> expected = execute(new SubscriptionExecutionStrategy(), query, events);
+
+        // then
+        assertThat(projected).isEqualTo(expected);
+        assertThat(projected.get(1)).containsEntry("data",
+                                                   Collections.singletonMap("engineEvents",
+                                                                            Collections.singletonList(eventType("2", null))));
+        assertThat(fallbacks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFallsBackToFullExecutionForNestedSelection() {
+        // given
+        Map<String, Object> event = event("2", "PROCESS_COMPLETED");
+        event.put("parent", event("1", "PROCESS_STARTED"));
+        List<Object> events = Collections.singletonList(Collections.singletonList(event));
+        String query = "subscription { engineEvents { id parent { id } } }";
+
+        // when
+        List<Map<String, Object>> projected = execute(strategy, query, events);
+        List<Map<String, Object>> expected = execute(new SubscriptionExecutionStrategy(), query, events);
+
+        // then
+        assertThat(projected).isEqualTo(expected);
+        assertThat(fallbacks.get()).isZero();
+    }
+
+    private List<Map<String, Object>> execute(SubscriptionExecutionStrategy subscriptionStrategy,
+                                              String query,
+                                              List<Object> events) {
+        GraphQL graphQL = GraphQL.newGraphQL(schema(events))
+                                 .subscriptionExecutionStrategy(subscriptionStrategy)
+                                 .build();
+
+        ExecutionResult result = graphQL.execute(query);
+
+        assertThat(result.getErrors()).isEmpty();
+
+        return Flux.from(result.<Publisher<ExecutionResult>> getData())
+                   .map(ExecutionResult::toSpecification)
+                   .collectList()
+                   .block();
+    }
+
+    private GraphQLSchema schema(List<Object> events) {
+        GraphQLScalarType objectScalar = GraphQLScalarType.newScalar()
+                                                          .name("ObjectScalar")
+                                                          .coercing(new Coercing<Object, Object>() {
+                                                              @Override
+                                                              public Object serialize(Object input) {
+                                                                  return input;
+                                                              }
+
+                                                              @Override
+                                                              public Object parseValue(Object input) {
+                                                                  return input;
+                                                              }
+
+                                                              @Override
+                                                              public Object parseLiteral(Object input) {
+                                                                  return input;
+                                                              }
+                                                          })
+                                                          .build();
+
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                                            .scalar(objectScalar)
+                                            .type("Subscription", type -> type.dataFetcher("engineEvents", env -> publisher(events))
+                                                                              .dataFetcher("engineEvent", env -> publisher(events)))
+                                            .build();
+
+        return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SCHEMA), wiring);
+    }
+
+    private static Publisher<Object> publisher(List<Object> events) {
+        // Flux does not allow null elements, so null events are emitted as empty optionals
+        return Flux.fromIterable(events.stream()
+                                       .map(event -> event == null ? Optional.empty() : event)
+                                       .collect(Collectors.toList()));
+    }
+
+    private static Map<String, Object> eventType(String id, String eventType) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", id);
+        result.put("eventType", eventType);
+
+        return result;
+    }
+
+    private static Map<String, Object> event(String id, String eventType) {
+        Map<String, Object> entity = new HashMap<>();
+        entity.put("id", id);
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", id);
+        event.put("timestamp", Long.valueOf(id));
+        event.put("eventType", eventType);
+        event.put("entity", entity);
+
+        return event;
+    }
+}
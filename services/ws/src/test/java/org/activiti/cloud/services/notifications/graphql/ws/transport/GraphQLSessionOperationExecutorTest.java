@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class GraphQLSessionOperationExecutorTest {
+
+    private ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    private GraphQLSessionOperationExecutor operationExecutor = new GraphQLSessionOperationExecutor(executorService);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testExecutesSessionOperationsInOrder() throws Exception {
+        // given
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            int operation = i;
+            operationExecutor.execute("session", () -> {
+                executed.add(operation);
+                done.countDown();
+            });
+        }
+
+        // then
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).containsExactlyElementsOf(IntStream.range(0, 100)
+                                                                .boxed()
+                                                                .collect(Collectors.toList()));
+        assertThat(operationExecutor.getCompletedCount()).isEqualTo(100);
+    }
+
+    @Test
+    public void testSlowOperationDoesNotHoldOtherSessions() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        operationExecutor.execute("slow", () -> {
+            started.countDown();
+            await(release);
+        });
+        operationExecutor.execute("slow", () -> { });
+
+        // when
+        operationExecutor.execute("fast", done::countDown);
+
+        // then
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(operationExecutor.getQueueDepth()).isEqualTo(1);
+
+        while (operationExecutor.getCompletedCount() < 1) {
+            Thread.sleep(10);
+        }
+        assertThat(operationExecutor.getActiveCount()).isEqualTo(1);
+
+        release.countDown();
+    }
+
+    @Test
+    public void testExecutesOnCallingThreadWhenRejected() {
+        // given
+        operationExecutor = new GraphQLSessionOperationExecutor(command -> {
+            throw new RejectedExecutionException();
+        });
+        List<Thread> threads = new ArrayList<>();
+
+        // when
+        operationExecutor.execute("session", () -> threads.add(Thread.currentThread()));
+
+        // then
+        assertThat(threads).containsExactly(Thread.currentThread());
+        assertThat(operationExecutor.getQueueDepth()).isZero();
+        assertThat(operationExecutor.getSessionCount()).isZero();
+    }
+
+    @Test
+    public void testCountsFailedOperations() throws Exception {
+        // given
+        CountDownLatch done = new CountDownLatch(1);
+
+        // when
+        operationExecutor.execute("session", () -> {
+            throw new IllegalStateException("failed");
+        });
+        operationExecutor.execute("session", done::countDown);
+
+        // then
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(operationExecutor.getErrorCount()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
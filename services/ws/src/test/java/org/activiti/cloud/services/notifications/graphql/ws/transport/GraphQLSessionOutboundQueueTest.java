@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.activiti.cloud.services.notifications.graphql.ws.transport.GraphQLSessionOutboundQueue.OverflowPolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+public class GraphQLSessionOutboundQueueTest {
+
+    private WebSocketSession session;
+
+    private List<Runnable> tasks;
+
+    private Executor executor;
+
+    private GraphQLSessionOutboundQueue.Stats stats;
+
+    @Before
+    public void setUp() {
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("sess1");
+
+        // simulate a slow client: queued messages are written only when tasks are run
+        tasks = new ArrayList<>();
+        executor = tasks::add;
+        stats = new GraphQLSessionOutboundQueue.Stats();
+    }
+
+    @Test
+    public void testSendWritesMessagesInOrder() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 2, 1024, OverflowPolicy.DISCONNECT, null, stats);
+
+        // when
+        send(queue, "1", GraphQLMessageType.DATA, "a");
+        send(queue, "1", GraphQLMessageType.DATA, "b");
+        send(queue, "1", GraphQLMessageType.COMPLETE, "c");
+
+        // then
+        assertThat(sentPayloads()).containsExactly("a", "b", "c");
+        assertThat(stats.getDepth()).isZero();
+        assertThat(stats.getBytes()).isZero();
+    }
+
+    @Test
+    public void testDropOldestKeepsControlMessages() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 2, 1024, OverflowPolicy.DROP_OLDEST, executor, stats);
+
+        // when
+        send(queue, null, GraphQLMessageType.CONNECTION_ACK, "ack");
+        send(queue, "1", GraphQLMessageType.DATA, "a1");
+        send(queue, "1", GraphQLMessageType.DATA, "a2");
+        send(queue, "1", GraphQLMessageType.DATA, "a3");
+
+        // then
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(stats.getDepth()).isEqualTo(2);
+        assertThat(stats.getDroppedCount()).isEqualTo(2);
+
+        // when
+        runTasks();
+
+        // then
+        assertThat(sentPayloads()).containsExactly("ack", "a3");
+        assertThat(stats.getDepth()).isZero();
+    }
+
+    @Test
+    public void testDropOldestEnforcesMaxBytes() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 100, 8, OverflowPolicy.DROP_OLDEST, executor, stats);
+
+        // when
+        send(queue, "1", GraphQLMessageType.DATA, "aaaa");
+        send(queue, "1", GraphQLMessageType.DATA, "bbbb");
+        send(queue, "1", GraphQLMessageType.DATA, "cccc");
+
+        // then
+        assertThat(queue.bytes()).isEqualTo(8);
+        assertThat(stats.getBytes()).isEqualTo(8);
+
+        // when
+        runTasks();
+
+        // then
+        assertThat(sentPayloads()).containsExactly("bbbb", "cccc");
+    }
+
+    @Test
+    public void testConflateKeepsLatestDataPerOperation() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 3, 1024, OverflowPolicy.CONFLATE, executor, stats);
+
+        // when
+        send(queue, "1", GraphQLMessageType.DATA, "a1");
+        send(queue, "2", GraphQLMessageType.DATA, "b1");
+        send(queue, "1", GraphQLMessageType.DATA, "a2");
+        send(queue, "1", GraphQLMessageType.DATA, "a3");
+
+        runTasks();
+
+        // then
+        assertThat(sentPayloads()).containsExactly("b1", "a3");
+        assertThat(stats.getConflatedCount()).isEqualTo(2);
+        assertThat(stats.getDroppedCount()).isZero();
+    }
+
+    @Test
+    public void testDisconnectClosesSlowSession() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 1, 1024, OverflowPolicy.DISCONNECT, executor, stats);
+
+        // when
+        send(queue, "1", GraphQLMessageType.DATA, "a1");
+        send(queue, "1", GraphQLMessageType.DATA, "a2");
+        runTasks();
+        send(queue, "1", GraphQLMessageType.DATA, "a3");
+
+        // then
+        verify(session).close(GraphQLSessionOutboundQueue.SLOW_CONSUMER);
+        verify(session, never()).sendMessage(ArgumentMatchers.any());
+        assertThat(stats.getDisconnectedCount()).isEqualTo(1);
+        assertThat(stats.getDepth()).isZero();
+    }
+
+    @Test
+    public void testDeliveryCallbackRunsOnceMessageIsQueued() throws Exception {
+        // given
+        GraphQLSessionOutboundQueue queue = new GraphQLSessionOutboundQueue(session, 2, 1024, OverflowPolicy.DROP_OLDEST, executor, stats);
+        AtomicInteger delivered = new AtomicInteger();
+
+        // when the session does not write anything
+        for (String payload : Arrays.asList("a1", "a2", "a3")) {
+            queue.send(new GraphQLMessage("1", GraphQLMessageType.DATA, Collections.emptyMap()),
+                       new TextMessage(payload),
+                       delivered::incrementAndGet);
+        }
+
+        // then
+        assertThat(delivered).hasValue(3);
+        assertThat(stats.getDroppedCount()).isEqualTo(1);
+
+        // when
+        runTasks();
+
+        // then
+        assertThat(sentPayloads()).containsExactly("a2", "a3");
+        assertThat(delivered).hasValue(3);
+
+        // when
+        queue.send(new GraphQLMessage("1", GraphQLMessageType.DATA, Collections.emptyMap()),
+                   new TextMessage("a4"),
+                   delivered::incrementAndGet);
+        queue.close();
+
+        // then
+        assertThat(delivered).hasValue(4);
+    }
+
+    private void send(GraphQLSessionOutboundQueue queue, String id, GraphQLMessageType type, String payload) {
+        queue.send(new GraphQLMessage(id, type, Collections.emptyMap()), new TextMessage(payload));
+    }
+
+    private void runTasks() {
+        new ArrayList<>(tasks).forEach(Runnable::run);
+        tasks.clear();
+    }
+
+    private List<String> sentPayloads() throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+
+        verify(session, Mockito.atLeast(0)).sendMessage(captor.capture());
+
+        List<String> payloads = new ArrayList<>();
+        captor.getAllValues().forEach(message -> payloads.add(message.getPayload()));
+
+        return payloads;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLError;
+import org.activiti.cloud.services.notifications.graphql.ws.util.QueryParameters;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.test.publisher.TestPublisher;
+
+public class GraphQLSubscriptionMultiplexerTest {
+
+    private GraphQLSubscriptionMultiplexer multiplexer = new GraphQLSubscriptionMultiplexer();
+
+    @Test
+    public void testIdenticalSubscriptionsShareUpstream() throws Exception {
+        // given
+        TestPublisher<ExecutionResult> upstream = TestPublisher.create();
+        AtomicInteger executions = new AtomicInteger();
+        Principal user = principal("hruser");
+
+        ExecutionResult first = multiplexer.execute(parameters("subscription { engineEvents { eventType } }", "1"),
+                                                    user,
+                                                    () -> execute(executions, upstream.flux()));
+        ExecutionResult second = multiplexer.execute(parameters("subscription {\n  engineEvents {\n    eventType\n  }\n}", "1"),
+                                                     user,
+                                                     () -> execute(executions, upstream.flux()));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("key", "value");
+
+        // when
+        List<ExecutionResult> firstResults = new ArrayList<>();
+        List<ExecutionResult> secondResults = new ArrayList<>();
+        Disposable firstSubscription = Flux.from(first.<Publisher<ExecutionResult>> getData())
+                                           .subscribe(firstResults::add);
+        Disposable secondSubscription = Flux.from(second.<Publisher<ExecutionResult>> getData())
+                                            .subscribe(secondResults::add);
+
+        upstream.next(new ExecutionResultImpl(data, Collections.emptyList()));
+
+        // then
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(1);
+        assertThat(firstResults).hasSize(1)
+                                .first()
+                                .isInstanceOf(PreparedExecutionResult.class);
+        assertThat(secondResults).containsExactlyElementsOf(firstResults);
+        assertThat(((PreparedExecutionResult) firstResults.get(0)).getPreparedPayload()
+                                                                  .getPayload()).containsEntry("data", data);
+        upstream.assertSubscribers(1);
+
+        // when
+        firstSubscription.dispose();
+
+        // then
+        upstream.assertNotCancelled();
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(1);
+
+        // when
+        secondSubscription.dispose();
+
+        // then
+        upstream.assertCancelled();
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testStalledSessionDoesNotHoldBackSharedUpstream() throws Exception {
+        // given
+        GraphQLSubscriptionMultiplexer multiplexer = new GraphQLSubscriptionMultiplexer(2);
+        TestPublisher<ExecutionResult> upstream = TestPublisher.create();
+        AtomicInteger executions = new AtomicInteger();
+        QueryParameters parameters = parameters("subscription { engineEvents { eventType } }", "1");
+
+        ExecutionResult active = multiplexer.execute(parameters, null, () -> execute(executions, upstream.flux()));
+        ExecutionResult stalled = multiplexer.execute(parameters, null, () -> execute(executions, upstream.flux()));
+
+        List<ExecutionResult> activeResults = new ArrayList<>();
+        List<ExecutionResult> stalledResults = new ArrayList<>();
+        BaseSubscriber<ExecutionResult> stalledSubscriber = new BaseSubscriber<ExecutionResult>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // stop requesting
+            }
+
+            @Override
+            protected void hookOnNext(ExecutionResult value) {
+                stalledResults.add(value);
+            }
+        };
+        Disposable activeSubscription = Flux.from(active.<Publisher<ExecutionResult>> getData())
+                                            .subscribe(activeResults::add);
+        Flux.from(stalled.<Publisher<ExecutionResult>> getData()).subscribe(stalledSubscriber);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            upstream.next(new ExecutionResultImpl(Collections.singletonMap("key", "value" + i), Collections.emptyList()));
+        }
+
+        // then
+        assertThat(activeResults).hasSize(5);
+        assertThat(stalledResults).isEmpty();
+        assertThat(multiplexer.getDroppedCount()).isEqualTo(3);
+
+        // when
+        stalledSubscriber.request(Long.MAX_VALUE);
+
+        // then
+        assertThat(stalledResults).containsExactlyElementsOf(activeResults.subList(3, 5));
+
+        activeSubscription.dispose();
+        stalledSubscriber.dispose();
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDistinctVariablesAndPrincipalsDoNotShareUpstream() throws Exception {
+        // given
+        AtomicInteger executions = new AtomicInteger();
+        String query = "subscription($id: String) { engineEvents(processInstanceId: [$id]) { eventType } }";
+
+        // when
+        subscribe(multiplexer.execute(parameters(query, "1"), principal("hruser"),
+                                      () -> execute(executions, DirectProcessor.create())));
+        subscribe(multiplexer.execute(parameters(query, "2"), principal("hruser"),
+                                      () -> execute(executions, DirectProcessor.create())));
+        subscribe(multiplexer.execute(parameters(query, "1"), principal("testuser"),
+                                      () -> execute(executions, DirectProcessor.create())));
+        subscribe(multiplexer.execute(parameters(query, "1"), null,
+                                      () -> execute(executions, DirectProcessor.create())));
+
+        // then
+        assertThat(executions.get()).isEqualTo(4);
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testExecutionErrorsAreNotShared() throws Exception {
+        // given
+        ExecutionResult errors = new ExecutionResultImpl(Collections.singletonList(mock(GraphQLError.class)));
+        QueryParameters parameters = parameters("subscription { unknown }", "1");
+
+        // when
+        ExecutionResult result = multiplexer.execute(parameters, null, () -> errors);
+
+        // then
+        assertThat(result).isSameAs(errors);
+        assertThat(multiplexer.getUpstreamCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testNormalizePreservesStringLiterals() {
+        assertThat(GraphQLSubscriptionMultiplexer.normalize("  subscription {\n\t engineEvents(eventType: [A, B]) { id }\n}"))
+            .isEqualTo("subscription { engineEvents(eventType: [A B]) { id } }");
+        assertThat(GraphQLSubscriptionMultiplexer.normalize("{ a(name: \"x  y, \\\"z\\\"\") }"))
+            .isEqualTo("{ a(name: \"x  y, \\\"z\\\"\") }");
+    }
+
+    private ExecutionResult execute(AtomicInteger executions, Publisher<ExecutionResult> publisher) {
+        executions.incrementAndGet();
+
+        return new ExecutionResultImpl(publisher, Collections.emptyList());
+    }
+
+    private void subscribe(ExecutionResult executionResult) {
+        Flux.from(executionResult.<Publisher<ExecutionResult>> getData()).subscribe();
+    }
+
+    private QueryParameters parameters(String query, String id) throws Exception {
+        Map<String, Object> json = new HashMap<>();
+        json.put("query", query);
+        json.put("variables", Collections.singletonMap("id", id));
+
+        return QueryParameters.from(json);
+    }
+
+    private Principal principal(String name) {
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn(name);
+
+        return principal;
+    }
+}
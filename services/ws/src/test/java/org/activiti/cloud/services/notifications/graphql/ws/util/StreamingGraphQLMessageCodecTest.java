@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Alfresco, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.cloud.services.notifications.graphql.ws.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessage;
+import org.activiti.cloud.services.notifications.graphql.ws.api.GraphQLMessageType;
+import org.junit.Test;
+
+public class StreamingGraphQLMessageCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final GraphQLMessageCodec codec = new StreamingGraphQLMessageCodec(objectMapper);
+
+    @Test
+    public void testEncodeDataMessage() throws Exception {
+        // given
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("engineEvents", Arrays.asList("event1", "event2"));
+        data.put("value", null);
+
+        GraphQLMessage message = new GraphQLMessage("1", GraphQLMessageType.DATA, Collections.singletonMap("data", data));
+
+        // when
+        byte[] bytes = codec.encode(message);
+
+        // then
+        assertThat(new String(bytes, "UTF-8")).isEqualTo(objectMapper.writeValueAsString(message));
+    }
+
+    @Test
+    public void testEncodeMessageWithoutIdAndPayload() throws Exception {
+        // given
+        GraphQLMessage message = new GraphQLMessage(null, GraphQLMessageType.KA, null);
+
+        // when
+        byte[] bytes = codec.encode(message);
+
+        // then
+        assertThat(new String(bytes, "UTF-8")).isEqualTo("{\"payload\":null,\"id\":null,\"type\":\"ka\"}");
+    }
+
+    @Test
+    public void testEncodeEscapesId() throws Exception {
+        // given
+        GraphQLMessage message = new GraphQLMessage("\"id\"\n", GraphQLMessageType.COMPLETE);
+
+        // when
+        byte[] bytes = codec.encode(message);
+
+        // then
+        assertThat(new String(bytes, "UTF-8")).isEqualTo(objectMapper.writeValueAsString(message));
+    }
+
+    @Test
+    public void testEncodeSerializedPayload() throws Exception {
+        // given
+        Map<String, Object> payload = Collections.singletonMap("data", Collections.singletonMap("key", "value"));
+        byte[] serializedPayload = codec.encodePayload(payload);
+
+        // when
+        byte[] first = codec.encode("1", GraphQLMessageType.DATA, serializedPayload);
+        byte[] second = codec.encode("2", GraphQLMessageType.DATA, serializedPayload);
+
+        // then
+        assertThat(new String(first, "UTF-8")).isEqualTo(objectMapper.writeValueAsString(new GraphQLMessage("1", GraphQLMessageType.DATA, payload)));
+        assertThat(new String(second, "UTF-8")).isEqualTo(objectMapper.writeValueAsString(new GraphQLMessage("2", GraphQLMessageType.DATA, payload)));
+    }
+
+    @Test
+    public void testDecodeStartMessageToQueryParameters() throws Exception {
+        // given
+        String text = "{\"payload\":{\"query\":\"subscription { engineEvents { eventType } }\",\"operationName\":\"events\","
+                + "\"variables\":{\"id\":1},\"extensions\":{\"bufferCount\":10}},\"id\":\"1\",\"type\":\"start\"}";
+
+        // when
+        GraphQLMessage message = codec.decode(text);
+
+        // then
+        assertThat(message).isInstanceOf(DecodedGraphQLMessage.class);
+        assertThat(message.getId()).isEqualTo("1");
+        assertThat(message.getType()).isEqualTo(GraphQLMessageType.START);
+
+        QueryParameters parameters = ((DecodedGraphQLMessage) message).getQueryParameters();
+
+        assertThat(parameters.getQuery()).isEqualTo("subscription { engineEvents { eventType } }");
+        assertThat(parameters.getOperationName()).isEqualTo("events");
+        assertThat(parameters.getVariables()).containsEntry("id", 1);
+        assertThat(parameters.getExtensions()).containsEntry("bufferCount", 10);
+    }
+
+    @Test
+    public void testDecodeStartMessageWithStringVariables() throws Exception {
+        // given
+        String text = "{\"id\":\"1\",\"type\":\"start\",\"payload\":{\"query\":\"{}\",\"variables\":\"{\\\"id\\\":\\\"a\\\"}\"}}";
+
+        // when
+        QueryParameters parameters = ((DecodedGraphQLMessage) codec.decode(text)).getQueryParameters();
+
+        // then
+        assertThat(parameters.getQuery()).isEqualTo("{}");
+        assertThat(parameters.getVariables()).containsEntry("id", "a");
+        assertThat(parameters.getExtensions()).isEmpty();
+    }
+
+    @Test
+    public void testDecodeStartMessageRejectsNonStringQuery() throws Exception {
+        // given
+        String text = "{\"id\":\"1\",\"type\":\"start\",\"payload\":{\"query\":{\"variables\":{}},"
+                + "\"extensions\":{\"bufferCount\":10}}}";
+        DecodedGraphQLMessage message = (DecodedGraphQLMessage) codec.decode(text);
+
+        // when
+        Throwable thrown = catchThrowable(message::getQueryParameters);
+
+        // then
+        assertThat(thrown).isInstanceOf(JsonMappingException.class)
+                          .hasMessageContaining("Expected string value for query");
+    }
+
+    @Test
+    public void testDecodeConnectionInitMessagePayload() throws Exception {
+        // given
+        String text = "{\"type\":\"connection_init\",\"payload\":{\"kaInterval\":1000,\"X-Authorization\":\"Bearer token\"}}";
+
+        // when
+        GraphQLMessage message = codec.decode(text);
+
+        // then
+        assertThat(message.getId()).isNull();
+        assertThat(message.getType()).isEqualTo(GraphQLMessageType.CONNECTION_INIT);
+        assertThat(message.getPayload()).containsEntry("kaInterval", 1000)
+                                        .containsEntry("X-Authorization", "Bearer token");
+    }
+
+    @Test
+    public void testDecodeSkipsPayloadOfOtherMessages() throws Exception {
+        // given
+        String text = "{\"payload\":{\"ignored\":[1,2,{\"a\":null}]},\"id\":\"1\",\"type\":\"stop\",\"unknown\":true}";
+
+        // when
+        GraphQLMessage message = codec.decode(text);
+
+        // then
+        assertThat(message.getId()).isEqualTo("1");
+        assertThat(message.getType()).isEqualTo(GraphQLMessageType.STOP);
+        assertThat(((DecodedGraphQLMessage) message).hasPayload()).isFalse();
+        assertThat(message.getPayload()).isNull();
+    }
+
+}